@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.sessions.Session;
+
+/**
+ * Cursor over all editions of a continuity ordered by their start time. The
+ * editions are read a page at a time using keyset pagination on the start
+ * time so only one page is held in memory. Editions are read-only and are
+ * not registered in the persistence context.
+ *
+ * @see TemporalEntityManager#getHistory(Class, int, int)
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionHistory<T extends TemporalEntity<?>> implements Iterator<T> {
+
+    private Session session;
+
+    private ReadAllQuery query;
+
+    private int continuityId;
+
+    private int pageSize;
+
+    private List<T> page = Collections.emptyList();
+
+    private int index = 0;
+
+    private long lastStart = Long.MIN_VALUE;
+
+    private boolean lastPage = false;
+
+    protected EditionHistory(Session session, ReadAllQuery query, int continuityId, int pageSize) {
+        this.session = session;
+        this.query = query;
+        this.continuityId = continuityId;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.index < this.page.size()) {
+            return true;
+        }
+        if (!this.lastPage) {
+            readPage();
+        }
+        return this.index < this.page.size();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T edition = this.page.get(this.index);
+        // Release the edition so it can be collected while the page is in use
+        this.page.set(this.index++, null);
+        this.lastStart = edition.getEffectivity().getStart();
+        return edition;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("EditionHistory is read-only");
+    }
+
+    /**
+     * Read the editions starting after the last one returned.
+     */
+    @SuppressWarnings("unchecked")
+    private void readPage() {
+        ReadAllQuery pageQuery = (ReadAllQuery) this.query.clone();
+        pageQuery.setMaxRows(this.pageSize);
+
+        List<Object> args = new ArrayList<Object>(2);
+        args.add(this.continuityId);
+        args.add(this.lastStart);
+
+        this.page = new ArrayList<T>((List<T>) this.session.executeQuery(pageQuery, args));
+        this.index = 0;
+        this.lastPage = this.page.size() < this.pageSize;
+    }
+
+}
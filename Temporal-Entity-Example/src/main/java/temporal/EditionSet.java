@@ -12,8 +12,12 @@
  ******************************************************************************/
 package temporal;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -21,6 +25,7 @@ import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import org.eclipse.persistence.annotations.ChangeTracking;
 import org.eclipse.persistence.annotations.ChangeTrackingType;
@@ -52,6 +57,22 @@ public class EditionSet {
     @OneToMany(mappedBy = "editionSet", cascade = CascadeType.ALL)
     private List<EditionSetEntry> entries = new ArrayList<EditionSetEntry>();
 
+    /**
+     * Position of each entry in {@link #entries} by its temporal object. Built
+     * on first use after the entries are loaded. It is discarded when the
+     * entries are changed through {@link #getEntries()} other than by
+     * {@link #add(Temporal, boolean)} and {@link #remove(Temporal)}, or when
+     * EclipseLink sets a new entries collection.
+     */
+    @Transient
+    private Map<Temporal, Integer> index;
+
+    /**
+     * The entries collection the {@link #index} was built from.
+     */
+    @Transient
+    private List<EditionSetEntry> indexedEntries;
+
     private EditionSet() {
         super();
     }
@@ -77,13 +98,21 @@ public class EditionSet {
         this.description = description;
     }
 
+    /**
+     * @return a view of the entries which can be changed. Changes made through
+     *         it, other than by {@link #add(Temporal, boolean)} and
+     *         {@link #remove(Temporal)}, cause the index of the entries to be
+     *         rebuilt on the next lookup.
+     */
     public List<EditionSetEntry> getEntries() {
-        return entries;
+        return new Entries();
     }
 
     public EditionSetEntry add(Temporal temporalObject, boolean newEntity) {
         EditionSetEntry entry = new EditionSetEntry(this, temporalObject, newEntity);
-        getEntries().add(entry);
+        Map<Temporal, Integer> index = getIndex();
+        this.entries.add(entry);
+        index.put(temporalObject, this.entries.size() - 1);
         return entry;
     }
 
@@ -97,22 +126,43 @@ public class EditionSet {
     }
 
     protected EditionSetEntry get(Temporal temporal) {
-        for (EditionSetEntry ese : getEntries()) {
-            if (ese.getTemporal().equals(temporal)) {
-                return ese;
+        Integer position = getIndex().get(temporal);
+        return position == null ? null : this.entries.get(position);
+    }
+
+    /**
+     * @return the index of the entries, rebuilt if it was discarded or the
+     *         entries collection was replaced
+     */
+    private Map<Temporal, Integer> getIndex() {
+        if (this.index == null || this.indexedEntries != this.entries || this.index.size() != this.entries.size()) {
+            this.index = new IdentityHashMap<Temporal, Integer>(this.entries.size());
+            for (int position = 0; position < this.entries.size(); position++) {
+                this.index.put(this.entries.get(position).getTemporal(), position);
             }
+            this.indexedEntries = this.entries;
         }
-        return null;
+        return this.index;
     }
 
     /**
      * Remove the provided entity and its associated {@link EditionSetEntry}.
+     * The last entry is moved into the position of the removed one so the
+     * removal does not shift the following entries. The entries are not
+     * ordered in the database.
      * TODO: Throw exception if no ESE found
      */
     protected EditionSetEntry remove(Temporal temporal) {
-        EditionSetEntry ese = get(temporal);
-        if (ese != null) {
-            getEntries().remove(ese);
+        Map<Temporal, Integer> index = getIndex();
+        Integer position = index.remove(temporal);
+        if (position == null) {
+            return null;
+        }
+        EditionSetEntry ese = this.entries.get(position);
+        EditionSetEntry last = this.entries.remove(this.entries.size() - 1);
+        if (last != ese) {
+            this.entries.set(position, last);
+            index.put(last.getTemporal(), position);
         }
         return ese;
     }
@@ -121,4 +171,44 @@ public class EditionSet {
     public String toString() {
         return "EditionSet(" + Effectivity.timeString(getEffective()) + ")";
     }
+
+    /**
+     * View of {@link EditionSet#entries} discarding the index on any change.
+     */
+    private class Entries extends AbstractList<EditionSetEntry> implements RandomAccess {
+
+        @Override
+        public EditionSetEntry get(int position) {
+            return entries.get(position);
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public EditionSetEntry set(int position, EditionSetEntry entry) {
+            index = null;
+            return entries.set(position, entry);
+        }
+
+        @Override
+        public void add(int position, EditionSetEntry entry) {
+            index = null;
+            entries.add(position, entry);
+        }
+
+        @Override
+        public EditionSetEntry remove(int position) {
+            index = null;
+            return entries.remove(position);
+        }
+
+        @Override
+        public void clear() {
+            index = null;
+            entries.clear();
+        }
+    }
 }
@@ -12,6 +12,8 @@
  ******************************************************************************/
 package temporal;
 
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -26,9 +28,12 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
 import org.eclipse.persistence.annotations.VariableOneToOne;
 
+import temporal.persistence.AttributeOrdinals;
+
 /**
  * An EditionSet represents a proposed set of future changes that should be
  * performed together at the same effective time. This is an optimisation in the
@@ -59,13 +64,33 @@ public class EditionSetEntry {
     private Temporal temporal;
 
     /**
-     * Set of attributes that have been modified in this edition.
+     * Set of attributes that have been modified in this edition when they are
+     * not held in {@link #attributeMask}.
      */
     @ElementCollection
     @CollectionTable(name = "TEDITIONSET_ENTRY_ATTR", joinColumns = @JoinColumn(name = "ID", referencedColumnName = "ID"))
     @Column(name = "ATTRIBUTE")
     private Set<String> attributes = new HashSet<String>();
 
+    /**
+     * Attributes that have been modified in this edition as bits indexed by
+     * their {@link AttributeOrdinals}. New entries use the mask unless a
+     * modified attribute has no ordinal, in which case the attributes are
+     * moved to {@link #attributes} and the mask is <code>null</code>.
+     */
+    @Column(name = "ATTRIBUTE_MASK")
+    private Long attributeMask = 0L;
+
+    /**
+     * {@link AttributeOrdinals#getLayout()} of the ordinals the mask was
+     * written with. A mask of another layout is not decoded.
+     */
+    @Column(name = "ATTRIBUTE_LAYOUT")
+    private Integer attributeLayout;
+
+    @Transient
+    private AttributeOrdinals ordinals;
+
     private boolean newTemporal = false;
 
     private EditionSetEntry() {
@@ -99,21 +124,107 @@ public class EditionSetEntry {
         this.editionSet = editionSet;
     }
 
+    /**
+     * @return the modified attributes. This is an unmodifiable view of the
+     *         mask when the attributes are held in one.
+     * @throws IllegalStateException
+     *             if the mask was written with another attribute layout
+     */
     public Set<String> getAttributes() {
+        if (hasAttributeMask()) {
+            if (this.attributeMask == 0) {
+                return Collections.emptySet();
+            }
+            return getMaskOrdinals().getAttributeNames(this.attributeMask);
+        }
         return attributes;
     }
 
+    /**
+     * @return <code>true</code> if the modified attributes are held in the
+     *         mask instead of TEDITIONSET_ENTRY_ATTR rows
+     */
+    public boolean hasAttributeMask() {
+        return this.attributeMask != null;
+    }
+
+    /**
+     * @return a copy of the modified attributes as bits indexed by their
+     *         {@link AttributeOrdinals}
+     * @throws IllegalStateException
+     *             if the mask was written with another attribute layout
+     */
+    public BitSet getAttributeBits() {
+        if (hasAttributeMask()) {
+            if (this.attributeMask != 0) {
+                getMaskOrdinals();
+            }
+            return AttributeOrdinals.toBitSet(this.attributeMask);
+        }
+        BitSet bits = new BitSet();
+        AttributeOrdinals attributeOrdinals = getOrdinals();
+        for (String attr : this.attributes) {
+            int ordinal = attributeOrdinals == null ? -1 : attributeOrdinals.getOrdinal(attr);
+            if (ordinal >= 0) {
+                bits.set(ordinal);
+            }
+        }
+        return bits;
+    }
+
     public void addAttribute(String attr) {
+        if (hasAttributeMask()) {
+            AttributeOrdinals attributeOrdinals = this.attributeMask == 0 ? getOrdinals() : getMaskOrdinals();
+            long bit = attributeOrdinals == null ? 0 : attributeOrdinals.getBit(attr);
+            if (bit != 0) {
+                this.attributeMask = this.attributeMask | bit;
+                this.attributeLayout = attributeOrdinals.getLayout();
+                return;
+            }
+            // No ordinal so fall back to the element collection
+            Set<String> current = new HashSet<String>(getAttributes());
+            this.attributeMask = null;
+            this.attributeLayout = null;
+            this.attributes.addAll(current);
+        }
         if (!getAttributes().contains(attr)) {
             getAttributes().add(attr);
         }
     }
 
+    /**
+     * @return the ordinals of the temporal object's type, resolved on first
+     *         use
+     */
+    private AttributeOrdinals getOrdinals() {
+        if (this.ordinals == null && getTemporal() != null) {
+            this.ordinals = AttributeOrdinals.forClass(getTemporal().getClass());
+        }
+        if (this.ordinals == null && this.attributeMask != null && this.attributeMask != 0) {
+            throw new IllegalStateException("No attribute ordinals for: " + getTemporal());
+        }
+        return this.ordinals;
+    }
+
+    /**
+     * @return the ordinals to decode the non-empty mask with
+     * @throws IllegalStateException
+     *             if the mask was written with another attribute layout
+     */
+    private AttributeOrdinals getMaskOrdinals() {
+        AttributeOrdinals attributeOrdinals = getOrdinals();
+        attributeOrdinals.checkLayout(this.attributeLayout);
+        return attributeOrdinals;
+    }
+
     public boolean isNew() {
         return this.newTemporal;
     }
 
     public boolean hasChanges() {
+        if (hasAttributeMask()) {
+            return isNew() || this.attributeMask != 0;
+        }
         return isNew() || !getAttributes().isEmpty();
     }
 
@@ -18,6 +18,7 @@ import java.util.Set;
 import java.util.Vector;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
 import org.eclipse.persistence.descriptors.ClassDescriptor;
 import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
@@ -26,6 +27,7 @@ import org.eclipse.persistence.internal.sessions.RepeatableWriteUnitOfWork;
 import org.eclipse.persistence.mappings.DatabaseMapping;
 import org.eclipse.persistence.mappings.OneToOneMapping;
 
+import temporal.persistence.BulkEditionSetOperations;
 import temporal.persistence.DescriptorHelper;
 
 /**
@@ -53,6 +55,43 @@ public class EditionSetHelper {
         em.remove(editionSet);
     }
 
+    /**
+     * Apply the {@link EditionSet} using set based SQL statements instead of
+     * loading its entries, editions and continuities. Intended for large
+     * {@link EditionSet}s. The persistence context of the EntityManager is
+     * cleared.
+     * <p>
+     * The continuities end up with the same rows as with
+     * {@link #apply(EntityManager, EditionSet)} and the editions are deleted,
+     * with these differences:
+     * <ul>
+     * <li>entities created in the {@link EditionSet} are their own continuity
+     * and are kept, whereas removing the {@link EditionSet} through a
+     * {@link TemporalEntityManager} removes them
+     * <li>other {@link Temporal} objects of the entries are kept
+     * <li>changed element collections are copied to the continuity, which
+     * {@link #copyValues(EntityManager, EditionSetEntry)} leaves unchanged
+     * </ul>
+     * 
+     * @see BulkEditionSetOperations#apply(TemporalEntityManager, EditionSet)
+     */
+    public static void applyBulk(TemporalEntityManager em, EditionSet editionSet) {
+        BulkEditionSetOperations.apply(em, editionSet);
+    }
+
+    /**
+     * Apply the {@link EditionSet} with the effective time in chunks of
+     * entries, partitioned by continuity, each in its own EntityManager and
+     * transaction on a pool of the provided number of threads. Intended for
+     * large {@link EditionSet}s. If any chunk fails the {@link EditionSet}
+     * keeps its unapplied entries and can be applied again.
+     * 
+     * @see ParallelEditionSetApply
+     */
+    public static int applyParallel(EntityManagerFactory emf, long effective, int chunkSize, int threads) {
+        return new ParallelEditionSetApply(emf, effective, chunkSize, threads).apply();
+    }
+
     public static void copyValues(EntityManager em, EditionSetEntry entry) {
         TemporalEntity<?> edition = entry.getTemporalEntity();
         TemporalEntity<?> continuity = entry.getTemporalEntity().getContinuity();
@@ -79,6 +118,18 @@ public class EditionSetHelper {
         continuity.getEffectivity().setEnd(edition.getEffectivity().getEnd());
     }
 
+    /**
+     * Move the current {@link EditionSet} of the EntityManager to the new
+     * effective time using set based SQL statements instead of loading and
+     * updating each edition. Intended for large {@link EditionSet}s. The
+     * persistence context of the EntityManager is cleared.
+     * 
+     * @see BulkEditionSetOperations#move(TemporalEntityManager, long)
+     */
+    public static void moveBulk(TemporalEntityManager em, long effective) {
+        BulkEditionSetOperations.move(em, effective);
+    }
+
     /**
      * Move the provided {@link EditionSet} to the new effective time. In
      * addition to updating the effective start time for all editions within the
@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.logging.SessionLog;
+
+import temporal.persistence.BulkEditionSetOperations;
+
+/**
+ * Apply {@link EditionSet}s automatically once their effective time has
+ * passed. Each run finds the due {@link EditionSet}s with a single query on
+ * the TEDITIONSET primary key and applies them in effective time order, each
+ * with {@link EditionSetHelper#apply(javax.persistence.EntityManager, EditionSet)}
+ * in its own transaction. Up to the configured parallelism
+ * {@link EditionSet}s are applied concurrently as long as they change
+ * disjoint continuities. An {@link EditionSet} is only started once every
+ * earlier due {@link EditionSet} changing one of its continuities has been
+ * applied.
+ * <p>
+ * Progress is recorded by the removal of each applied {@link EditionSet} in
+ * the transaction applying it. If the process stops, or an apply fails and is
+ * rolled back, the remaining {@link EditionSet}s are still due and the next
+ * run resumes with them. The {@link EditionSet} is locked before it is
+ * applied so schedulers in several processes do not apply it twice.
+ * <p>
+ * The current time is provided by a {@link Clock} so that tests can control
+ * which {@link EditionSet}s are due. Failures of a periodic run are written to
+ * the session log of the persistence unit and do not stop the schedule.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionSetScheduler {
+
+    /**
+     * Source of the current time compared to the effective time of
+     * {@link EditionSet}s.
+     */
+    public interface Clock {
+
+        long currentTime();
+    }
+
+    /**
+     * {@link Clock} using {@link System#currentTimeMillis()}
+     */
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTime() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private EntityManagerFactory emf;
+
+    private Clock clock;
+
+    private int parallelism;
+
+    private ScheduledExecutorService timer;
+
+    /**
+     * {@link EditionSet}s which could not be applied in the last run by their
+     * effective time.
+     */
+    private Map<Long, RuntimeException> failures = new LinkedHashMap<Long, RuntimeException>();
+
+    public EditionSetScheduler(EntityManagerFactory emf) {
+        this(emf, SYSTEM_CLOCK, 1);
+    }
+
+    public EditionSetScheduler(EntityManagerFactory emf, Clock clock, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        this.emf = emf;
+        this.clock = clock;
+        this.parallelism = parallelism;
+    }
+
+    public Clock getClock() {
+        return this.clock;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * @return the {@link EditionSet}s which could not be applied in the last
+     *         run and the exception of each
+     */
+    public synchronized Map<Long, RuntimeException> getFailures() {
+        return Collections.unmodifiableMap(new LinkedHashMap<Long, RuntimeException>(this.failures));
+    }
+
+    /**
+     * @return the effective times of the {@link EditionSet}s due at the
+     *         current time of the {@link Clock} in ascending order
+     */
+    public List<Long> findDue() {
+        TemporalEntityManager em = TemporalEntityManager.getInstance(this.emf.createEntityManager());
+        try {
+            return findDue(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    private List<Long> findDue(TemporalEntityManager em) {
+        return em.createQuery("SELECT es.effective FROM EditionSet es WHERE es.effective <= :NOW ORDER BY es.effective", Long.class).setParameter("NOW", getClock().currentTime()).getResultList();
+    }
+
+    /**
+     * Apply all {@link EditionSet}s due at the current time.
+     *
+     * @return the effective times of the {@link EditionSet}s applied in
+     *         ascending order, excluding those found already applied by
+     *         another scheduler
+     */
+    public synchronized List<Long> run() {
+        this.failures.clear();
+
+        // Plan the due EditionSets and the continuities each changes
+        Map<Long, Set<List<Object>>> pending = new LinkedHashMap<Long, Set<List<Object>>>();
+        TemporalEntityManager em = TemporalEntityManager.getInstance(this.emf.createEntityManager());
+        try {
+            for (Long effective : findDue(em)) {
+                pending.put(effective, BulkEditionSetOperations.selectContinuities(em, effective));
+            }
+        } finally {
+            em.close();
+        }
+        if (pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Long> applied = new ArrayList<Long>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(getParallelism(), pending.size()));
+        try {
+            CompletionService<Apply> completion = new ExecutorCompletionService<Apply>(executor);
+            Map<Long, Set<List<Object>>> running = new LinkedHashMap<Long, Set<List<Object>>>();
+            Set<List<Object>> failed = new HashSet<List<Object>>();
+
+            while (!pending.isEmpty() || !running.isEmpty()) {
+                start(completion, pending, running, failed);
+                if (running.isEmpty()) {
+                    break;
+                }
+
+                Long effective = null;
+                try {
+                    Future<Apply> done = completion.take();
+                    effective = done.get().effective;
+                    if (done.get().applied) {
+                        applied.add(effective);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof ApplyException)) {
+                        throw new IllegalStateException(e.getCause());
+                    }
+                    ApplyException ae = (ApplyException) e.getCause();
+                    effective = ae.effective;
+                    this.failures.put(effective, (RuntimeException) ae.getCause());
+                    failed.addAll(running.get(effective));
+                }
+                running.remove(effective);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Collections.sort(applied);
+        return applied;
+    }
+
+    /**
+     * Start the pending {@link EditionSet}s, in effective time order, which
+     * do not change a continuity of a running, failed or earlier pending
+     * {@link EditionSet} until the parallelism is reached. Those changing a
+     * continuity of a failed {@link EditionSet} are not applied in this run.
+     */
+    private void start(CompletionService<Apply> completion, Map<Long, Set<List<Object>>> pending, Map<Long, Set<List<Object>>> running, Set<List<Object>> failed) {
+        Set<List<Object>> blocked = new HashSet<List<Object>>(failed);
+        for (Set<List<Object>> continuities : running.values()) {
+            blocked.addAll(continuities);
+        }
+
+        for (Iterator<Map.Entry<Long, Set<List<Object>>>> i = pending.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<Long, Set<List<Object>>> entry = i.next();
+            Set<List<Object>> continuities = entry.getValue();
+
+            if (!Collections.disjoint(failed, continuities)) {
+                i.remove();
+                failed.addAll(continuities);
+            } else if (running.size() < getParallelism() && Collections.disjoint(blocked, continuities)) {
+                i.remove();
+                running.put(entry.getKey(), continuities);
+                completion.submit(new Apply(entry.getKey()));
+            }
+            blocked.addAll(continuities);
+        }
+    }
+
+    /**
+     * Apply the {@link EditionSet} with the effective time in a new
+     * transaction. An {@link EditionSet} which no longer exists has been
+     * applied by another scheduler and is skipped.
+     *
+     * @return <code>false</code> if the {@link EditionSet} was skipped
+     */
+    protected boolean apply(long effective) {
+        TemporalEntityManager em = TemporalEntityManager.getInstance(this.emf.createEntityManager());
+        try {
+            em.getTransaction().begin();
+            EditionSet editionSet = em.find(EditionSet.class, effective, LockModeType.PESSIMISTIC_WRITE);
+            if (editionSet != null) {
+                apply(em, editionSet);
+            }
+            em.getTransaction().commit();
+            return editionSet != null;
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    /**
+     * Apply the locked {@link EditionSet} in the transaction of the
+     * EntityManager.
+     */
+    protected void apply(TemporalEntityManager em, EditionSet editionSet) {
+        em.setEditionSet(editionSet);
+        EditionSetHelper.apply(em, editionSet);
+    }
+
+    /**
+     * Run the scheduler periodically on a background thread until
+     * {@link #stop()} is called. Failures to apply an {@link EditionSet} are
+     * available from {@link #getFailures()} and retried on the next run. Any
+     * other failure of a run is logged with {@link #log(Throwable)}.
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (this.timer != null) {
+            throw new IllegalStateException("EditionSetScheduler already started");
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.timer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    EditionSetScheduler.this.run();
+                } catch (Throwable e) {
+                    // Keep the schedule, the EditionSets are still due
+                    log(e);
+                }
+            }
+        }, 0, period, unit);
+    }
+
+    /**
+     * Log a failure of a periodic run to the session log of the persistence
+     * unit.
+     */
+    protected void log(Throwable throwable) {
+        JpaHelper.getServerSession(this.emf).getSessionLog().logThrowable(SessionLog.SEVERE, throwable);
+    }
+
+    public void stop() {
+        ScheduledExecutorService scheduled;
+        synchronized (this) {
+            scheduled = this.timer;
+            this.timer = null;
+        }
+        if (scheduled != null) {
+            scheduled.shutdown();
+        }
+    }
+
+    public synchronized boolean isStarted() {
+        return this.timer != null;
+    }
+
+    private class Apply implements Callable<Apply> {
+
+        private long effective;
+
+        private boolean applied;
+
+        private Apply(long effective) {
+            this.effective = effective;
+        }
+
+        @Override
+        public Apply call() throws Exception {
+            try {
+                this.applied = apply(this.effective);
+            } catch (RuntimeException e) {
+                throw new ApplyException(this.effective, e);
+            }
+            return this;
+        }
+    }
+
+    private static class ApplyException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private long effective;
+
+        private ApplyException(long effective, RuntimeException cause) {
+            super(cause);
+            this.effective = effective;
+        }
+    }
+
+}
@@ -19,6 +19,8 @@ import javax.persistence.Embeddable;
 
 import org.eclipse.persistence.internal.helper.Helper;
 
+import temporal.persistence.TemporalCloneIndex;
+
 /**
  * Embedded class encompassing the effectivity start and end dates as well as a
  * reference to the continuity. This class is mapped onto temporal entity
@@ -57,6 +59,15 @@ public class Effectivity {
     @Column(name = "END_TS")
     private long end = EOT;
 
+    /**
+     * Index of the persistence context the owner is registered in, notified
+     * when the start or end is set so that changes not yet flushed are
+     * indexed.
+     */
+    private transient TemporalCloneIndex cloneIndex;
+
+    private transient Temporal owner;
+
     public Effectivity() {
     }
 
@@ -66,6 +77,7 @@ public class Effectivity {
 
     public void setStart(long start) {
         this.start = start;
+        reindex();
     }
 
     public long getEnd() {
@@ -74,6 +86,26 @@ public class Effectivity {
 
     public void setEnd(long end) {
         this.end = end;
+        reindex();
+    }
+
+    /**
+     * Set by {@link TemporalCloneIndex} when the owner of this effectivity is
+     * indexed, or cleared with <code>null</code> when it is removed.
+     */
+    public void setCloneIndex(TemporalCloneIndex cloneIndex, Temporal owner) {
+        this.cloneIndex = cloneIndex;
+        this.owner = owner;
+    }
+
+    public TemporalCloneIndex getCloneIndex() {
+        return this.cloneIndex;
+    }
+
+    private void reindex() {
+        if (this.cloneIndex != null) {
+            this.cloneIndex.add(this.owner);
+        }
     }
 
     public boolean isCurrent() {
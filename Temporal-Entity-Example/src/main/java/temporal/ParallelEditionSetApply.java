@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+
+import temporal.persistence.BulkEditionSetOperations;
+
+/**
+ * Apply a large {@link EditionSet} in chunks on a {@link ForkJoinPool}
+ * instead of a single unit of work. The entries are partitioned by the
+ * continuity they change so that all entries of a continuity are in the same
+ * chunk. Each chunk is applied in its own EntityManager and transaction using
+ * {@link EditionSetHelper#copyValues(javax.persistence.EntityManager, EditionSetEntry)}
+ * , after which its editions and entries are deleted. Editions of new
+ * entities, which are their own continuity, and other {@link Temporal}
+ * objects are kept, as with
+ * {@link EditionSetHelper#applyBulk(TemporalEntityManager, EditionSet)}.
+ * <p>
+ * The {@link EditionSet} is only removed once every chunk has committed. If a
+ * chunk fails its transaction is rolled back and its entries remain in the
+ * {@link EditionSet} while those of the committed chunks are applied. Each
+ * continuity is therefore either fully applied or not at all. The
+ * {@link EditionSet} is left in place and an {@link IllegalStateException}
+ * is thrown with the chunk failures. Applying the {@link EditionSet} again
+ * only applies the remaining entries.
+ *
+ * @see EditionSetHelper#applyParallel(EntityManagerFactory, long, int, int)
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class ParallelEditionSetApply {
+
+    private EntityManagerFactory emf;
+
+    private long effective;
+
+    private int chunkSize;
+
+    private int threads;
+
+    public ParallelEditionSetApply(EntityManagerFactory emf, long effective, int chunkSize, int threads) {
+        if (chunkSize < 1 || threads < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize + " or threads: " + threads);
+        }
+        this.emf = emf;
+        this.effective = effective;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    public long getEffective() {
+        return this.effective;
+    }
+
+    /**
+     * Apply the entries of the {@link EditionSet} in chunks and then remove
+     * it.
+     *
+     * @return the number of entries applied
+     * @throws IllegalStateException
+     *             if any chunk failed or entries were added to the
+     *             {@link EditionSet} while it was applied. The
+     *             {@link EditionSet} is not removed.
+     */
+    public int apply() {
+        List<List<Long>> chunks = partition();
+
+        int applied = 0;
+        List<Exception> failures = new ArrayList<Exception>();
+        if (!chunks.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(this.threads, chunks.size()));
+            try {
+                List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(chunks.size());
+                for (final List<Long> chunk : chunks) {
+                    tasks.add(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            applyChunk(chunk);
+                            return chunk.size();
+                        }
+                    });
+                }
+                for (Future<Integer> future : pool.invokeAll(tasks)) {
+                    try {
+                        applied += future.get();
+                    } catch (ExecutionException e) {
+                        failures.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.add(e);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        // The shared cache still holds the entries deleted by the chunks
+        this.emf.getCache().evict(EditionSet.class, this.effective);
+        this.emf.getCache().evict(EditionSetEntry.class);
+
+        if (!failures.isEmpty()) {
+            IllegalStateException ise = new IllegalStateException(failures.size() + " of " + chunks.size() + " chunks of EditionSet at " + Effectivity.timeString(this.effective) + " failed, " + applied + " entries were applied");
+            ise.initCause(failures.get(0));
+            for (int index = 1; index < failures.size(); index++) {
+                ise.addSuppressed(failures.get(index));
+            }
+            throw ise;
+        }
+        complete();
+        return applied;
+    }
+
+    /**
+     * @return the ids of the entries in chunks of up to the chunk size, other
+     *         than for a continuity with more entries, keeping all entries of
+     *         a continuity in the same chunk
+     */
+    protected List<List<Long>> partition() {
+        Map<List<Object>, List<Long>> entries;
+        TemporalEntityManager em = TemporalEntityManager.getInstance(this.emf.createEntityManager());
+        try {
+            entries = BulkEditionSetOperations.selectEntriesByContinuity(em, this.effective);
+        } finally {
+            em.close();
+        }
+
+        List<List<Long>> chunks = new ArrayList<List<Long>>();
+        List<Long> chunk = null;
+        for (List<Long> ids : entries.values()) {
+            if (chunk == null || chunk.size() + ids.size() > this.chunkSize) {
+                chunk = new ArrayList<Long>(this.chunkSize);
+                chunks.add(chunk);
+            }
+            chunk.addAll(ids);
+        }
+        return chunks;
+    }
+
+    /**
+     * Apply the entries in a new transaction. The values of each edition are
+     * copied to its continuity and the edition is removed. The entries are
+     * then deleted without removing the other temporal objects they
+     * reference.
+     */
+    protected void applyChunk(List<Long> entryIds) {
+        TemporalEntityManager em = TemporalEntityManager.getInstance(this.emf.createEntityManager());
+        try {
+            em.getTransaction().begin();
+            em.setEffectiveTime(this.effective);
+
+            List<EditionSetEntry> entries = em.createQuery("SELECT e FROM EditionSetEntry e WHERE e.id IN :IDS", EditionSetEntry.class).setParameter("IDS", entryIds).getResultList();
+            for (EditionSetEntry entry : entries) {
+                if (entry.isTemporalEntity()) {
+                    TemporalEntity<?> edition = entry.getTemporalEntity();
+                    if (edition.getId() != edition.getContinuityId()) {
+                        EditionSetHelper.copyValues(em, entry);
+                        em.remove(edition);
+                    }
+                }
+            }
+            BulkEditionSetOperations.deleteEntries(em, entryIds);
+
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+    /**
+     * Remove the {@link EditionSet} once all of its entries are applied.
+     */
+    protected void complete() {
+        TemporalEntityManager em = TemporalEntityManager.getInstance(this.emf.createEntityManager());
+        try {
+            em.getTransaction().begin();
+            EditionSet editionSet = em.find(EditionSet.class, this.effective, LockModeType.PESSIMISTIC_WRITE);
+            if (editionSet != null) {
+                if (!editionSet.getEntries().isEmpty()) {
+                    throw new IllegalStateException(editionSet.getEntries().size() + " entries added to EditionSet at " + Effectivity.timeString(this.effective) + " while it was applied");
+                }
+                em.remove(editionSet);
+            }
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.close();
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.persistence.queries.ScrollableCursor;
+
+/**
+ * Iterator over the results of a temporal query read through a
+ * {@link ScrollableCursor}. Each result is released from the persistence
+ * context of the cursor's {@link TemporalEntityManager} when the next one is
+ * read so that large results can be processed without growing the heap.
+ * Results that have been changed are not released.
+ * <p>
+ * The cursor's {@link TemporalEntityManager} is set to the query's effective
+ * time so that relationships of the results are read at the same time. It is
+ * closed on {@link #close()}, which is also called when the last result has
+ * been read.
+ *
+ * @see TemporalEntityManager#stream(String, Class, long)
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class TemporalCursor<T> implements Iterator<T> {
+
+    /**
+     * Number of results read between releasing the cursor's own references.
+     */
+    private static final int CLEAR_INTERVAL = 1000;
+
+    private TemporalEntityManager entityManager;
+
+    private ScrollableCursor cursor;
+
+    private Object current;
+
+    private int count = 0;
+
+    private boolean closed = false;
+
+    protected TemporalCursor(TemporalEntityManager entityManager, ScrollableCursor cursor) {
+        this.entityManager = entityManager;
+        this.cursor = cursor;
+    }
+
+    /**
+     * @return the {@link TemporalEntityManager} the results are read in
+     */
+    public TemporalEntityManager getEntityManager() {
+        return this.entityManager;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.closed) {
+            return false;
+        }
+        if (!this.cursor.hasNext()) {
+            close();
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        release();
+        this.current = this.cursor.next();
+        if (++this.count % CLEAR_INTERVAL == 0) {
+            this.cursor.clear();
+        }
+        return (T) this.current;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("TemporalCursor is read-only");
+    }
+
+    /**
+     * Close the underlying cursor and its {@link TemporalEntityManager}.
+     */
+    public void close() {
+        if (!this.closed) {
+            this.closed = true;
+            release();
+            try {
+                this.cursor.close();
+            } finally {
+                this.entityManager.close();
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    private void release() {
+        if (this.current != null) {
+            this.entityManager.release(this.current);
+            this.current = null;
+        }
+    }
+
+}
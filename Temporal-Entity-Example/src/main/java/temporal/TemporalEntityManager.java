@@ -12,34 +12,56 @@
  ******************************************************************************/
 package temporal;
 
-import static temporal.TemporalHelper.NON_TEMPORAL;
 import static temporal.persistence.DescriptorHelper.getClassDescriptor;
 import static temporal.persistence.DescriptorHelper.getEditionDescriptor;
 
-import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.LockModeType;
 import javax.persistence.NoResultException;
+import javax.persistence.Parameter;
 import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaQuery;
 
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
 import org.eclipse.persistence.descriptors.ClassDescriptor;
-import org.eclipse.persistence.internal.descriptors.InstanceVariableAttributeAccessor;
-import org.eclipse.persistence.internal.descriptors.MethodAttributeAccessor;
+import org.eclipse.persistence.expressions.Expression;
+import org.eclipse.persistence.expressions.ExpressionBuilder;
 import org.eclipse.persistence.internal.sessions.AbstractSession;
 import org.eclipse.persistence.internal.sessions.RepeatableWriteUnitOfWork;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
+import org.eclipse.persistence.jpa.JpaEntityManager;
 import org.eclipse.persistence.mappings.AggregateObjectMapping;
-import org.eclipse.persistence.mappings.CollectionMapping;
 import org.eclipse.persistence.mappings.DatabaseMapping;
 import org.eclipse.persistence.queries.DatabaseQuery;
 import org.eclipse.persistence.queries.ObjectLevelReadQuery;
+import org.eclipse.persistence.queries.ReadAllQuery;
+import org.eclipse.persistence.queries.ScrollableCursor;
 import org.eclipse.persistence.sessions.Session;
 import org.eclipse.persistence.sessions.changesets.ObjectChangeSet;
-import org.eclipse.persistence.sessions.changesets.UnitOfWorkChangeSet;
+import org.eclipse.persistence.sessions.server.Server;
 
 import temporal.persistence.AbstractEntityManagerWrapper;
+import temporal.persistence.ConfigureTemporalDescriptors;
+import temporal.persistence.ContinuityBatchLoader;
 import temporal.persistence.DescriptorHelper;
+import temporal.persistence.EditionCache;
+import temporal.persistence.EditionCopyPlan;
+import temporal.persistence.TemporalCloneIndex;
+import temporal.persistence.TemporalQueryCache;
+import temporal.persistence.TemporalResultCache;
 
 /**
  * {@link EntityManager} wrapper that handles edition change tracking with
@@ -62,6 +84,12 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
      */
     public static final String TEMPORAL_EM_PROPERTY = TemporalEntityManager.class.getName();
 
+    /**
+     * Prefix of the parameters bound to the effective times of
+     * {@link #queryAsOf(TypedQuery, long...)}.
+     */
+    private static final String AS_OF_PARAMETER = "AS_OF_";
+
     /**
      * Current effective time for the creation of new editions
      */
@@ -72,6 +100,19 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
      */
     private EditionSet editionSet;
 
+    /**
+     * Index of the {@link Temporal} clones registered in this persistence
+     * context by their effectivity.
+     */
+    private TemporalCloneIndex cloneIndex = new TemporalCloneIndex();
+
+    /**
+     * Queries are executed read-only and no changes are accepted.
+     * 
+     * @see #readOnly(EntityManagerFactory, long)
+     */
+    private boolean readOnly = false;
+
     /**
      * TODO
      * 
@@ -106,15 +147,92 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
         return tem;
     }
 
+    /**
+     * Create a read-only {@link TemporalEntityManager} fixed at the provided
+     * effective time. All queries, including {@link #find(Class, Object)}, are
+     * executed with the {@link QueryHints#READ_ONLY} hint so their results are
+     * read from the session cache and are never registered as clones in the
+     * persistence context. Without any clones there are none to evict when
+     * the effective time is set.
+     * <p>
+     * The results are shared and must not be modified. Any attempt to persist,
+     * merge, remove, refresh, lock or flush, to create new entities and
+     * editions or to begin or join a transaction throws an
+     * {@link UnsupportedOperationException}.
+     */
+    public static TemporalEntityManager readOnly(EntityManagerFactory emf, long effective) {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(EFF_TS_PROPERTY, effective);
+
+        TemporalEntityManager tem = new TemporalEntityManager(emf.createEntityManager(properties));
+        tem.readOnly = true;
+        tem.effective = effective;
+        tem.setProperty(EFF_TS_PROPERTY, effective);
+
+        // Read-only queries are executed in the parent of the unit of work
+        // which must also provide the effective time to the edition criteria
+        // and relationships.
+        tem.getUnitOfWork().getParent().setProperty(EFF_TS_PROPERTY, effective);
+        return tem;
+    }
+
     private TemporalEntityManager(EntityManager em) {
         super(em);
         em.setProperty(TEMPORAL_EM_PROPERTY, this);
     }
 
+    /**
+     * @return <code>true</code> if created using
+     *         {@link #readOnly(EntityManagerFactory, long)}
+     */
+    public boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *             if this is a read-only {@link TemporalEntityManager}
+     */
+    private void checkWritable() {
+        if (isReadOnly()) {
+            throw new UnsupportedOperationException("TemporalEntityManager is read-only: " + this);
+        }
+    }
+
+    /**
+     * Execute the query read-only if this is a read-only
+     * {@link TemporalEntityManager}.
+     */
+    private <Q extends Query> Q applyReadOnly(Q query) {
+        if (isReadOnly()) {
+            query.setHint(QueryHints.READ_ONLY, HintValues.TRUE);
+        }
+        return query;
+    }
+
+    /**
+     * @return the session objects are looked up in. A read-only
+     *         {@link TemporalEntityManager} uses the parent of its unit of
+     *         work so the objects found are not registered.
+     */
+    private AbstractSession getReadSession() {
+        RepeatableWriteUnitOfWork uow = getUnitOfWork();
+        return isReadOnly() ? uow.getParent() : uow;
+    }
+
     private RepeatableWriteUnitOfWork getUnitOfWork() {
         return unwrap(RepeatableWriteUnitOfWork.class);
     }
 
+    /**
+     * @return the index of {@link Temporal} clones in this persistence context
+     *         maintained by the descriptor events configured in
+     *         {@link ConfigureTemporalDescriptors}
+     */
+    public TemporalCloneIndex getCloneIndex() {
+        return this.cloneIndex;
+    }
+
     /**
      * TODO
      * 
@@ -122,27 +240,43 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
      * @throws IllegalStateException
      *             if there are any {@link Temporal} objects with changes
      *             pending.
+     * @throws UnsupportedOperationException
+     *             if this is a read-only {@link TemporalEntityManager} and the
+     *             effective time differs from the one it was created with.
      */
     public void setEffectiveTime(Long startTime) {
+        if (isReadOnly()) {
+            if (startTime == null || startTime.longValue() != this.effective.longValue()) {
+                throw new UnsupportedOperationException("Effective time of a read-only TemporalEntityManager is fixed at: " + this.effective);
+            }
+            return;
+        }
         if (startTime != getEffectiveTime()) {
             RepeatableWriteUnitOfWork uow = getUnitOfWork();
-            UnitOfWorkChangeSet unitOfWorkChangeSet = uow.getUnitOfWorkChangeSet();
+            UnitOfWorkChangeSet unitOfWorkChangeSet = (UnitOfWorkChangeSet) uow.getUnitOfWorkChangeSet();
 
             // Ensure there are no pending changes for any objects in the
-            // current EditionSet
+            // current EditionSet. The changed objects are looked up in the
+            // EditionSet's index rather than scanning all of its entries.
             if (hasEditionSet() && unitOfWorkChangeSet != null && unitOfWorkChangeSet.hasChanges()) {
-                for (EditionSetEntry ese : getEditionSet().getEntries()) {
-                    ObjectChangeSet objectChanges = unitOfWorkChangeSet.getObjectChangeSetForClone(ese.getTemporal());
-                    if (objectChanges != null && objectChanges.hasChanges()) {
-                        throw new IllegalStateException("Changes pending for current EditionSet. You must commit, Rollback, or flush changes before changing effective time");
+                EditionSet es = getEditionSet();
+                for (Object clone : unitOfWorkChangeSet.getCloneToObjectChangeSet().keySet()) {
+                    if (clone instanceof Temporal && es.get((Temporal) clone) != null) {
+                        ObjectChangeSet objectChanges = unitOfWorkChangeSet.getObjectChangeSetForClone(clone);
+                        if (objectChanges != null && objectChanges.hasChanges()) {
+                            throw new IllegalStateException("Changes pending for current EditionSet. You must commit, Rollback, or flush changes before changing effective time");
+                        }
                     }
                 }
             }
 
             // Remove any temporal objects in cache which are not valid for the
-            // provided effective time
-            for (Object object : uow.getCloneMapping().keySet()) {
-                if (object instanceof Temporal && !((Temporal) object).getEffectivity().includes(effective)) {
+            // provided effective time. The clone index provides these without
+            // scanning all of the registered clones.
+            for (Temporal object : getCloneIndex().getExcluded(effective)) {
+                if (!uow.getCloneMapping().containsKey(object)) {
+                    getCloneIndex().remove(object);
+                } else if (!object.getEffectivity().includes(effective)) {
                     if (uow.getUnitOfWorkChangeSet() != null) {
                         ObjectChangeSet ocs = uow.getUnitOfWorkChangeSet().getObjectChangeSetForClone(object);
                         if (ocs != null && ocs.hasChanges()) {
@@ -150,6 +284,7 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
                         }
                     }
                     uow.getIdentityMapAccessor().removeFromIdentityMap(object);
+                    getCloneIndex().remove(object);
                 }
             }
 
@@ -183,6 +318,7 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
      * not created inadvertently.
      */
     public EditionSet getEditionSet() {
+        checkWritable();
         Long effective = getEffectiveTime();
         if (this.editionSet == null && effective != null && effective > Effectivity.BOT) {
             EditionSet es = getEntityManager().find(EditionSet.class, effective);
@@ -227,15 +363,76 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
      *            constructor.
      * @return
      */
-    @SuppressWarnings("unchecked")
     public <T extends TemporalEntity<?>> T newEdition(T sourceEntity) {
+        checkWritable();
         AbstractSession session = getUnitOfWork();
+        EditionSet editionSet = getEditionSetForNewEditions();
+
+        T edition = createEdition(session, editionSet, sourceEntity);
+
+        // Flush the transaction so that any changes made to the new edition are
+        // tracked and the EditionSet can be properly populated at commit.
+        getEntityManager().flush();
+
+        return wrap(session, edition);
+    }
+
+    /**
+     * Create a new edition of each of the provided entities at the effective
+     * time. This is equivalent to calling {@link #newEdition(TemporalEntity)}
+     * for each one except that the persistence context is only flushed once
+     * after all editions are created, allowing the inserts to be batched.
+     * Changes made to the returned editions are tracked for the
+     * {@link EditionSet} as with {@link #newEdition(TemporalEntity)}.
+     * 
+     * @return the new editions in the iteration order of the provided
+     *         entities
+     */
+    public <T extends TemporalEntity<?>> List<T> newEditions(Collection<T> sourceEntities) {
+        checkWritable();
+        AbstractSession session = getUnitOfWork();
+        EditionSet editionSet = getEditionSetForNewEditions();
+
+        List<T> editions = new ArrayList<T>(sourceEntities.size());
+        for (T sourceEntity : sourceEntities) {
+            editions.add(createEdition(session, editionSet, sourceEntity));
+        }
+
+        getEntityManager().flush();
+
+        for (int index = 0; index < editions.size(); index++) {
+            editions.set(index, wrap(session, editions.get(index)));
+        }
+        return editions;
+    }
+
+    /**
+     * Lookup the EditionSet new editions are added to verifying an effective
+     * time is set.
+     */
+    private EditionSet getEditionSetForNewEditions() {
         Long start = getEffectiveTime();
 
         if (start == null || start == Effectivity.BOT) {
             throw new IllegalStateException("Cannot create an eddition without an effective time set");
         }
 
+        // Lookup the EditionSet and throw and exception if one was not created.
+        EditionSet editionSet = getEditionSet();
+        if (editionSet == null) {
+            throw new IllegalStateException("No EditionSet associated with this EntityManager");
+        }
+        return editionSet;
+    }
+
+    /**
+     * Create and persist a new edition of the source entity at the effective
+     * time without flushing.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends TemporalEntity<?>> T createEdition(AbstractSession session, EditionSet editionSet, T sourceEntity) {
+        Long start = getEffectiveTime();
+
         ClassDescriptor descriptor = getClassDescriptor(session, sourceEntity);
         T source = sourceEntity;
         if (descriptor.hasWrapperPolicy() && descriptor.getWrapperPolicy().isWrapped(sourceEntity)) {
@@ -247,19 +444,18 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
             throw new IllegalArgumentException("No edition descriptor for: " + source);
         }
 
-        // Lookup the EditionSet and throw and exception if one was not created.
-        EditionSet editionSet = getEditionSet();
-        if (editionSet == null) {
-            throw new IllegalStateException("No EditionSet associated with this EntityManager");
-        }
-
         TemporalEntity<T> edition = (TemporalEntity<T>) editionDesc.getInstantiationPolicy().buildNewInstance();
         edition.setContinuity((T) source.getContinuity());
         edition.setPreviousEdition(source);
 
         // Copy the mapped values from source to new edition
-        for (DatabaseMapping mapping : editionDesc.getMappings()) {
-            copyValue(session, mapping, source, edition);
+        EditionCopyPlan copyPlan = DescriptorHelper.getCopyPlan(editionDesc);
+        if (copyPlan != null && !overridesCopyValue()) {
+            copyPlan.copy(session, source, edition);
+        } else {
+            for (DatabaseMapping mapping : editionDesc.getMappings()) {
+                copyValue(session, mapping, source, edition);
+            }
         }
 
         edition.getEffectivity().setStart(start);
@@ -270,15 +466,19 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
 
         editionSet.add(edition, true);
 
-        // Flush the transaction so that any changes made to the new edition are
-        // tracked and the EditionSet can be properly populated at commit.
-        getEntityManager().flush();
+        return (T) edition;
+    }
 
-        if (editionDesc.hasWrapperPolicy() && !editionDesc.getWrapperPolicy().isWrapped(edition)) {
-            edition = (TemporalEntity<T>) editionDesc.getWrapperPolicy().wrapObject(edition, session);
+    /**
+     * Wrap the new entity or edition if its descriptor has a wrapper policy.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T wrap(AbstractSession session, T entity) {
+        ClassDescriptor descriptor = session.getClassDescriptor(entity);
+        if (descriptor.hasWrapperPolicy() && !descriptor.getWrapperPolicy().isWrapped(entity)) {
+            return (T) descriptor.getWrapperPolicy().wrapObject(entity, session);
         }
-
-        return (T) edition;
+        return entity;
     }
 
     /**
@@ -297,6 +497,7 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
      */
     @SuppressWarnings("unchecked")
     public <T extends Temporal> T newTemporal(Class<T> temporalClass) {
+        checkWritable();
         AbstractSession session = getEntityManager().unwrap(RepeatableWriteUnitOfWork.class);
         Long start = getEffectiveTime();
         ClassDescriptor descriptor = session.getClassDescriptor(temporalClass);
@@ -348,23 +549,78 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
      *            the edition or current class
      * @return the new edition entity
      */
-    @SuppressWarnings("unchecked")
     public <T extends TemporalEntity<?>> T newEntity(Class<T> entityClass) {
+        checkWritable();
         AbstractSession session = getEntityManager().unwrap(RepeatableWriteUnitOfWork.class);
-        Long start = getEffectiveTime();
+        ClassDescriptor descriptor = getNewEntityDescriptor(session, entityClass);
+        EditionSet editionSet = getEditionSetForNewEntities();
+
+        T entity = createEntity(descriptor, editionSet);
+
+        getEntityManager().flush();
+
+        return wrap(session, entity);
+    }
+
+    /**
+     * Create the requested number of new entities. This is equivalent to
+     * calling {@link #newEntity(Class)} repeatedly except that the persistence
+     * context is only flushed once after all entities are created, allowing
+     * the inserts to be batched.
+     */
+    public <T extends TemporalEntity<?>> List<T> newEntities(Class<T> entityClass, int count) {
+        checkWritable();
+        AbstractSession session = getEntityManager().unwrap(RepeatableWriteUnitOfWork.class);
+        ClassDescriptor descriptor = getNewEntityDescriptor(session, entityClass);
+        EditionSet editionSet = getEditionSetForNewEntities();
+
+        List<T> entities = new ArrayList<T>(count);
+        for (int index = 0; index < count; index++) {
+            T entity = createEntity(descriptor, editionSet);
+            entities.add(entity);
+        }
+
+        getEntityManager().flush();
+
+        for (int index = 0; index < entities.size(); index++) {
+            entities.set(index, wrap(session, entities.get(index)));
+        }
+        return entities;
+    }
+
+    /**
+     * @return the current descriptor or, if an effective time is set, the
+     *         edition descriptor new entities of the class are created with
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends TemporalEntity<?>> ClassDescriptor getNewEntityDescriptor(AbstractSession session, Class<T> entityClass) {
         ClassDescriptor descriptor = session.getClassDescriptor(entityClass);
 
-        if (start != null) {
+        if (hasEffectiveTime()) {
             descriptor = getEditionDescriptor(session, (Class<TemporalEntity<T>>) entityClass);
         }
         if (descriptor == null) {
             throw new IllegalArgumentException("No descriptor for: " + entityClass);
         }
+        return descriptor;
+    }
+
+    private EditionSet getEditionSetForNewEntities() {
         // Lookup the EditionSet and throw and exception if one was not created.
         EditionSet editionSet = getEditionSet();
-        if (editionSet == null && start != null) {
+        if (editionSet == null && hasEffectiveTime()) {
             throw new IllegalStateException("No EditionSet associated with this EntityManager");
         }
+        return editionSet;
+    }
+
+    /**
+     * Create and persist a new entity, which is its own continuity, without
+     * flushing.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends TemporalEntity<?>> T createEntity(ClassDescriptor descriptor, EditionSet editionSet) {
+        Long start = getEffectiveTime();
 
         TemporalEntity<T> edition = (TemporalEntity<T>) descriptor.getInstantiationPolicy().buildNewInstance();
         edition.setContinuity((T) edition);
@@ -379,57 +635,36 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
             editionSet.add(edition, true);
         }
 
-        getEntityManager().flush();
-
-        if (descriptor.hasWrapperPolicy() && !descriptor.getWrapperPolicy().isWrapped(edition)) {
-            edition = (TemporalEntity<T>) descriptor.getWrapperPolicy().wrapObject(edition, session);
-        }
-
         return (T) edition;
     }
 
     /**
      * Copy mapped value from source to new edition. This copies the real
-     * attribute value.
+     * attribute value. Editions are copied with the {@link EditionCopyPlan} of
+     * their descriptor unless this method is overridden, in which case it is
+     * called for every mapping of the edition descriptor.
+     * 
+     * @see EditionCopyPlan#copyValue(AbstractSession, DatabaseMapping,
+     *      TemporalEntity, TemporalEntity)
      */
     protected void copyValue(AbstractSession session, DatabaseMapping mapping, TemporalEntity<?> source, TemporalEntity<?> target) {
-        if (mapping.getAttributeName().equals("effectivity")) {
-            return;
-        }
-
-        String nonTemporal = (String) mapping.getProperty(NON_TEMPORAL);
-        if (nonTemporal != null && Boolean.valueOf(nonTemporal)) {
-            return;
-        }
-
-        TemporalEntity<?> unwrappedSource = source;
-        if (mapping.getDescriptor().hasWrapperPolicy() && mapping.getDescriptor().getWrapperPolicy().isWrapped(unwrappedSource)) {
-            unwrappedSource = (TemporalEntity<?>) mapping.getDescriptor().getWrapperPolicy().unwrapObject(unwrappedSource, session);
-        }
-
-        Member member = null;
-
-        if (mapping.getAttributeAccessor().isInstanceVariableAttributeAccessor()) {
-            member = ((InstanceVariableAttributeAccessor) mapping.getAttributeAccessor()).getAttributeField();
-        } else {
-            member = ((MethodAttributeAccessor) mapping.getAttributeAccessor()).getGetMethod();
-        }
-        if (member.getDeclaringClass().equals(BaseEntity.class)) {
-            return;
-        }
-
-        Object value = mapping.getRealAttributeValueFromObject(unwrappedSource, session);
-
-        if (mapping.isCollectionMapping()) {
-            value = ((CollectionMapping) mapping).getContainerPolicy().cloneFor(value);
-        }
+        EditionCopyPlan.copyValue(session, mapping, source, target);
+    }
 
-        Object unwrappedTarget = target;
-        if (mapping.getDescriptor().hasWrapperPolicy() && mapping.getDescriptor().getWrapperPolicy().isWrapped(unwrappedTarget)) {
-            unwrappedTarget = (TemporalEntity<?>) mapping.getDescriptor().getWrapperPolicy().unwrapObject(unwrappedTarget, session);
+    /**
+     * @return <code>true</code> if a subclass overrides
+     *         {@link #copyValue(AbstractSession, DatabaseMapping, TemporalEntity, TemporalEntity)}
+     */
+    private boolean overridesCopyValue() {
+        for (Class<?> type = getClass(); type != TemporalEntityManager.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("copyValue", AbstractSession.class, DatabaseMapping.class, TemporalEntity.class, TemporalEntity.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Not declared by this class
+            }
         }
-
-        mapping.setRealAttributeValueInObject(unwrappedTarget, value);
+        return false;
     }
 
     /**
@@ -469,6 +704,14 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
     /**
      * TODO: Remove this method when em.find works on either current or edition
      * based on temporal effectivity of EntityManager
+     * <p>
+     * When an effective time is set the persistence context is first checked
+     * for an edition of the continuity valid at that time using the
+     * {@link TemporalCloneIndex} and then the shared cache using the
+     * {@link EditionCache}. The edition's find query is only executed on a
+     * miss. A read-only {@link TemporalEntityManager} has no clones so only
+     * the shared cache is checked and non-temporal entities are found
+     * read-only.
      */
     @Override
     @SuppressWarnings("unchecked")
@@ -477,6 +720,20 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
             RepeatableWriteUnitOfWork uow = getUnitOfWork();
             ClassDescriptor descriptor = DescriptorHelper.getEditionDescriptor(uow, entityClass);
 
+            if (primaryKey instanceof Number) {
+                int continuityId = ((Number) primaryKey).intValue();
+                TemporalEntity<?> edition = null;
+                if (!isReadOnly()) {
+                    edition = getCloneIndex().getEdition(descriptor.getJavaClass(), continuityId, getEffectiveTime());
+                }
+                if (edition == null || !uow.getCloneMapping().containsKey(edition)) {
+                    edition = getCachedEdition(getReadSession(), descriptor, continuityId);
+                }
+                if (edition != null) {
+                    return (T) edition;
+                }
+            }
+
             Query query = createNamedQuery(descriptor.getAlias() + ".find");
             query.setParameter("ID", primaryKey);
 
@@ -487,9 +744,32 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
             }
         }
 
+        if (isReadOnly()) {
+            Map<String, Object> properties = new HashMap<String, Object>();
+            properties.put(QueryHints.READ_ONLY, HintValues.TRUE);
+            return (T) super.find(entityClass, primaryKey, properties);
+        }
         return (T) super.find(entityClass, primaryKey);
     }
 
+    /**
+     * Lookup the edition of the continuity valid at the effective time in the
+     * shared cache. The {@link EditionCache} may be stale so the effectivity of
+     * the edition read from the shared cache is verified.
+     */
+    private TemporalEntity<?> getCachedEdition(AbstractSession session, ClassDescriptor descriptor, int continuityId) {
+        EditionCache editionCache = DescriptorHelper.getEditionCache(descriptor);
+        Object pk = editionCache == null ? null : editionCache.getPrimaryKey(continuityId, getEffectiveTime());
+        if (pk == null) {
+            return null;
+        }
+        TemporalEntity<?> edition = (TemporalEntity<?>) session.getIdentityMapAccessor().getFromIdentityMap(pk, descriptor.getJavaClass());
+        if (edition != null && edition.getContinuityId() == continuityId && edition.getEffectivity().includes(getEffectiveTime())) {
+            return edition;
+        }
+        return null;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> T unwrap(Class<T> clazz) {
@@ -502,25 +782,404 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
         return getEntityManager().unwrap(clazz);
     }
 
+    /**
+     * Create a JPQL query redirected to the current or edition type based on
+     * the effective time. The parsed query is cached per temporal mode in the
+     * {@link TemporalQueryCache} so the JPQL is only parsed on a cache miss.
+     */
     @Override
     public Query createQuery(String qlString) {
-        Query query = super.createQuery(qlString);
-        updateTemporalQuery(query);
-        return query;
+        Query query = getCachedQuery(qlString, null);
+        if (query == null) {
+            query = super.createQuery(qlString);
+            cacheQuery(qlString, null, query);
+        }
+        return applyReadOnly(query);
     }
 
+    /**
+     * Create a typed JPQL query redirected to the current or edition type
+     * based on the effective time. Typed queries are cached separately per
+     * result class.
+     */
     @Override
     public <T> TypedQuery<T> createQuery(String qlString, Class<T> resultClass) {
-        TypedQuery<T> query = super.createQuery(qlString, resultClass);
+        TypedQuery<T> query = getCachedQuery(qlString, resultClass);
+        if (query == null) {
+            query = super.createQuery(qlString, resultClass);
+            cacheQuery(qlString, resultClass, query);
+        }
+        return applyReadOnly(query);
+    }
+
+    /**
+     * @return a query executing a copy of the query cached for the JPQL,
+     *         result class and temporal mode or <code>null</code> on a cache
+     *         miss
+     */
+    @SuppressWarnings("unchecked")
+    private <T> TypedQuery<T> getCachedQuery(String qlString, Class<T> resultClass) {
+        TemporalQueryCache queryCache = TemporalQueryCache.getInstance(unwrap(Server.class));
+        if (queryCache == null) {
+            return null;
+        }
+        String mode = hasEffectiveTime() ? DescriptorHelper.EDITION : DescriptorHelper.CURRENT;
+        DatabaseQuery cachedQuery = queryCache.get(qlString, resultClass, mode);
+        if (cachedQuery == null) {
+            return null;
+        }
+        // The queries of EclipseLink's EntityManager are typed queries
+        return (TypedQuery<T>) unwrap(JpaEntityManager.class).createQuery(cachedQuery);
+    }
+
+    /**
+     * Redirect the new query to its temporal type and cache it for the JPQL,
+     * result class and temporal mode.
+     */
+    private void cacheQuery(String qlString, Class<?> resultClass, Query query) {
         updateTemporalQuery(query);
-        return query;
+
+        Server server = unwrap(Server.class);
+        TemporalQueryCache queryCache = TemporalQueryCache.getInstance(server);
+        if (queryCache != null) {
+            DatabaseQuery elQuery = query.unwrap(DatabaseQuery.class);
+            String mode = hasEffectiveTime() ? DescriptorHelper.EDITION : DescriptorHelper.CURRENT;
+            if (isEditionView(elQuery)) {
+                mode = DescriptorHelper.EDITION_VIEW;
+            }
+            queryCache.put(qlString, resultClass, mode, elQuery, server);
+        }
     }
 
     @Override
     public <T> TypedQuery<T> createQuery(CriteriaQuery<T> criteriaQuery) {
         TypedQuery<T> query = super.createQuery(criteriaQuery);
         updateTemporalQuery(query);
-        return query;
+        return applyReadOnly(query);
+    }
+
+    @Override
+    public Query createNamedQuery(String name) {
+        return applyReadOnly(super.createNamedQuery(name));
+    }
+
+    @Override
+    public <T> TypedQuery<T> createNamedQuery(String name, Class<T> resultClass) {
+        return applyReadOnly(super.createNamedQuery(name, resultClass));
+    }
+
+    /**
+     * Native SQL is not redirected to the temporal types and cannot be
+     * restricted to reads so it is not supported by a read-only
+     * {@link TemporalEntityManager}.
+     * 
+     * @throws UnsupportedOperationException
+     *             if this is a read-only {@link TemporalEntityManager}
+     */
+    @Override
+    public Query createNativeQuery(String sqlString) {
+        checkWritable();
+        return super.createNativeQuery(sqlString);
+    }
+
+    /**
+     * @see #createNativeQuery(String)
+     */
+    @Override
+    public Query createNativeQuery(String sqlString, @SuppressWarnings("rawtypes") Class resultClass) {
+        checkWritable();
+        return super.createNativeQuery(sqlString, resultClass);
+    }
+
+    /**
+     * @see #createNativeQuery(String)
+     */
+    @Override
+    public Query createNativeQuery(String sqlString, String resultSetMapping) {
+        checkWritable();
+        return super.createNativeQuery(sqlString, resultSetMapping);
+    }
+
+    /**
+     * Add a named {@link TemporalFetchPlan} to the persistence unit, replacing
+     * any plan with the same name. Plans are shared by all EntityManagers of
+     * the persistence unit.
+     */
+    public void addFetchPlan(TemporalFetchPlan plan) {
+        getFetchPlans().put(plan.getName(), plan);
+    }
+
+    /**
+     * @return the named plan or <code>null</code> if none has been added
+     */
+    public TemporalFetchPlan getFetchPlan(String name) {
+        return getFetchPlans().get(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, TemporalFetchPlan> getFetchPlans() {
+        Map<String, TemporalFetchPlan> plans = (Map<String, TemporalFetchPlan>) unwrap(Server.class).getProperty(TemporalFetchPlan.PROPERTY);
+        if (plans == null) {
+            throw new IllegalStateException("Fetch plans are not configured for: " + unwrap(Server.class).getName());
+        }
+        return plans;
+    }
+
+    /**
+     * Create a JPQL query reading the relationships of the named
+     * {@link TemporalFetchPlan} with its results. The alias of the selected
+     * root is not used by the plan.
+     */
+    public <T> TypedQuery<T> createQuery(String qlString, Class<T> resultClass, String fetchPlan) {
+        TemporalFetchPlan plan = getFetchPlan(fetchPlan);
+        if (plan == null) {
+            throw new IllegalArgumentException("No fetch plan named: " + fetchPlan);
+        }
+        return plan.apply(createQuery(qlString, resultClass), getUnitOfWork());
+    }
+
+    /**
+     * Find the entity, or its edition at the effective time, along with the
+     * relationships of the named {@link TemporalFetchPlan}. The caches are not
+     * checked since the related editions would still be read one at a time.
+     */
+    public <T> T find(Class<T> entityClass, Object primaryKey, String fetchPlan) {
+        ClassDescriptor descriptor = DescriptorHelper.getCurrentDescriptor(getUnitOfWork(), entityClass);
+        TypedQuery<T> query = createQuery("SELECT e FROM " + descriptor.getAlias() + " e WHERE e.id = :ID", entityClass, fetchPlan);
+        query.setParameter("ID", primaryKey);
+
+        try {
+            return query.getSingleResult();
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
+
+    /**
+     * Execute a JPQL query selecting a {@link TemporalEntity} type as of each
+     * of the provided effective times using a single SQL statement.
+     * 
+     * @see #queryAsOf(TypedQuery, long...)
+     * @return the results for each effective time in the order provided
+     */
+    public <T> Map<Long, List<T>> queryAsOf(String qlString, Class<T> resultClass, long... effectiveTimes) {
+        return queryAsOf(super.createQuery(qlString, resultClass), effectiveTimes);
+    }
+
+    /**
+     * Execute a JPQL query selecting a {@link TemporalEntity} type as of each
+     * of the provided effective times using a single SQL statement. The query
+     * is run against the edition view type with criteria selecting the editions
+     * whose effectivity includes any of the times. The values bound to the
+     * parameters of the provided query are used and the times are bound as
+     * additional parameters. Each edition is read once and added to the
+     * results of every time it covers.
+     * <p>
+     * The effective time of this EntityManager is not changed so its clones
+     * are not evicted. The relationships of the returned editions are not
+     * restricted to an effective time.
+     * 
+     * @param query
+     *            JPQL query created by this EntityManager with its parameters
+     *            bound, which is not executed
+     * @return the results for each effective time in the order provided
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Map<Long, List<T>> queryAsOf(TypedQuery<T> query, long... effectiveTimes) {
+        Map<Long, List<T>> results = new LinkedHashMap<Long, List<T>>();
+        for (long effective : effectiveTimes) {
+            results.put(effective, new ArrayList<T>());
+        }
+        if (effectiveTimes.length == 0) {
+            return results;
+        }
+        long[] instants = effectiveTimes.clone();
+        Arrays.sort(instants);
+
+        // The query is parsed again so the criteria of an unprepared query
+        // are rewritten
+        String qlString = query.unwrap(DatabaseQuery.class).getJPQLString();
+        if (qlString == null) {
+            throw new IllegalArgumentException("As of queries must be JPQL queries: " + query);
+        }
+        DatabaseQuery elQuery = super.createQuery(qlString).unwrap(DatabaseQuery.class);
+        if (!elQuery.isReadAllQuery() || elQuery.isReportQuery() || !TemporalHelper.isTemporalEntity(elQuery.getReferenceClass())) {
+            throw new IllegalArgumentException("As of queries must select a TemporalEntity type: " + qlString);
+        }
+        ReadAllQuery raq = (ReadAllQuery) elQuery;
+        ClassDescriptor descriptor = DescriptorHelper.getEditionViewDescriptor(getUnitOfWork(), raq.getReferenceClass());
+        raq.setReferenceClass(descriptor.getJavaClass());
+        raq.setDescriptor(descriptor);
+
+        // (start <= :AS_OF_0 AND end > :AS_OF_0) OR (start <= :AS_OF_1 ...
+        Expression criteria = raq.getSelectionCriteria();
+        ExpressionBuilder eb = criteria == null ? raq.getExpressionBuilder() : criteria.getBuilder();
+        Expression startExp = eb.get("effectivity").get("start");
+        Expression endExp = eb.get("effectivity").get("end");
+        Expression instantsExp = null;
+        Map<String, Long> instantParameters = new LinkedHashMap<String, Long>();
+        for (int index = 0; index < instants.length; index++) {
+            if (index > 0 && instants[index] == instants[index - 1]) {
+                continue;
+            }
+            String name = AS_OF_PARAMETER + instantParameters.size();
+            instantParameters.put(name, instants[index]);
+            raq.addArgument(name, Long.class);
+            Expression instantExp = startExp.lessThanEqual(eb.getParameter(name)).and(endExp.greaterThan(eb.getParameter(name)));
+            instantsExp = instantsExp == null ? instantExp : instantsExp.or(instantExp);
+        }
+        raq.setSelectionCriteria(criteria == null ? instantsExp : criteria.and(instantsExp));
+
+        Query asOfQuery = applyReadOnly(unwrap(JpaEntityManager.class).createQuery(raq));
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (query.isBound(parameter)) {
+                if (parameter.getName() != null) {
+                    asOfQuery.setParameter(parameter.getName(), query.getParameterValue(parameter));
+                } else {
+                    asOfQuery.setParameter(parameter.getPosition(), query.getParameterValue(parameter));
+                }
+            }
+        }
+        for (Map.Entry<String, Long> parameter : instantParameters.entrySet()) {
+            asOfQuery.setParameter(parameter.getKey(), parameter.getValue());
+        }
+
+        for (Object result : asOfQuery.getResultList()) {
+            Effectivity effectivity = ((Temporal) result).getEffectivity();
+            int index = Arrays.binarySearch(instants, effectivity.getStart());
+            if (index < 0) {
+                index = -index - 1;
+            }
+            // Move back to the first of any duplicate times
+            while (index > 0 && instants[index - 1] == effectivity.getStart()) {
+                index--;
+            }
+            for (; index < instants.length && instants[index] < effectivity.getEnd(); index++) {
+                List<T> instantResults = results.get(instants[index]);
+                if (instantResults.isEmpty() || instantResults.get(instantResults.size() - 1) != result) {
+                    instantResults.add((T) result);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Execute the query using the {@link TemporalResultCache} if it has been
+     * enabled for the persistence unit. Results cached by any EntityManager for
+     * the same JPQL, parameter values and effective time are read from the
+     * shared cache without executing the query. Queries not returning
+     * {@link TemporalEntity} instances are always executed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getCachedResultList(Query query) {
+        TemporalResultCache resultCache = TemporalResultCache.getInstance(unwrap(Server.class));
+        DatabaseQuery elQuery = query.unwrap(DatabaseQuery.class);
+
+        if (resultCache == null || !resultCache.isEnabled() || !elQuery.isReadAllQuery() || elQuery.isReportQuery() || !TemporalHelper.isTemporalEntity(elQuery.getReferenceClass())) {
+            return query.getResultList();
+        }
+        List<Object> key = resultCache.buildKey(query, getEffectiveTime());
+        if (key == null) {
+            return query.getResultList();
+        }
+
+        AbstractSession session = getReadSession();
+        List<T> results = (List<T>) resultCache.get(key, session);
+        if (results == null) {
+            // Results of a query running while a commit invalidates them are
+            // not cached
+            ClassDescriptor currentDesc = DescriptorHelper.getCurrentDescriptor(session, elQuery.getReferenceClass());
+            long generation = resultCache.getGeneration(currentDesc);
+            results = query.getResultList();
+            resultCache.put(key, currentDesc, generation, results, session);
+        }
+        return results;
+    }
+
+    /**
+     * Execute a JPQL query at the provided effective time reading the results
+     * through a {@link ScrollableCursor}. The query is executed by a new
+     * {@link TemporalEntityManager} of the same factory set to the effective
+     * time. The EFF_TS binding of the edition additional criteria and
+     * relationships is therefore kept while the cursor is open without
+     * changing the effective time, {@link EditionSet} or persistence context
+     * of this EntityManager. Each result is released from the cursor's
+     * persistence context when the next one is read, unless it has been
+     * changed. Changes can be written in a transaction of
+     * {@link TemporalCursor#getEntityManager()} before the cursor is closed.
+     * The returned {@link TemporalCursor} should be closed if not read to the
+     * end.
+     */
+    public <T> TemporalCursor<T> stream(String qlString, Class<T> resultClass, long effective) {
+        TemporalEntityManager em;
+        if (isReadOnly()) {
+            em = readOnly(getEntityManagerFactory(), effective);
+        } else {
+            em = getInstance(getEntityManagerFactory().createEntityManager());
+            em.setEffectiveTime(effective);
+        }
+        try {
+            Query query = em.createQuery(qlString, resultClass);
+            query.setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE);
+            return new TemporalCursor<T>(em, (ScrollableCursor) query.getSingleResult());
+        } catch (RuntimeException e) {
+            em.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Remove an object read by this EntityManager from its persistence context
+     * so it can be garbage collected. Objects with pending changes are not
+     * released.
+     */
+    protected void release(Object entity) {
+        RepeatableWriteUnitOfWork uow = getUnitOfWork();
+        if (hasPendingChanges(uow, entity)) {
+            return;
+        }
+        uow.getIdentityMapAccessor().removeFromIdentityMap(entity);
+        uow.getCloneMapping().remove(entity);
+        getCloneIndex().remove(entity);
+    }
+
+    /**
+     * @return <code>true</code> if the clone is new, removed or changed since
+     *         it was read or last flushed. The change set of the unit of work
+     *         is only calculated on flush so the changes of the clone are
+     *         calculated here.
+     */
+    private boolean hasPendingChanges(RepeatableWriteUnitOfWork uow, Object clone) {
+        if (uow.isCloneNewObject(clone) || uow.isObjectDeleted(clone)) {
+            return true;
+        }
+        ClassDescriptor descriptor = uow.getDescriptor(clone);
+        if (descriptor == null) {
+            return false;
+        }
+        ObjectChangeSet changes = descriptor.getObjectChangePolicy().calculateChangesForExistingObject(clone, new UnitOfWorkChangeSet(uow), uow, descriptor, false);
+        return changes != null && changes.hasChanges();
+    }
+
+    /**
+     * Stream all editions of a continuity ordered by their start time. The
+     * editions are read in pages of the provided size using the
+     * <code>&lt;alias&gt;EditionView.history</code> query configured by
+     * {@link ConfigureTemporalDescriptors}. They are read-only and are not
+     * registered in this EntityManager.
+     */
+    public <T extends TemporalEntity<?>> Iterator<T> getHistory(Class<T> entityClass, int continuityId, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+        RepeatableWriteUnitOfWork uow = getUnitOfWork();
+        ClassDescriptor descriptor = DescriptorHelper.getEditionViewDescriptor(uow, entityClass);
+        if (descriptor == null) {
+            throw new IllegalArgumentException("No edition view descriptor for: " + entityClass);
+        }
+        ReadAllQuery query = (ReadAllQuery) uow.getQuery(descriptor.getAlias() + ".history");
+        return new EditionHistory<T>(uow, query, continuityId, pageSize);
     }
 
     /**
@@ -538,8 +1197,32 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
         }
     }
 
+    /**
+     * @return <code>true</code> if the query targets an edition view type
+     *         directly and so is never redirected.
+     */
+    private boolean isEditionView(DatabaseQuery elQuery) {
+        ClassDescriptor descriptor = elQuery.getDescriptor();
+        return descriptor != null && descriptor == descriptor.getProperty(DescriptorHelper.EDITION_VIEW);
+    }
+
+    @Override
+    public void persist(Object entity) {
+        checkWritable();
+        super.persist(entity);
+    }
+
+    @Override
+    public <T> T merge(T entity) {
+        checkWritable();
+        return super.merge(entity);
+    }
+
     @Override
     public void remove(Object entity) {
+        checkWritable();
+        getCloneIndex().remove(entity);
+
         if (entity instanceof Temporal && hasEditionSet()) {
             EditionSetEntry ese = getEditionSet().remove((Temporal) entity);
             if (ese != null) {
@@ -551,6 +1234,7 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
                 if (ese.isTemporalEntity()) {
                     ese.getTemporalEntity().setContinuity(null);
                 }
+                getCloneIndex().remove(ese.getTemporal());
                 super.remove(ese.getTemporal());
             }
             super.remove(es);
@@ -563,13 +1247,128 @@ public class TemporalEntityManager extends AbstractEntityManagerWrapper {
         super.remove(entity);
     }
 
+    @Override
+    public void flush() {
+        checkWritable();
+        super.flush();
+    }
+
+    @Override
+    public void refresh(Object entity) {
+        checkWritable();
+        super.refresh(entity);
+    }
+
+    @Override
+    public void refresh(Object entity, Map<String, Object> properties) {
+        checkWritable();
+        super.refresh(entity, properties);
+    }
+
+    @Override
+    public void refresh(Object entity, LockModeType lockModeType) {
+        checkWritable();
+        super.refresh(entity, lockModeType);
+    }
+
+    @Override
+    public void refresh(Object entity, LockModeType lockModeType, Map<String, Object> properties) {
+        checkWritable();
+        super.refresh(entity, lockModeType, properties);
+    }
+
+    @Override
+    public void lock(Object entity, LockModeType lockModeType) {
+        checkWritable();
+        super.lock(entity, lockModeType);
+    }
+
+    @Override
+    public void lock(Object entity, LockModeType lockModeType, Map<String, Object> properties) {
+        checkWritable();
+        super.lock(entity, lockModeType, properties);
+    }
+
+    @Override
+    public void joinTransaction() {
+        checkWritable();
+        super.joinTransaction();
+    }
+
+    /**
+     * A read-only {@link TemporalEntityManager} returns a transaction which
+     * can not be begun.
+     */
+    @Override
+    public EntityTransaction getTransaction() {
+        if (isReadOnly()) {
+            return new ReadOnlyTransaction(super.getTransaction());
+        }
+        return super.getTransaction();
+    }
+
     @Override
     public void clear() {
         super.clear();
-        setEffectiveTime(null);
+        getCloneIndex().clear();
+        ContinuityBatchLoader.clear(getUnitOfWork());
+        if (!isReadOnly()) {
+            setEffectiveTime(null);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (isOpen()) {
+            ContinuityBatchLoader.clear(getUnitOfWork());
+        }
+        super.close();
     }
 
     public String toString() {
         return "TemporalEntityManager@" + getEffectiveTime() + "[" + getEntityManager() + "]";
     }
+
+    /**
+     * Transaction of a read-only {@link TemporalEntityManager} which throws an
+     * {@link UnsupportedOperationException} when begun.
+     */
+    private class ReadOnlyTransaction implements EntityTransaction {
+
+        private EntityTransaction transaction;
+
+        private ReadOnlyTransaction(EntityTransaction transaction) {
+            this.transaction = transaction;
+        }
+
+        @Override
+        public void begin() {
+            checkWritable();
+        }
+
+        @Override
+        public void commit() {
+            this.transaction.commit();
+        }
+
+        @Override
+        public void rollback() {
+            this.transaction.rollback();
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            this.transaction.setRollbackOnly();
+        }
+
+        @Override
+        public boolean getRollbackOnly() {
+            return this.transaction.getRollbackOnly();
+        }
+
+        @Override
+        public boolean isActive() {
+            return this.transaction.isActive();
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.Query;
+
+import org.eclipse.persistence.annotations.BatchFetchType;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.sessions.Session;
+
+import temporal.persistence.DescriptorHelper;
+
+/**
+ * Named plan of the relationships loaded with the roots of a temporal query.
+ * Single valued relationships are outer joined into the query reading the
+ * roots and collections are batch read with one IN query each. Each plan
+ * therefore reads a graph in one statement plus one per collection regardless
+ * of the number of roots.
+ * <p>
+ * At an effective time the related types are editions. The effectivity
+ * criteria of a joined edition is its descriptor's additional criteria, which
+ * EclipseLink places in the ON clause of the outer join so roots without a
+ * related edition valid at EFF_TS are still returned. The batch queries use
+ * the mapping's selection criteria, including any EFF_TS range, with the
+ * effective time of the session.
+ * 
+ * @see TemporalEntityManager#addFetchPlan(TemporalFetchPlan)
+ * @see TemporalEntityManager#createQuery(String, Class, String)
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class TemporalFetchPlan {
+
+    /**
+     * Session property holding the plans of a persistence unit by name.
+     */
+    public static final String PROPERTY = TemporalFetchPlan.class.getName();
+
+    private String name;
+
+    private Class<?> rootClass;
+
+    private List<String> attributes;
+
+    public TemporalFetchPlan(String name, Class<?> rootClass, String... attributes) {
+        this.name = name;
+        this.rootClass = rootClass;
+        this.attributes = Collections.unmodifiableList(new ArrayList<String>(Arrays.asList(attributes)));
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public Class<?> getRootClass() {
+        return this.rootClass;
+    }
+
+    public List<String> getAttributes() {
+        return this.attributes;
+    }
+
+    /**
+     * Add the join fetch and batch hints of this plan to a query reading the
+     * root type or its edition.
+     */
+    public <Q extends Query> Q apply(Q query, Session session) {
+        ClassDescriptor descriptor = DescriptorHelper.getCurrentDescriptor(session, getRootClass());
+        boolean batched = false;
+
+        for (String attribute : getAttributes()) {
+            DatabaseMapping mapping = descriptor.getMappingForAttributeName(attribute);
+            if (mapping == null || !(mapping.isForeignReferenceMapping() || mapping.isDirectCollectionMapping())) {
+                throw new IllegalArgumentException("Fetch plan " + getName() + " attribute is not a relationship of " + getRootClass().getName() + ": " + attribute);
+            }
+            if (mapping.isCollectionMapping()) {
+                query.setHint(QueryHints.BATCH, "e." + attribute);
+                batched = true;
+            } else {
+                query.setHint(QueryHints.LEFT_FETCH, "e." + attribute);
+            }
+        }
+        if (batched) {
+            query.setHint(QueryHints.BATCH_TYPE, BatchFetchType.IN);
+        }
+        return query;
+    }
+
+    @Override
+    public String toString() {
+        return "TemporalFetchPlan(" + getName() + ": " + getRootClass().getSimpleName() + getAttributes() + ")";
+    }
+
+}
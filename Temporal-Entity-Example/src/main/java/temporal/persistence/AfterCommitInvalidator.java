@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * Run shared cache invalidations registered by statements executed in a
+ * transaction once it commits. Invalidating before the commit would let other
+ * EntityManagers cache the previous state again from the database while the
+ * transaction is still open. The invalidations of a rolled back transaction
+ * are discarded.
+ *
+ * @see BulkEditionSetOperations
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class AfterCommitInvalidator extends SessionEventAdapter {
+
+    /**
+     * Unit of work property holding the invalidations not yet run.
+     */
+    private static final String PENDING = AfterCommitInvalidator.class.getName();
+
+    /**
+     * Register the invalidation to run after the unit of work's transaction
+     * commits.
+     */
+    @SuppressWarnings("unchecked")
+    public static void invalidateAfterCommit(UnitOfWorkImpl uow, Runnable invalidation) {
+        List<Runnable> pending = (List<Runnable>) uow.getProperty(PENDING);
+        if (pending == null) {
+            pending = new ArrayList<Runnable>();
+            uow.setProperty(PENDING, pending);
+        }
+        pending.add(invalidation);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void postCommitUnitOfWork(SessionEvent event) {
+        UnitOfWorkImpl uow = (UnitOfWorkImpl) event.getSession();
+        List<Runnable> pending = (List<Runnable>) uow.getProperty(PENDING);
+        if (pending != null) {
+            uow.removeProperty(PENDING);
+            for (Runnable invalidation : pending) {
+                invalidation.run();
+            }
+        }
+    }
+
+    @Override
+    public void postRollbackTransaction(SessionEvent event) {
+        if (event.getSession() instanceof UnitOfWorkImpl) {
+            ((UnitOfWorkImpl) event.getSession()).removeProperty(PENDING);
+        }
+    }
+
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+
+import temporal.EditionSetEntry;
+
+/**
+ * Stable ordinals of the mapped attributes of a temporal type used to store
+ * the changed attributes of an {@link EditionSetEntry} as a bitmask. The
+ * ordinal of an attribute is its position in the sorted attribute names of
+ * the type's descriptor so it does not depend on the order the mappings were
+ * processed in.
+ * <p>
+ * Adding or removing attributes of a type changes the ordinals of those that
+ * follow. Each mask is therefore stored with the {@link #getLayout()} of the
+ * ordinals it was written with and a mask of another layout is rejected with
+ * an {@link IllegalStateException} instead of being decoded to the wrong
+ * attributes.
+ * <p>
+ * Ordinals are registered JVM wide by {@link ConfigureTemporalDescriptors}
+ * for each temporal class so that entries can resolve them from their
+ * temporal object without a session. Registering other attributes for an
+ * already registered class fails. Types with more than
+ * {@value #MAX_ORDINALS} attributes are not registered and their entries use
+ * the TEDITIONSET_ENTRY_ATTR rows.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class AttributeOrdinals {
+
+    /**
+     * Number of bits of the mask column available for ordinals. The sign bit
+     * is not used so masks are always positive.
+     */
+    public static final int MAX_ORDINALS = 63;
+
+    private static final Map<Class<?>, AttributeOrdinals> REGISTRY = new WeakHashMap<Class<?>, AttributeOrdinals>();
+
+    private String[] names;
+
+    private Map<String, Integer> ordinals;
+
+    private int layout;
+
+    protected AttributeOrdinals(Collection<String> attributeNames) {
+        this.names = attributeNames.toArray(new String[attributeNames.size()]);
+        Arrays.sort(this.names);
+        this.layout = Arrays.hashCode(this.names);
+        this.ordinals = new HashMap<String, Integer>(this.names.length * 2);
+        for (int index = 0; index < this.names.length; index++) {
+            this.ordinals.put(this.names[index], index);
+        }
+    }
+
+    /**
+     * Register the ordinals of the descriptor's class, if it has no more than
+     * {@value #MAX_ORDINALS} attributes.
+     *
+     * @return the registered ordinals or <code>null</code>
+     * @throws IllegalStateException
+     *             if other attributes are already registered for the class
+     */
+    public static AttributeOrdinals register(ClassDescriptor descriptor) {
+        Set<String> attributeNames = new HashSet<String>();
+        for (DatabaseMapping mapping : descriptor.getMappings()) {
+            attributeNames.add(mapping.getAttributeName());
+        }
+        if (attributeNames.size() > MAX_ORDINALS) {
+            return null;
+        }
+        AttributeOrdinals ordinals = new AttributeOrdinals(attributeNames);
+        synchronized (REGISTRY) {
+            AttributeOrdinals existing = REGISTRY.get(descriptor.getJavaClass());
+            if (existing != null) {
+                if (!Arrays.equals(existing.names, ordinals.names)) {
+                    throw new IllegalStateException("Attributes of " + descriptor.getJavaClass().getName() + " differ from the registered " + existing);
+                }
+                return existing;
+            }
+            REGISTRY.put(descriptor.getJavaClass(), ordinals);
+        }
+        return ordinals;
+    }
+
+    /**
+     * @return the ordinals registered for the temporal class or
+     *         <code>null</code>
+     */
+    public static AttributeOrdinals forClass(Class<?> temporalClass) {
+        synchronized (REGISTRY) {
+            return REGISTRY.get(temporalClass);
+        }
+    }
+
+    /**
+     * @return hash of the sorted attribute names stored with each mask to
+     *         identify the ordinals it was written with
+     */
+    public int getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if a mask was written with another layout
+     */
+    public void checkLayout(Integer maskLayout) {
+        if (maskLayout == null || maskLayout != this.layout) {
+            throw new IllegalStateException("Attribute mask written with layout " + maskLayout + " can not be decoded with " + this + " of layout " + this.layout);
+        }
+    }
+
+    public int size() {
+        return this.names.length;
+    }
+
+    /**
+     * @return the ordinal of the attribute or -1 if it is not mapped
+     */
+    public int getOrdinal(String attributeName) {
+        Integer ordinal = this.ordinals.get(attributeName);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public String getAttributeName(int ordinal) {
+        return this.names[ordinal];
+    }
+
+    /**
+     * @return the bit of the attribute in a mask or 0 if it is not mapped
+     */
+    public long getBit(String attributeName) {
+        int ordinal = getOrdinal(attributeName);
+        return ordinal < 0 ? 0 : 1L << ordinal;
+    }
+
+    /**
+     * @return an unmodifiable view of the attribute names in the mask
+     */
+    public Set<String> getAttributeNames(long mask) {
+        return new MaskView(this, mask);
+    }
+
+    public static BitSet toBitSet(long mask) {
+        return BitSet.valueOf(new long[] { mask });
+    }
+
+    public static long toMask(BitSet bits) {
+        if (bits.length() > MAX_ORDINALS) {
+            throw new IllegalArgumentException("Ordinal out of range: " + (bits.length() - 1));
+        }
+        long[] words = bits.toLongArray();
+        return words.length == 0 ? 0 : words[0];
+    }
+
+    @Override
+    public String toString() {
+        return "AttributeOrdinals" + Arrays.toString(this.names);
+    }
+
+    /**
+     * Set of the attribute names in a mask sharing the names of the
+     * {@link AttributeOrdinals}.
+     */
+    private static class MaskView extends AbstractSet<String> {
+
+        private AttributeOrdinals ordinals;
+
+        private long mask;
+
+        private MaskView(AttributeOrdinals ordinals, long mask) {
+            this.ordinals = ordinals;
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String && (this.mask & this.ordinals.getBit((String) o)) != 0;
+        }
+
+        @Override
+        public int size() {
+            return Long.bitCount(this.mask);
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+
+                private long remaining = mask;
+
+                @Override
+                public boolean hasNext() {
+                    return this.remaining != 0;
+                }
+
+                @Override
+                public String next() {
+                    if (this.remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    int ordinal = Long.numberOfTrailingZeros(this.remaining);
+                    this.remaining &= this.remaining - 1;
+                    return ordinals.getAttributeName(ordinal);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+}
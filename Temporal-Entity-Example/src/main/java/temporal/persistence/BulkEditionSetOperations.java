@@ -0,0 +1,766 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.TimestampLockingPolicy;
+import org.eclipse.persistence.descriptors.VersionLockingPolicy;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.RepeatableWriteUnitOfWork;
+import org.eclipse.persistence.mappings.AggregateObjectMapping;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.mappings.DirectCollectionMapping;
+import org.eclipse.persistence.mappings.OneToOneMapping;
+import org.eclipse.persistence.mappings.VariableOneToOneMapping;
+import org.eclipse.persistence.sessions.server.Server;
+
+import temporal.EditionSet;
+import temporal.EditionSetEntry;
+import temporal.EditionSetHelper;
+import temporal.Effectivity;
+import temporal.Temporal;
+import temporal.TemporalEntity;
+import temporal.TemporalEntityManager;
+import temporal.TemporalHelper;
+
+/**
+ * Set based SQL versions of the {@link EditionSetHelper} operations for
+ * {@link EditionSet}s too large to load into a persistence context. The
+ * statements are driven by the TEDITIONSET_ENTRY rows of the
+ * {@link EditionSet}, with their attribute masks and TEDITIONSET_ENTRY_ATTR
+ * rows, so no entries, editions or continuities are read into objects. The
+ * persistence context of the {@link TemporalEntityManager} is cleared once
+ * the statements have been executed in its transaction and the affected
+ * objects are invalidated in the shared cache by the
+ * {@link AfterCommitInvalidator} when that transaction commits.
+ * <p>
+ * The table, key, continuity and effectivity columns are resolved from the
+ * descriptors. Types mapping any of these or a copied attribute to a
+ * secondary table are not supported and rejected with an
+ * {@link IllegalStateException}.
+ * <p>
+ * Apply only processes entries for {@link TemporalEntity} editions. Entries
+ * of other {@link Temporal} types carry their own effectivity and are left as
+ * they are, other than having their start shifted by a move.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class BulkEditionSetOperations {
+
+    /**
+     * Attributes whose values are never copied from an edition to its
+     * continuity. The end of the continuity is set separately.
+     */
+    private static final Set<String> UNCOPIED_ATTRIBUTES = new HashSet<String>(Arrays.asList("oid", "cid", "version", "continuity", "continuityId", "effectivity", "previousEdition"));
+
+    private TemporalEntityManager em;
+
+    private AbstractSession session;
+
+    private long effective;
+
+    private String entryTable;
+
+    private String entryIdField;
+
+    private String entrySetField;
+
+    private String entryTemporalField;
+
+    private String entryTypeField;
+
+    private String attributeTable;
+
+    private String attributeEntryField;
+
+    private String attributeField;
+
+    private String entryMaskField;
+
+    private String entryLayoutField;
+
+    /**
+     * Edition descriptors of the {@link TemporalEntity} types by their type
+     * indicator in TEDITIONSET_ENTRY.
+     */
+    private Map<String, ClassDescriptor> editionDescriptors = new HashMap<String, ClassDescriptor>();
+
+    /**
+     * Descriptors of the other {@link Temporal} types by their type indicator.
+     */
+    private Map<String, ClassDescriptor> temporalDescriptors = new HashMap<String, ClassDescriptor>();
+
+    /**
+     * Temporal columns of each descriptor resolved from its mappings.
+     */
+    private Map<ClassDescriptor, TemporalColumns> columns = new HashMap<ClassDescriptor, TemporalColumns>();
+
+    /**
+     * OID and CID of the editions changed, with their edition descriptor, to
+     * invalidate after the commit.
+     */
+    private List<Object[]> changedEditions = new ArrayList<Object[]>();
+
+    /**
+     * Effective time the {@link EditionSet} was moved to, if any.
+     */
+    private Long movedTo;
+
+    protected BulkEditionSetOperations(TemporalEntityManager em, EditionSet editionSet) {
+        this(em, editionSet.getEffective());
+    }
+
+    protected BulkEditionSetOperations(TemporalEntityManager em, long effective) {
+        this.em = em;
+        this.session = em.unwrap(RepeatableWriteUnitOfWork.class);
+        this.effective = effective;
+
+        ClassDescriptor entryDesc = this.session.getClassDescriptor(EditionSetEntry.class);
+        this.entryTable = entryDesc.getTableName();
+        this.entryIdField = entryDesc.getPrimaryKeyFields().get(0).getName();
+        this.entrySetField = entryDesc.getMappingForAttributeName("editionSet").getFields().get(0).getName();
+
+        VariableOneToOneMapping temporalMapping = (VariableOneToOneMapping) entryDesc.getMappingForAttributeName("temporal");
+        this.entryTemporalField = ((DatabaseField) temporalMapping.getForeignKeyFields().get(0)).getName();
+        this.entryTypeField = temporalMapping.getTypeField().getName();
+        for (Object key : temporalMapping.getTypeIndicatorTranslation().keySet()) {
+            if (key instanceof Class<?> && TemporalHelper.isTemporalEntity((Class<?>) key)) {
+                ClassDescriptor editionDesc = DescriptorHelper.getEditionDescriptor(this.session, (Class<?>) key);
+                this.editionDescriptors.put(temporalMapping.getTypeForImplementor((Class<?>) key).toString(), editionDesc);
+            } else if (key instanceof Class<?>) {
+                this.temporalDescriptors.put(temporalMapping.getTypeForImplementor((Class<?>) key).toString(), this.session.getClassDescriptor((Class<?>) key));
+            }
+        }
+
+        DirectCollectionMapping attributesMapping = (DirectCollectionMapping) entryDesc.getMappingForAttributeName("attributes");
+        this.attributeTable = attributesMapping.getReferenceTableName();
+        this.attributeEntryField = attributesMapping.getReferenceKeyFields().get(0).getName();
+        this.attributeField = attributesMapping.getDirectFieldName();
+        this.entryMaskField = entryDesc.getMappingForAttributeName("attributeMask").getField().getName();
+        this.entryLayoutField = entryDesc.getMappingForAttributeName("attributeLayout").getField().getName();
+    }
+
+    /**
+     * Apply the {@link EditionSet} with one UPDATE per table and changed
+     * attribute, copying the edition's columns onto its continuity's row, and
+     * one UPDATE per table setting the continuity's end. The editions, their
+     * element collections and the {@link EditionSet} rows are then deleted.
+     * Editions of new entities are their own continuity and are kept. See
+     * {@link EditionSetHelper#applyBulk(TemporalEntityManager, EditionSet)}
+     * for how this differs from
+     * {@link EditionSetHelper#apply(javax.persistence.EntityManager, EditionSet)}.
+     *
+     * @see EditionSetHelper#apply(javax.persistence.EntityManager, EditionSet)
+     */
+    public static void apply(TemporalEntityManager em, EditionSet editionSet) {
+        em.flush();
+        BulkEditionSetOperations operations = new BulkEditionSetOperations(em, editionSet);
+        operations.apply();
+        em.clear();
+        operations.invalidateAfterCommit();
+    }
+
+    protected void apply() {
+        Map<List<String>, ChangedAttribute> changes = selectChangedAttributes();
+
+        for (Map.Entry<String, ClassDescriptor> entry : this.editionDescriptors.entrySet()) {
+            String type = entry.getKey();
+            ClassDescriptor descriptor = entry.getValue();
+            String table = descriptor.getTableName();
+
+            for (ChangedAttribute change : changes.values()) {
+                if (type.equals(change.type)) {
+                    copyAttribute(descriptor, change);
+                }
+            }
+
+            this.changedEditions.addAll(selectEditions(descriptor, type, false));
+
+            // Set the continuity's end to that of its edition
+            TemporalColumns columns = getColumns(descriptor);
+            StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ").append(columns.end).append(" = (SELECT E.").append(columns.end);
+            sql.append(editionsFrom(descriptor, type)).append(" AND E.").append(columns.cid).append(" = ").append(table).append(".").append(columns.oid).append(")");
+            DatabaseField versionField = getVersionField(descriptor);
+            if (versionField != null) {
+                sql.append(", ").append(versionField.getName()).append(" = ").append(versionField.getName()).append(" + 1");
+            }
+            sql.append(" WHERE ").append(columns.oid).append(" IN (SELECT E.").append(columns.cid).append(editionsFrom(descriptor, type)).append(")");
+            execute(sql);
+
+            deleteEditions(descriptor, type);
+        }
+
+        deleteEditionSet();
+    }
+
+    /**
+     * Move the {@link EditionSet} of the {@link TemporalEntityManager} to the
+     * new effective time with set based statements. For each type the
+     * statements:
+     * <ul>
+     * <li>reject the move if an edition would end before it starts or a
+     * predecessor would start after it ends
+     * <li>shift the END_TS of the predecessors and START_TS of the editions
+     * <li>check each temporal one-to-one mapping for references to
+     * continuities without an edition at the new time
+     * </ul>
+     * The TEDITIONSET row is then re-keyed to the new effective time. The
+     * EntityManager is cleared and set to the new effective time. The caller
+     * should roll back the transaction if an exception is thrown.
+     * 
+     * @throws IllegalArgumentException
+     *             for an invalid effective time
+     * @throws IllegalStateException
+     *             if there are pending changes or the move is not valid
+     * @see EditionSetHelper#move(TemporalEntityManager, long)
+     */
+    public static void move(TemporalEntityManager em, long effective) {
+        if (effective <= Effectivity.BOT) {
+            throw new IllegalArgumentException("Invalid effective time for move: " + effective);
+        }
+        RepeatableWriteUnitOfWork uow = em.unwrap(RepeatableWriteUnitOfWork.class);
+        if (uow.getUnitOfWorkChangeSet() != null && uow.getUnitOfWorkChangeSet().hasChanges()) {
+            throw new IllegalStateException("Cannot move EditionSet with pending changes");
+        }
+        // The EditionSet is looked up without loading or creating it
+        Long current = em.getEffectiveTime();
+        EditionSet editionSet = null;
+        if (current != null && current > Effectivity.BOT) {
+            editionSet = em.hasEditionSet() ? em.getEditionSet() : em.find(EditionSet.class, current);
+        }
+        if (editionSet != null && editionSet.getEffective() != effective) {
+            em.flush();
+            BulkEditionSetOperations operations = new BulkEditionSetOperations(em, editionSet);
+            operations.move(effective);
+            em.clear();
+            operations.invalidateAfterCommit();
+        }
+        em.setEffectiveTime(effective);
+    }
+
+    /**
+     * Select the continuities changed by the {@link EditionSet} with the
+     * effective time without loading it, using one query per type. Each is
+     * identified by its table and continuity id, or OID for {@link Temporal}
+     * types other than {@link TemporalEntity}, so the results of two
+     * {@link EditionSet}s are disjoint if they change different continuities.
+     */
+    public static Set<List<Object>> selectContinuities(TemporalEntityManager em, long effective) {
+        return new BulkEditionSetOperations(em, effective).selectEntries().keySet();
+    }
+
+    /**
+     * Select the ids of the entries of the {@link EditionSet} with the
+     * effective time by the continuity they change, identified as in
+     * {@link #selectContinuities(TemporalEntityManager, long)}, using one
+     * query per type.
+     */
+    public static Map<List<Object>, List<Long>> selectEntriesByContinuity(TemporalEntityManager em, long effective) {
+        return new BulkEditionSetOperations(em, effective).selectEntries();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Map<List<Object>, List<Long>> selectEntries() {
+        Map<List<Object>, List<Long>> entries = new LinkedHashMap<List<Object>, List<Long>>();
+
+        for (Map.Entry<String, ClassDescriptor> entry : this.editionDescriptors.entrySet()) {
+            String table = entry.getValue().getTableName();
+            TemporalColumns columns = getColumns(entry.getValue());
+            String sql = "SELECT E." + columns.cid + ", ESE." + this.entryIdField + " FROM " + table + " E, " + this.entryTable + " ESE" + entriesWhere(entry.getKey()) + " AND ESE." + this.entryTemporalField + " = E." + columns.oid;
+            for (Object[] row : (List<Object[]>) this.em.createNativeQuery(sql).getResultList()) {
+                addEntry(entries, table, row);
+            }
+        }
+        for (Map.Entry<String, ClassDescriptor> entry : this.temporalDescriptors.entrySet()) {
+            String table = entry.getValue().getTableName();
+            String sql = "SELECT ESE." + this.entryTemporalField + ", ESE." + this.entryIdField + " FROM " + this.entryTable + " ESE" + entriesWhere(entry.getKey());
+            for (Object[] row : (List<Object[]>) this.em.createNativeQuery(sql).getResultList()) {
+                addEntry(entries, table, row);
+            }
+        }
+        return entries;
+    }
+
+    private void addEntry(Map<List<Object>, List<Long>> entries, String table, Object[] row) {
+        List<Object> continuity = Arrays.<Object> asList(table, ((Number) row[0]).intValue());
+        List<Long> ids = entries.get(continuity);
+        if (ids == null) {
+            ids = new ArrayList<Long>(1);
+            entries.put(continuity, ids);
+        }
+        ids.add(((Number) row[1]).longValue());
+    }
+
+    /**
+     * Delete the entries, and their TEDITIONSET_ENTRY_ATTR rows, without
+     * removing their temporal objects.
+     */
+    public static void deleteEntries(TemporalEntityManager em, Collection<Long> entryIds) {
+        new BulkEditionSetOperations(em, 0).deleteEntries(entryIds);
+    }
+
+    protected void deleteEntries(Collection<Long> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        StringBuilder ids = new StringBuilder();
+        for (Long id : entryIds) {
+            if (ids.length() > 0) {
+                ids.append(", ");
+            }
+            ids.append(id);
+        }
+        execute(new StringBuilder("DELETE FROM ").append(this.attributeTable).append(" WHERE ").append(this.attributeEntryField).append(" IN (").append(ids).append(")"));
+        execute(new StringBuilder("DELETE FROM ").append(this.entryTable).append(" WHERE ").append(this.entryIdField).append(" IN (").append(ids).append(")"));
+    }
+
+    protected void move(long target) {
+        ClassDescriptor esDesc = this.session.getClassDescriptor(EditionSet.class);
+        String esTable = esDesc.getTableName();
+        String esId = esDesc.getPrimaryKeyFields().get(0).getName();
+        if (count("SELECT COUNT(*) FROM " + esTable + " WHERE " + esId + " = " + target) > 0) {
+            throw new IllegalStateException("EditionSet already exists at: " + Effectivity.timeString(target));
+        }
+
+        for (Map.Entry<String, ClassDescriptor> entry : this.editionDescriptors.entrySet()) {
+            String type = entry.getKey();
+            ClassDescriptor descriptor = entry.getValue();
+            String table = descriptor.getTableName();
+            TemporalColumns columns = getColumns(descriptor);
+            String all = " FROM " + table + " E, " + this.entryTable + " ESE" + entriesWhere(type) + " AND ESE." + this.entryTemporalField + " = E." + columns.oid;
+            String predecessors = " WHERE " + columns.end + " = " + this.effective + " AND " + columns.cid + " IN (SELECT E." + columns.cid + editionsFrom(descriptor, type) + ") AND " + columns.oid + " NOT IN (" + temporalsSelect(type) + ")";
+
+            if (count("SELECT COUNT(*)" + all + " AND E." + columns.end + " <= " + target) > 0) {
+                throw new IllegalStateException("Cannot move " + type + " editions to " + Effectivity.timeString(target) + " past their end");
+            }
+            if (count("SELECT COUNT(*) FROM " + table + predecessors + " AND " + columns.start + " >= " + target) > 0) {
+                throw new IllegalStateException("Cannot move " + type + " editions to " + Effectivity.timeString(target) + " before the start of their predecessor");
+            }
+
+            this.changedEditions.addAll(selectEditions(descriptor, type, true));
+            for (Object row : this.em.createNativeQuery("SELECT " + columns.oid + ", " + columns.cid + " FROM " + table + predecessors).getResultList()) {
+                Object[] predecessor = (Object[]) row;
+                this.changedEditions.add(new Object[] { descriptor, ((Number) predecessor[0]).intValue(), ((Number) predecessor[1]).intValue() });
+            }
+
+            DatabaseField versionField = getVersionField(descriptor);
+            String version = versionField == null ? "" : ", " + versionField.getName() + " = " + versionField.getName() + " + 1";
+            execute("UPDATE " + table + " SET " + columns.end + " = " + target + version + predecessors);
+            execute("UPDATE " + table + " SET " + columns.start + " = " + target + version + " WHERE " + columns.oid + " IN (" + temporalsSelect(type) + ")");
+        }
+        for (Map.Entry<String, ClassDescriptor> entry : this.temporalDescriptors.entrySet()) {
+            ClassDescriptor descriptor = entry.getValue();
+            TemporalColumns columns = getColumns(descriptor);
+            execute("UPDATE " + descriptor.getTableName() + " SET " + columns.start + " = " + target + " WHERE " + columns.oid + " IN (" + temporalsSelect(entry.getKey()) + ")");
+        }
+
+        // References to continuities without an edition at the new time
+        for (Map.Entry<String, ClassDescriptor> entry : this.editionDescriptors.entrySet()) {
+            ClassDescriptor descriptor = entry.getValue();
+            String all = " FROM " + descriptor.getTableName() + " E, " + this.entryTable + " ESE" + entriesWhere(entry.getKey()) + " AND ESE." + this.entryTemporalField + " = E." + getColumns(descriptor).oid;
+            for (OneToOneMapping mapping : DescriptorHelper.getTemporalMappings(descriptor)) {
+                String fk = mapping.getForeignKeyFields().get(0).getName();
+                String targetTable = mapping.getReferenceDescriptor().getTableName();
+                TemporalColumns x = getColumns(mapping.getReferenceDescriptor());
+                int broken = count("SELECT COUNT(*)" + all + " AND E." + fk + " IS NOT NULL AND NOT EXISTS (SELECT 1 FROM " + targetTable + " X WHERE X." + x.cid + " = E." + fk + " AND X." + x.start + " <= " + target + " AND X." + x.end + " > " + target + ")");
+                if (broken > 0) {
+                    throw new IllegalStateException(broken + " " + entry.getKey() + " editions reference " + mapping.getAttributeName() + " without an edition at " + Effectivity.timeString(target));
+                }
+            }
+        }
+
+        // Re-key the EditionSet
+        StringBuilder columns = new StringBuilder(esId);
+        StringBuilder values = new StringBuilder(String.valueOf(target));
+        for (DatabaseField field : esDesc.getFields()) {
+            if (!field.getName().equals(esId) && esTable.equals(field.getTableName())) {
+                columns.append(", ").append(field.getName());
+                values.append(", ").append(field.getName());
+            }
+        }
+        execute("INSERT INTO " + esTable + " (" + columns + ") SELECT " + values + " FROM " + esTable + " WHERE " + esId + " = " + this.effective);
+        execute("UPDATE " + this.entryTable + " SET " + this.entrySetField + " = " + target + " WHERE " + this.entrySetField + " = " + this.effective);
+        execute("DELETE FROM " + esTable + " WHERE " + esId + " = " + this.effective);
+
+        this.movedTo = target;
+    }
+
+    /**
+     * Copy the columns of the attribute from each edition changing it onto the
+     * row of its continuity. Relationships are not copied, as with
+     * {@link EditionSetHelper#copyValues(javax.persistence.EntityManager, EditionSetEntry)}
+     * , and element collections are replaced.
+     */
+    private void copyAttribute(ClassDescriptor descriptor, ChangedAttribute change) {
+        String type = change.type;
+        String attribute = change.attribute;
+        DatabaseMapping mapping = descriptor.getMappingForAttributeName(attribute);
+        if (mapping == null || mapping.isForeignReferenceMapping() || mapping.isReadOnly() || UNCOPIED_ATTRIBUTES.contains(attribute)) {
+            return;
+        }
+        String table = descriptor.getTableName();
+        TemporalColumns columns = getColumns(descriptor);
+
+        if (mapping.isDirectCollectionMapping()) {
+            DirectCollectionMapping dcm = (DirectCollectionMapping) mapping;
+            String refTable = dcm.getReferenceTableName();
+            String refKey = dcm.getReferenceKeyFields().get(0).getName();
+            String continuities = "SELECT E." + columns.cid + editionsFrom(descriptor, type) + changedWhere(change);
+
+            execute(new StringBuilder("DELETE FROM ").append(refTable).append(" WHERE ").append(refKey).append(" IN (").append(continuities).append(")"));
+
+            String value = dcm.getDirectFieldName();
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(refTable).append(" (").append(refKey).append(", ").append(value).append(")");
+            sql.append(" SELECT E.").append(columns.cid).append(", R.").append(value).append(editionsFrom(descriptor, type).replace(" E, ", " E, " + refTable + " R, "));
+            sql.append(changedWhere(change)).append(" AND R.").append(refKey).append(" = E.").append(columns.oid);
+            execute(sql);
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        boolean first = true;
+        for (DatabaseField field : mapping.getFields()) {
+            if (field.getTableName() != null && field.getTableName().length() > 0 && !field.getTableName().equals(table)) {
+                throw new IllegalStateException("Bulk EditionSet operations do not support " + type + "." + attribute + " mapped to table: " + field.getTableName());
+            }
+            if (!first) {
+                sql.append(", ");
+            }
+            first = false;
+            sql.append(field.getName()).append(" = (SELECT E.").append(field.getName());
+            sql.append(editionsFrom(descriptor, type)).append(changedWhere(change));
+            sql.append(" AND E.").append(columns.cid).append(" = ").append(table).append(".").append(columns.oid).append(")");
+        }
+        if (first) {
+            return;
+        }
+        sql.append(" WHERE ").append(columns.oid).append(" IN (SELECT E.").append(columns.cid).append(editionsFrom(descriptor, type)).append(changedWhere(change)).append(")");
+        execute(sql);
+    }
+
+    /**
+     * @return the FROM and WHERE clauses selecting the editions, aliased E, of
+     *         the type in the {@link EditionSet} which are not their own
+     *         continuity
+     */
+    protected String editionsFrom(ClassDescriptor descriptor, String type) {
+        TemporalColumns columns = getColumns(descriptor);
+        StringBuilder sql = new StringBuilder(" FROM ").append(descriptor.getTableName()).append(" E, ").append(this.entryTable).append(" ESE");
+        sql.append(entriesWhere(type)).append(" AND ESE.").append(this.entryTemporalField).append(" = E.").append(columns.oid);
+        sql.append(" AND E.").append(columns.oid).append(" <> E.").append(columns.cid);
+        return sql.toString();
+    }
+
+    /**
+     * Select the distinct changed attributes of each type in the
+     * {@link EditionSet} from both the TEDITIONSET_ENTRY_ATTR rows and the
+     * distinct masks of the entries, which are decoded with the
+     * {@link AttributeOrdinals} of the type.
+     *
+     * @throws IllegalStateException
+     *             if a mask was written with another attribute layout
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<List<String>, ChangedAttribute> selectChangedAttributes() {
+        Map<List<String>, ChangedAttribute> changes = new LinkedHashMap<List<String>, ChangedAttribute>();
+
+        String listed = "SELECT DISTINCT ESE." + this.entryTypeField + ", A." + this.attributeField + " FROM " + this.entryTable + " ESE, " + this.attributeTable + " A WHERE ESE." + this.entrySetField + " = " + this.effective + " AND A." + this.attributeEntryField + " = ESE." + this.entryIdField;
+        for (Object[] row : (List<Object[]>) this.em.createNativeQuery(listed).getResultList()) {
+            getChangedAttribute(changes, String.valueOf(row[0]), (String) row[1]).listed = true;
+        }
+
+        String masks = "SELECT DISTINCT ESE." + this.entryTypeField + ", ESE." + this.entryMaskField + ", ESE." + this.entryLayoutField + " FROM " + this.entryTable + " ESE WHERE ESE." + this.entrySetField + " = " + this.effective + " AND ESE." + this.entryMaskField + " <> 0";
+        for (Object[] row : (List<Object[]>) this.em.createNativeQuery(masks).getResultList()) {
+            String type = String.valueOf(row[0]);
+            ClassDescriptor descriptor = this.editionDescriptors.get(type);
+            if (descriptor == null) {
+                descriptor = this.temporalDescriptors.get(type);
+            }
+            AttributeOrdinals ordinals = descriptor == null ? null : AttributeOrdinals.forClass(descriptor.getJavaClass());
+            if (ordinals == null) {
+                throw new IllegalStateException("No attribute ordinals for type: " + type);
+            }
+            ordinals.checkLayout(row[2] == null ? null : ((Number) row[2]).intValue());
+            long mask = ((Number) row[1]).longValue();
+            for (String attribute : ordinals.getAttributeNames(mask)) {
+                getChangedAttribute(changes, type, attribute).masks.add(mask);
+            }
+        }
+        return changes;
+    }
+
+    private ChangedAttribute getChangedAttribute(Map<List<String>, ChangedAttribute> changes, String type, String attribute) {
+        List<String> key = Arrays.asList(type, attribute);
+        ChangedAttribute change = changes.get(key);
+        if (change == null) {
+            change = new ChangedAttribute(type, attribute);
+            changes.put(key, change);
+        }
+        return change;
+    }
+
+    /**
+     * @return the condition restricting the entries, aliased ESE, to those
+     *         changing the attribute, either through a TEDITIONSET_ENTRY_ATTR
+     *         row or one of the distinct masks including it
+     */
+    protected String changedWhere(ChangedAttribute change) {
+        StringBuilder sql = new StringBuilder(" AND (");
+        if (change.listed) {
+            sql.append("EXISTS (SELECT 1 FROM ").append(this.attributeTable).append(" A WHERE A.").append(this.attributeEntryField).append(" = ESE.").append(this.entryIdField);
+            sql.append(" AND A.").append(this.attributeField).append(" = '").append(change.attribute).append("')");
+        }
+        if (!change.masks.isEmpty()) {
+            if (change.listed) {
+                sql.append(" OR ");
+            }
+            sql.append("ESE.").append(this.entryMaskField).append(" IN (");
+            for (int index = 0; index < change.masks.size(); index++) {
+                if (index > 0) {
+                    sql.append(", ");
+                }
+                sql.append(change.masks.get(index));
+            }
+            sql.append(")");
+        }
+        return sql.append(")").toString();
+    }
+
+    /**
+     * @return the WHERE clause selecting the entries, aliased ESE, of the type
+     *         in the {@link EditionSet}
+     */
+    protected String entriesWhere(String type) {
+        return " WHERE ESE." + this.entrySetField + " = " + this.effective + " AND ESE." + this.entryTypeField + " = '" + type + "'";
+    }
+
+    /**
+     * @return a sub-select of the OIDs of all temporal objects of the type in
+     *         the {@link EditionSet}
+     */
+    protected String temporalsSelect(String type) {
+        return "SELECT ESE." + this.entryTemporalField + " FROM " + this.entryTable + " ESE" + entriesWhere(type);
+    }
+
+    /**
+     * @return the OID and CID of the editions of the type in the
+     *         {@link EditionSet} along with the edition descriptor, optionally
+     *         including those which are their own continuity
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Object[]> selectEditions(ClassDescriptor descriptor, String type, boolean continuities) {
+        TemporalColumns columns = getColumns(descriptor);
+        String from = continuities ? " FROM " + descriptor.getTableName() + " E, " + this.entryTable + " ESE" + entriesWhere(type) + " AND ESE." + this.entryTemporalField + " = E." + columns.oid : editionsFrom(descriptor, type);
+        List<Object[]> editions = new ArrayList<Object[]>();
+        for (Object[] row : (List<Object[]>) this.em.createNativeQuery("SELECT E." + columns.oid + ", E." + columns.cid + from).getResultList()) {
+            editions.add(new Object[] { descriptor, ((Number) row[0]).intValue(), ((Number) row[1]).intValue() });
+        }
+        return editions;
+    }
+
+    /**
+     * Delete the editions of the type which are not their own continuity and
+     * the rows of their element collections.
+     */
+    private void deleteEditions(ClassDescriptor descriptor, String type) {
+        String table = descriptor.getTableName();
+        TemporalColumns columns = getColumns(descriptor);
+        String editions = "SELECT E." + columns.oid + editionsFrom(descriptor, type);
+
+        for (DatabaseMapping mapping : descriptor.getMappings()) {
+            if (mapping.isDirectCollectionMapping() && !mapping.isReadOnly()) {
+                DirectCollectionMapping dcm = (DirectCollectionMapping) mapping;
+                execute(new StringBuilder("DELETE FROM ").append(dcm.getReferenceTableName()).append(" WHERE ").append(dcm.getReferenceKeyFields().get(0).getName()).append(" IN (").append(editions).append(")"));
+            }
+        }
+        execute(new StringBuilder("DELETE FROM ").append(table).append(" WHERE ").append(columns.oid).append(" IN (").append(temporalsSelect(type)).append(") AND ").append(columns.oid).append(" <> ").append(columns.cid));
+    }
+
+    /**
+     * Delete the {@link EditionSet} and all of its entries.
+     */
+    protected void deleteEditionSet() {
+        String entries = "SELECT " + this.entryIdField + " FROM " + this.entryTable + " WHERE " + this.entrySetField + " = " + this.effective;
+        execute(new StringBuilder("DELETE FROM ").append(this.attributeTable).append(" WHERE ").append(this.attributeEntryField).append(" IN (").append(entries).append(")"));
+        execute(new StringBuilder("DELETE FROM ").append(this.entryTable).append(" WHERE ").append(this.entrySetField).append(" = ").append(this.effective));
+        ClassDescriptor esDesc = this.session.getClassDescriptor(EditionSet.class);
+        execute(new StringBuilder("DELETE FROM ").append(esDesc.getTableName()).append(" WHERE ").append(esDesc.getPrimaryKeyFields().get(0).getName()).append(" = ").append(this.effective));
+    }
+
+    /**
+     * Register {@link #invalidate(Server)} to run once the transaction of the
+     * EntityManager commits. Until then other EntityManagers keep reading the
+     * committed state from the shared cache while this transaction reads
+     * from the database.
+     */
+    protected void invalidateAfterCommit() {
+        final Server server = this.em.unwrap(Server.class);
+        AfterCommitInvalidator.invalidateAfterCommit(this.em.unwrap(RepeatableWriteUnitOfWork.class), new Runnable() {
+            @Override
+            public void run() {
+                invalidate(server);
+            }
+        });
+    }
+
+    /**
+     * Invalidate the current, continuity and edition objects of the changed
+     * editions in the shared cache along with their {@link EditionCache}
+     * entries and any cached query results of their types.
+     */
+    protected void invalidate(Server server) {
+        Set<ClassDescriptor> currentDescriptors = new HashSet<ClassDescriptor>();
+
+        for (Object[] edition : this.changedEditions) {
+            ClassDescriptor editionDesc = (ClassDescriptor) edition[0];
+            ClassDescriptor currentDesc = (ClassDescriptor) editionDesc.getProperty(DescriptorHelper.CURRENT);
+            Integer oid = (Integer) edition[1];
+            Integer cid = (Integer) edition[2];
+
+            server.getIdentityMapAccessor().invalidateObject(cid, currentDesc.getJavaClass());
+            server.getIdentityMapAccessor().invalidateObject(cid, editionDesc.getJavaClass());
+            server.getIdentityMapAccessor().invalidateObject(oid, editionDesc.getJavaClass());
+            EditionCache editionCache = DescriptorHelper.getEditionCache(editionDesc);
+            if (editionCache != null) {
+                editionCache.invalidate(cid);
+            }
+            currentDescriptors.add(currentDesc);
+        }
+
+        server.getIdentityMapAccessor().invalidateObject(this.effective, EditionSet.class);
+        server.getIdentityMapAccessor().invalidateClass(EditionSetEntry.class);
+        if (this.movedTo != null) {
+            server.getIdentityMapAccessor().invalidateObject(this.movedTo, EditionSet.class);
+            for (ClassDescriptor descriptor : this.temporalDescriptors.values()) {
+                server.getIdentityMapAccessor().invalidateClass(descriptor.getJavaClass());
+            }
+        }
+
+        TemporalResultCache resultCache = TemporalResultCache.getInstance(server);
+        if (resultCache != null) {
+            for (ClassDescriptor currentDesc : currentDescriptors) {
+                resultCache.invalidate(currentDesc);
+            }
+        }
+    }
+
+    /**
+     * @return the OID, CID, start and end columns of the descriptor's table
+     *         resolved from its id, continuity and effectivity mappings
+     * @throws IllegalStateException
+     *             if the descriptor does not map them to its table
+     */
+    protected TemporalColumns getColumns(ClassDescriptor descriptor) {
+        TemporalColumns temporalColumns = this.columns.get(descriptor);
+        if (temporalColumns == null) {
+            temporalColumns = new TemporalColumns();
+            temporalColumns.oid = getColumn(descriptor, descriptor.getPrimaryKeyFields().get(0), "id");
+
+            DatabaseMapping continuityMapping = descriptor.getMappingForAttributeName("continuity");
+            if (continuityMapping != null && continuityMapping.isOneToOneMapping()) {
+                temporalColumns.cid = getColumn(descriptor, ((OneToOneMapping) continuityMapping).getForeignKeyFields().get(0), "continuity");
+            } else if (descriptor.getMappingForAttributeName("continuityId") != null) {
+                temporalColumns.cid = getColumn(descriptor, descriptor.getMappingForAttributeName("continuityId").getField(), "continuityId");
+            }
+
+            DatabaseMapping effectivityMapping = descriptor.getMappingForAttributeName("effectivity");
+            if (effectivityMapping == null || !effectivityMapping.isAggregateObjectMapping()) {
+                throw new IllegalStateException("No effectivity mapping for: " + descriptor.getJavaClass().getName());
+            }
+            ClassDescriptor effectivityDesc = ((AggregateObjectMapping) effectivityMapping).getReferenceDescriptor();
+            temporalColumns.start = getColumn(descriptor, effectivityDesc.getMappingForAttributeName("start").getField(), "effectivity.start");
+            temporalColumns.end = getColumn(descriptor, effectivityDesc.getMappingForAttributeName("end").getField(), "effectivity.end");
+
+            this.columns.put(descriptor, temporalColumns);
+        }
+        return temporalColumns;
+    }
+
+    private String getColumn(ClassDescriptor descriptor, DatabaseField field, String attribute) {
+        if (field.getTableName() != null && field.getTableName().length() > 0 && !field.getTableName().equals(descriptor.getTableName())) {
+            throw new IllegalStateException("Bulk EditionSet operations do not support " + descriptor.getJavaClass().getName() + "." + attribute + " mapped to table: " + field.getTableName());
+        }
+        return field.getName();
+    }
+
+    private DatabaseField getVersionField(ClassDescriptor descriptor) {
+        if (descriptor.usesOptimisticLocking() && descriptor.getOptimisticLockingPolicy() instanceof VersionLockingPolicy && !(descriptor.getOptimisticLockingPolicy() instanceof TimestampLockingPolicy)) {
+            return ((VersionLockingPolicy) descriptor.getOptimisticLockingPolicy()).getWriteLockField();
+        }
+        return null;
+    }
+
+    protected int execute(CharSequence sql) {
+        return this.em.createNativeQuery(sql.toString()).executeUpdate();
+    }
+
+    protected int count(String sql) {
+        return ((Number) this.em.createNativeQuery(sql).getSingleResult()).intValue();
+    }
+
+    /**
+     * Column names of the temporal fields of a descriptor's table.
+     */
+    protected static class TemporalColumns {
+
+        private String oid;
+
+        /**
+         * <code>null</code> for {@link Temporal} types other than
+         * {@link TemporalEntity}
+         */
+        private String cid;
+
+        private String start;
+
+        private String end;
+    }
+
+    /**
+     * An attribute of a type changed by entries of the {@link EditionSet}.
+     */
+    protected static class ChangedAttribute {
+
+        private String type;
+
+        private String attribute;
+
+        /**
+         * Changed by entries with a TEDITIONSET_ENTRY_ATTR row
+         */
+        private boolean listed = false;
+
+        /**
+         * Distinct masks of the entries including the attribute
+         */
+        private List<Long> masks = new ArrayList<Long>();
+
+        private ChangedAttribute(String type, String attribute) {
+            this.type = type;
+            this.attribute = attribute;
+        }
+    }
+
+}
@@ -18,6 +18,7 @@ import static temporal.persistence.DescriptorHelper.EDITION;
 import static temporal.persistence.DescriptorHelper.EDITION_VIEW;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -25,7 +26,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.persistence.annotations.BatchFetchType;
 import org.eclipse.persistence.config.CacheIsolationType;
 import org.eclipse.persistence.config.SessionCustomizer;
 import org.eclipse.persistence.descriptors.ClassDescriptor;
@@ -62,8 +70,11 @@ import org.eclipse.persistence.sessions.Session;
 
 import temporal.EditionSetEntry;
 import temporal.Effectivity;
+import temporal.Temporal;
 import temporal.TemporalEdition;
 import temporal.TemporalEntity;
+import temporal.TemporalEntityManager;
+import temporal.TemporalFetchPlan;
 import temporal.TemporalHelper;
 
 /**
@@ -76,73 +87,130 @@ import temporal.TemporalHelper;
  */
 public class ConfigureTemporalDescriptors implements SessionCustomizer {
 
+    /**
+     * System property with the number of threads used to create the edition
+     * types. Defaults to the number of available processors.
+     */
+    public static final String THREADS_PROPERTY = "temporal.customize.threads";
+
+    /**
+     * System property with the {@link BatchFetchType} used by the address,
+     * phones and other relationships of edition descriptors, or NONE to read
+     * them one source at a time. Defaults to IN.
+     */
+    public static final String BATCH_FETCH_PROPERTY = "temporal.batch.fetch";
+
     @Override
     public void customize(Session session) throws Exception {
-        DynamicClassLoader dcl = new DynamicClassLoader(session.getPlatform().getConversionManager().getLoader());
+        // Edition types are shared with other sessions using the same loader
+        ClassLoader loader = session.getPlatform().getConversionManager().getLoader();
+        DynamicClassLoader dcl = EditionClassRegistry.getInstance().acquire(loader);
+        session.getEventManager().addListener(new EditionClassRegistry.Release(loader));
         session.getPlatform().getConversionManager().setLoader(dcl);
+        EditionClassCache classCache = EditionClassCache.getInstance();
 
         // Create edition descriptor for all subclasses of TemporalEntity
         List<ClassDescriptor> editionDescriptors = new ArrayList<ClassDescriptor>();
         List<ClassDescriptor> editionViewDescriptors = new ArrayList<ClassDescriptor>();
         Map<Class<?>, ClassDescriptor> interfaceDescriptors = new HashMap<Class<?>, ClassDescriptor>();
 
+        List<ClassDescriptor> currents = new ArrayList<ClassDescriptor>();
         for (ClassDescriptor current : session.getProject().getDescriptors().values()) {
             if (!current.isDescriptorForInterface() && TemporalHelper.isTemporalEntity(current.getJavaClass())) {
-                ClassDescriptor editionDesc = createEditionType(session, dcl, current, EDITION);
-                editionDescriptors.add(editionDesc);
-
-                ClassDescriptor editionViewDesc = createEditionType(session, dcl, current, EDITION_VIEW);
-                editionViewDescriptors.add(editionViewDesc);
-
-                configureQueries(current, editionDesc, editionViewDesc, session);
-
-                // Cache related descriptors for easy lookup
-                current.setProperty(CURRENT, current);
-                current.setProperty(EDITION, editionDesc);
-                current.setProperty(EDITION_VIEW, editionViewDesc);
-                editionDesc.setProperty(CURRENT, current);
-                editionDesc.setProperty(EDITION, editionDesc);
-                editionDesc.setProperty(EDITION_VIEW, editionViewDesc);
-                editionViewDesc.setProperty(CURRENT, current);
-                editionViewDesc.setProperty(EDITION, editionDesc);
-                editionViewDesc.setProperty(EDITION_VIEW, editionViewDesc);
-
-                setupInterfaceDescriptor(current, editionDesc, session, interfaceDescriptors);
-
-                // Since the redirector can cause queries to run against
-                // different types it is important that no expression to query
-                // caching be used.
-                current.getQueryManager().setExpressionQueryCacheMaxSize(0);
-
-                // FIX relationships from entity to temporal (non-entity)
-                for (DatabaseMapping mapping : current.getMappings()) {
-                    if (mapping.isForeignReferenceMapping()) {
-                        ForeignReferenceMapping frMapping = (ForeignReferenceMapping) mapping;
-                        if (frMapping.isOneToManyMapping() && TemporalHelper.isTemporal(frMapping.getReferenceClass(), false)) {
-                            OneToManyMapping otmm = (OneToManyMapping) frMapping;
-                            Expression original = otmm.buildSelectionCriteria();
-                            ExpressionBuilder eb = original.getBuilder();
-                            otmm.setSelectionCriteria(original.and(eb.get("effectivity").get("start").equal(0)));
-                        }
+                currents.add(current);
+            }
+        }
+
+        // Generate the classes and clone the descriptors in parallel. All
+        // other configuration is applied sequentially.
+        List<ClassDescriptor[]> editionTypes = createEditionTypes(session, dcl, classCache, currents, getThreads());
+
+        for (int index = 0; index < currents.size(); index++) {
+            ClassDescriptor current = currents.get(index);
+
+            ClassDescriptor editionDesc = editionTypes.get(index)[0];
+            fixInheritance(editionDesc, current, dcl, EDITION);
+            editionDescriptors.add(editionDesc);
+
+            ClassDescriptor editionViewDesc = editionTypes.get(index)[1];
+            fixInheritance(editionViewDesc, current, dcl, EDITION_VIEW);
+            editionViewDescriptors.add(editionViewDesc);
+
+            configureQueries(current, editionDesc, editionViewDesc, session);
+
+            // Writes through the current type change the row shared with
+            // its BOT edition
+            current.getEventManager().addEntityListenerEventListener(new CurrentCacheInvalidator());
+
+            // Cache related descriptors for easy lookup
+            current.setProperty(CURRENT, current);
+            current.setProperty(EDITION, editionDesc);
+            current.setProperty(EDITION_VIEW, editionViewDesc);
+            editionDesc.setProperty(CURRENT, current);
+            editionDesc.setProperty(EDITION, editionDesc);
+            editionDesc.setProperty(EDITION_VIEW, editionViewDesc);
+            editionViewDesc.setProperty(CURRENT, current);
+            editionViewDesc.setProperty(EDITION, editionDesc);
+            editionViewDesc.setProperty(EDITION_VIEW, editionViewDesc);
+
+            setupInterfaceDescriptor(current, editionDesc, session, interfaceDescriptors);
+
+            // Since the redirector can cause queries to run against
+            // different types it is important that no expression to query
+            // caching be used.
+            current.getQueryManager().setExpressionQueryCacheMaxSize(0);
+
+            // FIX relationships from entity to temporal (non-entity)
+            for (DatabaseMapping mapping : current.getMappings()) {
+                if (mapping.isForeignReferenceMapping()) {
+                    ForeignReferenceMapping frMapping = (ForeignReferenceMapping) mapping;
+                    if (frMapping.isOneToManyMapping() && TemporalHelper.isTemporal(frMapping.getReferenceClass(), false)) {
+                        OneToManyMapping otmm = (OneToManyMapping) frMapping;
+                        Expression original = otmm.buildSelectionCriteria();
+                        ExpressionBuilder eb = original.getBuilder();
+                        otmm.setSelectionCriteria(original.and(eb.get("effectivity").get("start").equal(0)));
                     }
                 }
-
-                // TODO: Configure Wrapper policies
-                // current.setWrapperPolicy(new EditionWrapperPolicy());
-                // editionDesc.setWrapperPolicy(new EditionWrapperPolicy());
             }
+
+            // TODO: Configure Wrapper policies
+            // current.setWrapperPolicy(new EditionWrapperPolicy());
+            // editionDesc.setWrapperPolicy(new EditionWrapperPolicy());
         }
 
-        // Fix all relationship FKs to edition
+        // Fix all relationship FKs to edition. Editions are shared in the
+        // session cache while their relationships, which depend on the
+        // effective time, are not cacheable and only held in the unit of work.
+        EditionCacheListener editionCacheListener = new EditionCacheListener();
+        ContinuityBatchLoader continuityBatchLoader = new ContinuityBatchLoader();
+        BatchFetchType batchFetchType = getBatchFetchType();
         for (ClassDescriptor desc : editionDescriptors) {
-            fixEditionRelationships(desc, dcl, EDITION);
-            desc.setCacheIsolation(CacheIsolationType.ISOLATED);
+            fixEditionRelationships(desc, dcl, EDITION, batchFetchType);
+            desc.setCacheIsolation(CacheIsolationType.PROTECTED);
+            desc.setProperty(DescriptorHelper.EDITION_CACHE, new EditionCache(Math.max(desc.getIdentityMapSize(), 1)));
+            desc.setProperty(DescriptorHelper.COPY_PLAN, new EditionCopyPlan(desc));
+            desc.getEventManager().addListener(editionCacheListener);
+            desc.getEventManager().addListener(continuityBatchLoader);
         }
 
         // Fix all relationship FKs to edition view
         for (ClassDescriptor desc : editionViewDescriptors) {
-            fixEditionRelationships(desc, dcl, EDITION_VIEW);
+            fixEditionRelationships(desc, dcl, EDITION_VIEW, null);
             desc.setCacheIsolation(CacheIsolationType.ISOLATED);
+            desc.getEventManager().addListener(continuityBatchLoader);
+        }
+
+        // Index the temporal clones registered in each TemporalEntityManager
+        // and register the attribute ordinals used by EditionSetEntry masks
+        Set<ClassDescriptor> temporalDescriptors = new HashSet<ClassDescriptor>(session.getProject().getDescriptors().values());
+        temporalDescriptors.addAll(editionDescriptors);
+        temporalDescriptors.addAll(editionViewDescriptors);
+        CloneIndexListener cloneIndexListener = new CloneIndexListener();
+        for (ClassDescriptor desc : temporalDescriptors) {
+            if (!desc.isDescriptorForInterface() && TemporalHelper.isTemporal(desc.getJavaClass(), true)) {
+                desc.getEventManager().addListener(cloneIndexListener);
+                AttributeOrdinals.register(desc);
+            }
         }
 
         session.getProject().addDescriptors(editionDescriptors, (DatabaseSessionImpl) session);
@@ -153,8 +221,20 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
 
         session.getEventManager().addListener(new PropagateEditionChangesListener());
 
-        // Disable the JPQL parse cache so that queries are evaluated against
-        // their type with effectivity and not just based on previous queries.
+        // Opt-in result cache, disabled until a size is set
+        session.setProperty(TemporalResultCache.PROPERTY, new TemporalResultCache());
+        session.getEventManager().addListener(new ResultCacheInvalidator());
+
+        // Shared cache invalidation of bulk EditionSet statements
+        session.getEventManager().addListener(new AfterCommitInvalidator());
+
+        // Named fetch plans added through TemporalEntityManager
+        session.setProperty(TemporalFetchPlan.PROPERTY, new ConcurrentHashMap<String, TemporalFetchPlan>());
+
+        // Replace the JPQL parse cache with one keyed on the temporal mode as
+        // well so that queries are evaluated against their type with
+        // effectivity and not just based on previous queries.
+        session.setProperty(TemporalQueryCache.PROPERTY, new TemporalQueryCache(session.getProject().getJPQLParseCacheMaxSize()));
         session.getProject().setJPQLParseCacheMaxSize(0);
     }
 
@@ -164,12 +244,14 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
      * 
      * @return edition {@link ClassDescriptor}
      */
-    private ClassDescriptor createEditionType(Session session, DynamicClassLoader dcl, ClassDescriptor source, String suffix) {
+    private ClassDescriptor createEditionType(Session session, DynamicClassLoader dcl, EditionClassCache classCache, ClassDescriptor source, String suffix) throws ClassNotFoundException {
         String interfaceName = source.getJavaClassName() + suffix + "I";
-        Class<?> infc = dcl.createDynamicClass(interfaceName, new EditionInterfaceClassWriter(source.getJavaClass().getInterfaces()[0]));
+        Class<?> parentInterface = source.getJavaClass().getInterfaces()[0];
+        Class<?> infc = loadOrCreateClass(dcl, classCache, interfaceName, parentInterface, new EditionInterfaceClassWriter(parentInterface));
 
         String className = source.getJavaClassName() + suffix;
-        Class<?> cls = dcl.createDynamicClass(className, new EditionClassWriter(source.getJavaClass(), infc));
+        List<String> trackedAttributes = EditionClassWriter.getTrackedAttributes(source);
+        Class<?> cls = loadOrCreateClass(dcl, classCache, className, source.getJavaClass(), new EditionClassWriter(source.getJavaClass(), infc, trackedAttributes));
 
         ClassDescriptor desc = (ClassDescriptor) source.clone();
         desc.setJavaClassName(className);
@@ -181,11 +263,23 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
         desc.getEventManager().addEntityListenerEventListener(new CurrentCacheInvalidator());
 
         // Configure attribute change tracking as initialization requires
-        // weaving interfaces directly on each class
+        // weaving interfaces directly on each class. Edition classes of
+        // entities which were not woven implement ChangeTracker themselves
+        // if all of their attributes can be tracked.
         if (ChangeTracker.class.isAssignableFrom(desc.getJavaClass())) {
             desc.setObjectChangePolicy(new AttributeChangeTrackingPolicy());
         }
 
+        return desc;
+    }
+
+    /**
+     * Point the inheritance policy of the edition descriptor at the edition
+     * types of its parent and subclasses. As these types are shared by the
+     * entities of a hierarchy this is done sequentially after
+     * {@link #createEditionTypes(Session, DynamicClassLoader, EditionClassCache, List, int)}.
+     */
+    private void fixInheritance(ClassDescriptor desc, ClassDescriptor source, DynamicClassLoader dcl, String suffix) {
         if (desc.hasInheritance()) {
             Map<?, ?> classIndicatorMapping = fixEditionMap(source.getInheritancePolicy().getClassIndicatorMapping(), dcl, suffix);
             desc.getInheritancePolicy().setClassIndicatorMapping(classIndicatorMapping);
@@ -193,8 +287,139 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
             desc.getInheritancePolicy().setClassNameIndicatorMapping(classNameIndicatorMapping);
             fixParentClass(desc.getInheritancePolicy(), dcl, suffix);
         }
+    }
 
-        return desc;
+    /**
+     * @return the number of threads configured with {@value #THREADS_PROPERTY}
+     *         or the number of available processors
+     * @throws IllegalArgumentException
+     *             if the {@value #THREADS_PROPERTY} property is not a
+     *             positive integer
+     */
+    private int getThreads() {
+        String threads = System.getProperty(THREADS_PROPERTY);
+        if (threads == null || threads.length() == 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        int count;
+        try {
+            count = Integer.parseInt(threads.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + THREADS_PROPERTY + ": " + threads + ", expected a positive integer", e);
+        }
+        if (count <= 0) {
+            throw new IllegalArgumentException("Invalid " + THREADS_PROPERTY + ": " + threads + ", expected a positive integer");
+        }
+        return count;
+    }
+
+    /**
+     * @return the batch fetch type for edition relationships or
+     *         <code>null</code> if batch fetching is disabled
+     * @throws IllegalArgumentException
+     *             if the {@value #BATCH_FETCH_PROPERTY} property is not a
+     *             {@link BatchFetchType} or NONE
+     */
+    private BatchFetchType getBatchFetchType() {
+        String type = System.getProperty(BATCH_FETCH_PROPERTY);
+        if (type == null || type.length() == 0) {
+            return BatchFetchType.IN;
+        }
+        if (type.equalsIgnoreCase("NONE")) {
+            return null;
+        }
+        try {
+            return BatchFetchType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + BATCH_FETCH_PROPERTY + ": " + type + ", expected one of " + Arrays.toString(BatchFetchType.values()) + " or NONE", e);
+        }
+    }
+
+    /**
+     * Create the edition and edition view types of each current descriptor
+     * using up to the provided number of threads. The classes of each entity
+     * are generated, and its descriptor cloned, by a single task so no
+     * descriptor is used by more than one thread. The descriptors are not
+     * added to the session.
+     * 
+     * @return the edition and edition view descriptors of each current
+     *         descriptor in the same order
+     */
+    public List<ClassDescriptor[]> createEditionTypes(final Session session, final DynamicClassLoader dcl, final EditionClassCache classCache, List<ClassDescriptor> currents, int threads) throws Exception {
+        List<ClassDescriptor[]> editionTypes = new ArrayList<ClassDescriptor[]>(currents.size());
+
+        if (threads <= 1 || currents.size() <= 1) {
+            for (ClassDescriptor current : currents) {
+                editionTypes.add(createEditionTypes(session, dcl, classCache, current));
+            }
+            return editionTypes;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, currents.size()));
+        try {
+            List<Future<ClassDescriptor[]>> futures = new ArrayList<Future<ClassDescriptor[]>>(currents.size());
+            for (final ClassDescriptor current : currents) {
+                futures.add(executor.submit(new Callable<ClassDescriptor[]>() {
+                    @Override
+                    public ClassDescriptor[] call() throws Exception {
+                        return createEditionTypes(session, dcl, classCache, current);
+                    }
+                }));
+            }
+            for (Future<ClassDescriptor[]> future : futures) {
+                try {
+                    editionTypes.add(future.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return editionTypes;
+    }
+
+    private ClassDescriptor[] createEditionTypes(Session session, DynamicClassLoader dcl, EditionClassCache classCache, ClassDescriptor current) throws ClassNotFoundException {
+        return new ClassDescriptor[] { createEditionType(session, dcl, classCache, current, EDITION), createEditionType(session, dcl, classCache, current, EDITION_VIEW) };
+    }
+
+    /**
+     * Load the class generated at build time by {@link GenerateEditionClasses}
+     * from the application's class loader, failing if it was generated from
+     * another version of the source, or, if not available, define it in
+     * the {@link DynamicClassLoader} using the bytes held in the
+     * {@link EditionClassCache}, if configured, or generated by the writer.
+     * Types already created for another session sharing the loader through
+     * the {@link EditionClassRegistry} are reused if they were generated with
+     * the same tracked attributes. The bytes are written
+     * before locking the loader so classes can be generated in parallel.
+     */
+    private Class<?> loadOrCreateClass(DynamicClassLoader dcl, EditionClassCache classCache, String className, Class<?> source, DynamicClassWriter writer) throws ClassNotFoundException {
+        Class<?> type = GenerateEditionClasses.loadGeneratedClass(dcl.getParent(), className, source, writer);
+        if (type != null) {
+            return type;
+        }
+        EditionClassRegistry registry = EditionClassRegistry.getInstance();
+        String variant = EditionClassCache.getVariant(writer);
+        type = registry.getType(dcl, className, variant);
+        if (type == null) {
+            if (classCache != null) {
+                writer = classCache.getWriter(dcl, className, source, writer);
+            } else {
+                writer = new GeneratedClassWriter(source, writer.writeClass(dcl, className));
+            }
+            synchronized (dcl) {
+                type = registry.getType(dcl, className, variant);
+                if (type == null) {
+                    type = dcl.createDynamicClass(className, writer);
+                    registry.addType(dcl, className, variant, type);
+                }
+            }
+        }
+        return type;
     }
 
     private void fixParentClass(InheritancePolicy inheritancePolicy, DynamicClassLoader dcl, String sufix) {
@@ -243,7 +468,7 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
      * structures are in use.
      */
     @SuppressWarnings("unchecked")
-    private void fixEditionRelationships(ClassDescriptor descriptor, DynamicClassLoader dcl, String suffix) throws ClassNotFoundException {
+    private void fixEditionRelationships(ClassDescriptor descriptor, DynamicClassLoader dcl, String suffix, BatchFetchType batchFetchType) throws ClassNotFoundException {
         Set<OneToOneMapping> temporalMappings = new HashSet<OneToOneMapping>();
         descriptor.setProperty(DescriptorHelper.TEMPORAL_MAPPINGS, temporalMappings);
         
@@ -273,6 +498,7 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
                         OneToOneMapping otoMapping = (OneToOneMapping) frMapping;
                         fixFKNames((otoMapping).getSourceToTargetKeyFields());
                         temporalMappings.add(otoMapping);
+                        setBatchFetch(frMapping, batchFetchType);
                     } else if (frMapping.isOneToManyMapping()) {
                         OneToManyMapping otMMapping = (OneToManyMapping) frMapping;
                         fixFKNames(otMMapping.getTargetForeignKeysToSourceKeys());
@@ -290,6 +516,7 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
                             }
                             otMMapping.addTargetForeignKeyFieldName(sourceField.getQualifiedName(), targetField.getQualifiedName());
                         }
+                        setBatchFetch(frMapping, batchFetchType);
                     } else {
                         throw new RuntimeException("Unsupported temporal entity mapping: " + frMapping);
                     }
@@ -307,6 +534,8 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
                         Expression startExp = effTsExp.greaterThanEqual(eb.get("effectivity").get("start"));
                         Expression endExp = effTsExp.lessThan(eb.get("effectivity").get("end"));
                         otmm.setSelectionCriteria(original.and(startExp.and(endExp)));
+                        frMapping.setIsCacheable(false);
+                        setBatchFetch(frMapping, batchFetchType);
                     } else {
                         throw new RuntimeException("Unsupported temporal mapping: " + frMapping);
                     }
@@ -315,6 +544,20 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
         }
     }
 
+    /**
+     * Read the relationship for all sources of the query reading them when it
+     * is first accessed. The batch query is built from the mapping's selection
+     * criteria and executed in the same session so the edition descriptor's
+     * additional criteria and any EFF_TS property parameter are applied with
+     * the session's effective time.
+     */
+    private void setBatchFetch(ForeignReferenceMapping mapping, BatchFetchType batchFetchType) {
+        if (batchFetchType != null) {
+            mapping.setUsesBatchReading(true);
+            mapping.setBatchFetchType(batchFetchType);
+        }
+    }
+
     /**
      * Replace the FK field references to OID to use the continuity id (CID) for
      * edition relationships. This works with the temporal range to get the
@@ -349,21 +592,48 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
         addCidQueryKey("cid", currentDesc, session);
 
         // Add Named Queries for editions
-        ReadAllQuery raq = new ReadAllQuery(editionDesc.getJavaClass());
-        raq.setName(editionDesc.getAlias() + ".find");
-        ExpressionBuilder eb = raq.getExpressionBuilder();
-        raq.setSelectionCriteria(eb.get("id").equal(eb.getParameter("ID")));
-        raq.addArgument("ID", int.class);
-        session.addQuery(raq.getName(), raq);
-
-        raq = new ReadAllQuery(editionDesc.getJavaClass());
-        raq.setName(editionDesc.getAlias() + ".all");
-        SQLCall call = new SQLCall("SELECT * From TPERSON WHERE CID = #CID ORDER BY START_TS");
-        call.setHasCustomSQLArguments(true);
-        call.setCustomSQLArgumentType("CID", int.class);
-        raq.setCall(call);
-        raq.addArgument("CID", int.class);
-        session.addQuery(raq.getName(), raq);
+        ReadObjectQuery roq = new ReadObjectQuery(editionDesc.getJavaClass());
+        roq.setName(editionDesc.getAlias() + ".find");
+        ExpressionBuilder eb = roq.getExpressionBuilder();
+        roq.setSelectionCriteria(eb.get("id").equal(eb.getParameter("ID")));
+        roq.addArgument("ID", int.class);
+        session.addQuery(roq.getName(), roq);
+
+        // Native SQL is used to avoid the edition's additional criteria
+        DatabaseField cidField = getCidField(editionDesc, session);
+        if (cidField != null) {
+            ReadAllQuery raq = new ReadAllQuery(editionDesc.getJavaClass());
+            raq.setName(editionDesc.getAlias() + ".all");
+            SQLCall call = new SQLCall("SELECT * FROM " + editionDesc.getTableName() + " WHERE " + cidField.getName() + " = #CID ORDER BY " + getStartFieldName(session));
+            call.setHasCustomSQLArguments(true);
+            call.setCustomSQLArgumentType("CID", int.class);
+            raq.setCall(call);
+            raq.addArgument("CID", int.class);
+            session.addQuery(raq.getName(), raq);
+        }
+
+        // Page of a continuity's history after a start time used by
+        // TemporalEntityManager.getHistory. The editions read are not cached
+        // so a long history can be streamed.
+        ReadAllQuery historyQuery = new ReadAllQuery(editionViewDesc.getJavaClass());
+        historyQuery.setName(editionViewDesc.getAlias() + ".history");
+        ExpressionBuilder heb = historyQuery.getExpressionBuilder();
+        Expression startExp = heb.get("effectivity").get("start");
+        historyQuery.setSelectionCriteria(heb.get("cid").equal(heb.getParameter("CID")).and(startExp.greaterThan(heb.getParameter("START"))));
+        historyQuery.addOrdering(startExp.ascending());
+        historyQuery.addArgument("CID", int.class);
+        historyQuery.addArgument("START", long.class);
+        historyQuery.setIsReadOnly(true);
+        historyQuery.dontMaintainCache();
+        session.addQuery(historyQuery.getName(), historyQuery);
+    }
+
+    /**
+     * @return the column name the {@link Effectivity} start is stored in
+     */
+    private String getStartFieldName(Session session) {
+        ClassDescriptor effectivityDesc = session.getClassDescriptor(Effectivity.class);
+        return effectivityDesc.getMappingForAttributeName("start").getField().getName();
     }
 
     private void addCidQueryKey(String keyName, ClassDescriptor desc, Session session) {
@@ -453,7 +723,9 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
      * This redirector is used on the edition descriptor's M:1 continuity
      * mapping to check for cache hits. The query on the mapping has been
      * altered to use native SQL to avoid the descriptor's additional criteria
-     * so without this there will never be a cache hit.
+     * so without this there will never be a cache hit. On a miss the
+     * continuity is read along with the other pending continuities of the
+     * editions read by the session using the {@link ContinuityBatchLoader}.
      */
     @SuppressWarnings("serial")
     class ContinuityMappingQueryRedirector implements QueryRedirector {
@@ -465,6 +737,14 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
                 return cachedEntity;
             }
 
+            Object continuityId = arguments.get("CID");
+            if (continuityId instanceof Number) {
+                Object continuity = ContinuityBatchLoader.load((AbstractSession) session, query, ((Number) continuityId).intValue());
+                if (continuity != null) {
+                    return continuity;
+                }
+            }
+
             query.setDoNotRedirect(true);
             return ((AbstractSession) session).executeQuery(query, (AbstractRecord) arguments);
         }
@@ -476,6 +756,11 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
      * for an edition entity with a start effectivity time of
      * {@value Effectivity#BOT}.
      * <p>
+     * The continuity's entries in the {@link EditionCache} are also removed on
+     * any write or delete since the start or end of its editions may have
+     * changed. When a row is written through the current or edition view type
+     * the shared edition object for the same row is invalidated.
+     * <p>
      * A {@link DescriptorEventListener} approach is used which means the
      * invalidation happens after the write but before the transaction commits.
      * This could result in cache invalidations for transactions that do not
@@ -486,12 +771,112 @@ public class ConfigureTemporalDescriptors implements SessionCustomizer {
         @Override
         public void postWrite(DescriptorEvent event) {
             TemporalEntity<?> entity = (TemporalEntity<?>) event.getSource();
-            if (entity.getEffectivity().getStart() == Effectivity.BOT) {
-                AbstractSession session = event.getSession().getRootSession(event.getQuery());
-                Object pk = event.getDescriptor().getObjectBuilder().extractPrimaryKeyFromObject(entity.getContinuity(), session);
+            AbstractSession session = event.getSession().getRootSession(event.getQuery());
+            ClassDescriptor descriptor = event.getDescriptor();
+
+            if (entity.getEffectivity().getStart() == Effectivity.BOT && descriptor.getProperty(CURRENT) != descriptor) {
+                Object pk = descriptor.getObjectBuilder().extractPrimaryKeyFromObject(entity.getContinuity(), session);
                 ClassDescriptor currentDesc = DescriptorHelper.getCurrentDescriptor(session, entity.getClass());
                 session.getIdentityMapAccessor().invalidateObject(pk, currentDesc.getJavaClass());
             }
+            invalidateEditions(entity, descriptor, session);
+        }
+
+        @Override
+        public void postDelete(DescriptorEvent event) {
+            invalidateEditions((TemporalEntity<?>) event.getSource(), event.getDescriptor(), event.getSession().getRootSession(event.getQuery()));
+        }
+
+        private void invalidateEditions(TemporalEntity<?> entity, ClassDescriptor descriptor, AbstractSession session) {
+            ClassDescriptor editionDesc = (ClassDescriptor) descriptor.getProperty(EDITION);
+            if (editionDesc == null) {
+                return;
+            }
+            EditionCache editionCache = DescriptorHelper.getEditionCache(editionDesc);
+            if (editionCache != null) {
+                editionCache.invalidate(entity.getContinuityId());
+            }
+            if (editionDesc != descriptor) {
+                Object pk = descriptor.getObjectBuilder().extractPrimaryKeyFromObject(entity, session);
+                session.getIdentityMapAccessor().invalidateObject(pk, editionDesc.getJavaClass());
+            }
+        }
+
+    }
+
+    /**
+     * Record the interval of each edition read from the database in the
+     * {@link EditionCache} of its descriptor.
+     */
+    class EditionCacheListener extends DescriptorEventAdapter {
+
+        @Override
+        public void postBuild(DescriptorEvent event) {
+            cache(event);
+        }
+
+        @Override
+        public void postClone(DescriptorEvent event) {
+            cache(event);
+        }
+
+        @Override
+        public void postRefresh(DescriptorEvent event) {
+            cache(event);
+        }
+
+        private void cache(DescriptorEvent event) {
+            EditionCache editionCache = DescriptorHelper.getEditionCache(event.getDescriptor());
+            if (editionCache != null && event.getSource() instanceof TemporalEntity<?>) {
+                Object pk = event.getDescriptor().getObjectBuilder().extractPrimaryKeyFromObject(event.getSource(), event.getSession());
+                editionCache.put((TemporalEntity<?>) event.getSource(), pk);
+            }
+        }
+
+    }
+
+    /**
+     * Maintain the {@link TemporalCloneIndex} of the
+     * {@link TemporalEntityManager} a temporal object is registered in. Clones
+     * are indexed when registered from the cache or built directly in the unit
+     * of work, when persisted and again when written or refreshed so that
+     * changes to their effectivity are reflected.
+     */
+    class CloneIndexListener extends DescriptorEventAdapter {
+
+        @Override
+        public void postClone(DescriptorEvent event) {
+            index(event);
+        }
+
+        @Override
+        public void postBuild(DescriptorEvent event) {
+            index(event);
+        }
+
+        @Override
+        public void postRefresh(DescriptorEvent event) {
+            index(event);
+        }
+
+        @Override
+        public void prePersist(DescriptorEvent event) {
+            index(event);
+        }
+
+        @Override
+        public void postWrite(DescriptorEvent event) {
+            index(event);
+        }
+
+        private void index(DescriptorEvent event) {
+            AbstractSession session = event.getSession();
+            if (session != null && session.isUnitOfWork() && event.getSource() instanceof Temporal) {
+                TemporalEntityManager tem = (TemporalEntityManager) session.getProperty(TemporalEntityManager.TEMPORAL_EM_PROPERTY);
+                if (tem != null) {
+                    tem.getCloneIndex().add((Temporal) event.getSource());
+                }
+            }
         }
 
     }
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.DescriptorEvent;
+import org.eclipse.persistence.descriptors.DescriptorEventAdapter;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.queries.ReadAllQuery;
+
+import temporal.TemporalEntity;
+import temporal.TemporalEntityManager;
+
+/**
+ * Resolves the continuities of editions in batches. The continuity id of each
+ * edition read, which is not its own continuity, is recorded as pending in
+ * the client session of the persistence context reading it, the parent of its
+ * unit of work. Editions built in the shared server session are not recorded.
+ * When the continuity mapping's query misses the identity map all pending
+ * continuities of the same type which are not cached are read with a single
+ * <code>IN</code> query, up to {@link #BATCH_SIZE} at a time, instead of one
+ * query per edition.
+ * <p>
+ * The pending continuity ids are removed by {@link #clear(AbstractSession)}
+ * when the {@link TemporalEntityManager} is cleared or closed. Only the most
+ * recent {@link #MAX_PENDING} ids of a type are held.
+ * <p>
+ * Configured on edition and edition view descriptors by
+ * {@link ConfigureTemporalDescriptors} and used by its continuity mapping
+ * query redirector.
+ * 
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class ContinuityBatchLoader extends DescriptorEventAdapter {
+
+    /**
+     * Session property holding the pending continuity ids by edition type.
+     */
+    public static final String PROPERTY = ContinuityBatchLoader.class.getName();
+
+    /**
+     * Maximum number of continuities read by one query.
+     */
+    public static final int BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of pending continuity ids held for a type in a
+     * persistence context. The oldest is dropped when another is added.
+     */
+    private static final int MAX_PENDING = 10000;
+
+    @Override
+    public void postBuild(DescriptorEvent event) {
+        addPending(event);
+    }
+
+    @Override
+    public void postClone(DescriptorEvent event) {
+        addPending(event);
+    }
+
+    @Override
+    public void postRefresh(DescriptorEvent event) {
+        addPending(event);
+    }
+
+    private void addPending(DescriptorEvent event) {
+        if (!(event.getSource() instanceof TemporalEntity<?>) || event.getSession() == null) {
+            return;
+        }
+        TemporalEntity<?> edition = (TemporalEntity<?>) event.getSource();
+        int continuityId = edition.getContinuityId();
+        if (continuityId == 0 || continuityId == edition.getId()) {
+            return;
+        }
+        Set<Integer> pending = getPending(event.getSession(), event.getDescriptor().getJavaClass(), true);
+        if (pending == null) {
+            return;
+        }
+        synchronized (pending) {
+            if (pending.add(continuityId) && pending.size() > MAX_PENDING) {
+                Iterator<Integer> oldest = pending.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the client session of the persistence context of the session
+     *         or <code>null</code> if it is not part of one
+     */
+    private static AbstractSession getClientSession(AbstractSession session) {
+        while (session.isUnitOfWork()) {
+            session = session.getParent();
+        }
+        return session.isClientSession() ? session : null;
+    }
+
+    /**
+     * @return the pending continuity ids of the type held in the client
+     *         session of the persistence context or <code>null</code> if not
+     *         created or the session is not part of a persistence context
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<Integer> getPending(AbstractSession session, Class<?> type, boolean create) {
+        session = getClientSession(session);
+        if (session == null) {
+            return null;
+        }
+        ConcurrentMap<Class<?>, Set<Integer>> pending = (ConcurrentMap<Class<?>, Set<Integer>>) session.getProperty(PROPERTY);
+        if (pending == null) {
+            if (!create) {
+                return null;
+            }
+            synchronized (session) {
+                pending = (ConcurrentMap<Class<?>, Set<Integer>>) session.getProperty(PROPERTY);
+                if (pending == null) {
+                    pending = new ConcurrentHashMap<Class<?>, Set<Integer>>();
+                    session.setProperty(PROPERTY, pending);
+                }
+            }
+        }
+        Set<Integer> cids = pending.get(type);
+        if (cids == null && create) {
+            cids = new LinkedHashSet<Integer>();
+            Set<Integer> existing = pending.putIfAbsent(type, cids);
+            if (existing != null) {
+                cids = existing;
+            }
+        }
+        return cids;
+    }
+
+    /**
+     * Read the continuity along with the other pending continuities of the
+     * same type which are not in the session's identity map.
+     * 
+     * @param query
+     *            the continuity mapping's query
+     * @return the continuity or <code>null</code> if there were no other
+     *         continuities pending and the query should be executed
+     */
+    public static Object load(AbstractSession session, DatabaseQuery query, int continuityId) {
+        Class<?> type = query.getReferenceClass();
+        Set<Integer> pending = getPending(session, type, false);
+        if (pending == null) {
+            return null;
+        }
+
+        Set<Integer> continuityIds = new LinkedHashSet<Integer>();
+        continuityIds.add(continuityId);
+        synchronized (pending) {
+            pending.remove(continuityId);
+            for (Iterator<Integer> i = pending.iterator(); i.hasNext() && continuityIds.size() < BATCH_SIZE;) {
+                Integer pendingId = i.next();
+                i.remove();
+                if (session.getIdentityMapAccessor().getFromIdentityMap(pendingId, type) == null) {
+                    continuityIds.add(pendingId);
+                }
+            }
+        }
+        if (continuityIds.size() == 1) {
+            return null;
+        }
+
+        ClassDescriptor descriptor = session.getClassDescriptor(type);
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(descriptor.getTableName()).append(" WHERE OID IN (");
+        for (Iterator<Integer> i = continuityIds.iterator(); i.hasNext();) {
+            sql.append(i.next());
+            if (i.hasNext()) {
+                sql.append(", ");
+            }
+        }
+        ReadAllQuery batchQuery = new ReadAllQuery(type);
+        batchQuery.setSQLString(sql.append(")").toString());
+
+        for (Object continuity : (List<?>) session.executeQuery(batchQuery)) {
+            if (((TemporalEntity<?>) continuity).getId() == continuityId) {
+                return continuity;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remove all pending continuity ids held in the client session of the
+     * persistence context.
+     * 
+     * @see TemporalEntityManager#clear()
+     * @see TemporalEntityManager#close()
+     */
+    public static void clear(AbstractSession session) {
+        session = getClientSession(session);
+        if (session == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Class<?>, Set<Integer>> pending = (Map<Class<?>, Set<Integer>>) session.getProperty(PROPERTY);
+        if (pending != null) {
+            pending.clear();
+        }
+    }
+
+}
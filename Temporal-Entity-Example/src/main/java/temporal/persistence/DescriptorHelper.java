@@ -52,6 +52,18 @@ public class DescriptorHelper {
      */
     public static final String TEMPORAL_MAPPINGS = "TemporalMappings";
 
+    /**
+     * Property name used to hold the {@link EditionCache} on edition
+     * descriptors
+     */
+    public static final String EDITION_CACHE = "EditionCache";
+
+    /**
+     * Property name used to hold the {@link EditionCopyPlan} on edition
+     * descriptors
+     */
+    public static final String COPY_PLAN = "CopyPlan";
+
     private static ClassDescriptor getDescriptor(Session session, Class<?> entityClass, String type) {
         ClassDescriptor desc = session.getClassDescriptor(entityClass);
         if (desc == null) {
@@ -96,4 +108,12 @@ public class DescriptorHelper {
         return (Set<OneToOneMapping>) descriptor.getProperty(TEMPORAL_MAPPINGS);
     }
 
+    public static EditionCache getEditionCache(ClassDescriptor descriptor) {
+        return (EditionCache) descriptor.getProperty(EDITION_CACHE);
+    }
+
+    public static EditionCopyPlan getCopyPlan(ClassDescriptor descriptor) {
+        return (EditionCopyPlan) descriptor.getProperty(COPY_PLAN);
+    }
+
 }
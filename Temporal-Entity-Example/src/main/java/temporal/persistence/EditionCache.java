@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import temporal.Effectivity;
+import temporal.TemporalEntity;
+
+/**
+ * Shared index of the editions of each continuity held in the session cache
+ * for an edition descriptor. Editions are keyed by continuity id (CID) and
+ * start time (START_TS) so the edition covering an effective time can be
+ * found across EntityManagers without a query.
+ * <p>
+ * Only the primary key and interval of each edition are held. The edition
+ * itself is read from the shared identity map and callers must verify its
+ * {@link Effectivity} since an entry may be stale until its continuity is
+ * invalidated.
+ * <p>
+ * The number of continuities held is bounded, like the shared identity map of
+ * the edition descriptor it indexes, and the least recently used continuity
+ * is removed first. The editions of a removed continuity are found with a
+ * query again.
+ *
+ * @see ConfigureTemporalDescriptors
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionCache {
+
+    private int maxSize;
+
+    private Map<Integer, NavigableMap<Long, Interval>> continuities = new LinkedHashMap<Integer, NavigableMap<Long, Interval>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, NavigableMap<Long, Interval>> eldest) {
+            return size() > getMaxSize();
+        }
+    };
+
+    public EditionCache(int maxSize) {
+        setMaxSize(maxSize);
+    }
+
+    /**
+     * @return the maximum number of continuities held
+     */
+    public synchronized int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid EditionCache size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        while (this.continuities.size() > maxSize) {
+            this.continuities.remove(this.continuities.keySet().iterator().next());
+        }
+    }
+
+    public synchronized int size() {
+        return this.continuities.size();
+    }
+
+    /**
+     * Record the interval of an edition read from the database.
+     */
+    public synchronized void put(TemporalEntity<?> edition, Object primaryKey) {
+        int continuityId = edition.getContinuityId();
+        if (continuityId <= 0 || primaryKey == null) {
+            return;
+        }
+        NavigableMap<Long, Interval> editions = this.continuities.get(continuityId);
+        if (editions == null) {
+            editions = new TreeMap<Long, Interval>();
+            this.continuities.put(continuityId, editions);
+        }
+        Effectivity effectivity = edition.getEffectivity();
+        editions.put(effectivity.getStart(), new Interval(effectivity.getEnd(), primaryKey));
+    }
+
+    /**
+     * @return the primary key of the edition of the continuity covering the
+     *         effective time or <code>null</code> if not cached
+     */
+    public synchronized Object getPrimaryKey(int continuityId, Long effective) {
+        NavigableMap<Long, Interval> editions = this.continuities.get(continuityId);
+        if (editions == null) {
+            return null;
+        }
+        long time = effective == null ? Effectivity.BOT : effective;
+        Map.Entry<Long, Interval> entry = editions.floorEntry(time);
+        if (entry != null && entry.getValue().end > time) {
+            return entry.getValue().primaryKey;
+        }
+        return null;
+    }
+
+    /**
+     * Remove all cached editions of a continuity. A write to any of its
+     * editions may change the start or end of its neighbours.
+     */
+    public synchronized void invalidate(int continuityId) {
+        this.continuities.remove(continuityId);
+    }
+
+    public synchronized void clear() {
+        this.continuities.clear();
+    }
+
+    private static class Interval {
+
+        private long end;
+
+        private Object primaryKey;
+
+        private Interval(long end, Object primaryKey) {
+            this.end = end;
+            this.primaryKey = primaryKey;
+        }
+    }
+
+}
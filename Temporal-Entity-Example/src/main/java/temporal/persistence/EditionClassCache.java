@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.dynamic.DynamicClassWriter;
+
+/**
+ * Directory of the bytes generated by {@link EditionClassWriter} and
+ * {@link EditionInterfaceClassWriter} kept across restarts. Each class file is
+ * keyed by a hash of the bytes of the class or interface it is generated
+ * from, the generated class name, the attributes it tracks changes of and
+ * {@link #GENERATOR_VERSION}, so a change to either the entity or the writers
+ * results in a new entry. Entries which can not be read are regenerated and
+ * failures to write an entry are ignored.
+ * <p>
+ * The cache is used by {@link ConfigureTemporalDescriptors} when the
+ * {@value #DIRECTORY_PROPERTY} system property is set. Classes precompiled by
+ * {@link GenerateEditionClasses} are still preferred. They are validated with
+ * the same key.
+ * 
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionClassCache {
+
+    /**
+     * System property naming the directory used to cache generated classes.
+     */
+    public static final String DIRECTORY_PROPERTY = "temporal.edition.cache.dir";
+
+    /**
+     * Version of the generated bytes. This must be incremented when
+     * {@link EditionClassWriter} or {@link EditionInterfaceClassWriter}
+     * change the classes they write.
+     */
+    public static final int GENERATOR_VERSION = 2;
+
+    private File directory;
+
+    private AtomicLong hits = new AtomicLong();
+
+    private AtomicLong misses = new AtomicLong();
+
+    public EditionClassCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the cache configured by the {@value #DIRECTORY_PROPERTY} system
+     *         property or <code>null</code> if not set
+     */
+    public static EditionClassCache getInstance() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.length() == 0) {
+            return null;
+        }
+        return new EditionClassCache(new File(directory));
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Return a writer of the class which provides the cached bytes or, on a
+     * miss, the bytes generated by the writer which are then cached.
+     * 
+     * @param source
+     *            the class or interface the generated class is based on
+     */
+    public DynamicClassWriter getWriter(DynamicClassLoader dcl, String className, Class<?> source, DynamicClassWriter writer) throws ClassNotFoundException {
+        File file = getFile(className, source, getVariant(writer));
+        if (file == null) {
+            return writer;
+        }
+
+        byte[] bytes = null;
+        if (file.isFile()) {
+            bytes = read(file);
+        }
+        if (bytes != null) {
+            this.hits.incrementAndGet();
+        } else {
+            this.misses.incrementAndGet();
+            bytes = writer.writeClass(dcl, className);
+            write(file, bytes);
+        }
+        return new GeneratedClassWriter(source, bytes);
+    }
+
+    /**
+     * @param variant
+     *            the options of the writer which change the generated bytes
+     * @return the cache file for the generated class or <code>null</code> if
+     *         the bytes of the source are not available to compute its key
+     */
+    protected File getFile(String className, Class<?> source, String variant) {
+        String key = getKey(className, source, variant);
+        if (key == null) {
+            return null;
+        }
+        return new File(this.directory, className + '-' + key + ".class");
+    }
+
+    /**
+     * @return the options of the writer which change the generated bytes
+     */
+    public static String getVariant(DynamicClassWriter writer) {
+        if (writer instanceof EditionClassWriter && ((EditionClassWriter) writer).getTrackedAttributes() != null) {
+            return ((EditionClassWriter) writer).getTrackedAttributes().toString();
+        }
+        return "";
+    }
+
+    /**
+     * @return the hash of the source bytes, generated class name, variant and
+     *         {@link #GENERATOR_VERSION} identifying the generated bytes or
+     *         <code>null</code> if the bytes of the source are not available
+     */
+    public static String getKey(String className, Class<?> source, String variant) {
+        byte[] sourceBytes = getClassBytes(source);
+        if (sourceBytes == null) {
+            return null;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        digest.update(sourceBytes);
+        digest.update((className + ":" + GENERATOR_VERSION + ":" + variant).getBytes());
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    private static byte[] getClassBytes(Class<?> source) {
+        ClassLoader loader = source.getClassLoader();
+        if (loader == null) {
+            return null;
+        }
+        InputStream in = loader.getResourceAsStream(source.getName().replace('.', '/') + ".class");
+        if (in == null) {
+            return null;
+        }
+        try {
+            return readFully(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] read(File file) {
+        try {
+            return readFully(new FileInputStream(file));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the bytes to a temporary file which is then renamed so that other
+     * processes sharing the directory never read a partial entry.
+     */
+    private void write(File file, byte[] bytes) {
+        try {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+                return;
+            }
+            File temp = File.createTempFile(file.getName(), ".tmp", this.directory);
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            // The class is generated again on the next startup
+        }
+    }
+
+}
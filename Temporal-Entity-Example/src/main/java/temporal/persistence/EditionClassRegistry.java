@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * JVM wide registry of the edition types generated by
+ * {@link ConfigureTemporalDescriptors}. All persistence units customized with
+ * the same application class loader share one {@link DynamicClassLoader} and
+ * the types created in it, so additional EntityManagerFactories for the same
+ * entities, such as one per tenant, reuse the generated classes instead of
+ * defining them again.
+ * <p>
+ * Each customized session holds a reference on its class loader's entry which
+ * is released by {@link Release} on logout. The entry, and so its generated
+ * classes, is dropped when the last session using it is closed.
+ * <p>
+ * Class loaders are held weakly so an application that is undeployed without
+ * closing its sessions does not leak its loader. The entry is only weakly
+ * referenced by the registry and is kept alive by its {@link DynamicClassLoader},
+ * which the customized sessions use to load their edition types.
+ * <p>
+ * Types are registered by class name with the variant they were generated
+ * with. A persistence unit mapping the same class so that its edition type
+ * would be generated differently fails instead of reusing the type.
+ * 
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionClassRegistry {
+
+    private static final EditionClassRegistry INSTANCE = new EditionClassRegistry();
+
+    private Map<ClassLoader, WeakReference<Entry>> entries = new WeakHashMap<ClassLoader, WeakReference<Entry>>();
+
+    public static EditionClassRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Acquire a reference on the shared {@link DynamicClassLoader} of the
+     * application class loader, creating it if this is the first. The entry is
+     * dropped once the returned loader is no longer used, even if the
+     * reference is never released.
+     */
+    public synchronized DynamicClassLoader acquire(ClassLoader loader) {
+        Entry entry = getEntry(loader);
+        if (entry == null) {
+            entry = new Entry(loader);
+            this.entries.put(loader, new WeakReference<Entry>(entry));
+        }
+        entry.references++;
+        return entry.dcl;
+    }
+
+    /**
+     * Release a reference acquired with {@link #acquire(ClassLoader)}.
+     */
+    public synchronized void release(ClassLoader loader) {
+        Entry entry = getEntry(loader);
+        if (entry != null && --entry.references <= 0) {
+            this.entries.remove(loader);
+        }
+    }
+
+    /**
+     * @param variant
+     *            the options the type is generated with, see
+     *            {@link EditionClassCache#getVariant(org.eclipse.persistence.dynamic.DynamicClassWriter)}
+     * @return the type previously created in the shared loader or
+     *         <code>null</code>
+     * @throws IllegalStateException
+     *             if the type was created with another variant, such as other
+     *             tracked attributes, by a persistence unit mapping the class
+     *             differently
+     */
+    public Class<?> getType(DynamicClassLoader dcl, String className, String variant) {
+        Entry entry = getEntry(dcl);
+        Type type = entry == null ? null : entry.types.get(className);
+        if (type == null) {
+            return null;
+        }
+        if (!type.variant.equals(variant)) {
+            throw new IllegalStateException("Edition type " + className + " was created for another mapping with variant: " + type.variant + " not: " + variant);
+        }
+        return type.type;
+    }
+
+    public void addType(DynamicClassLoader dcl, String className, String variant, Class<?> type) {
+        Entry entry = getEntry(dcl);
+        if (entry != null) {
+            entry.types.put(className, new Type(type, variant));
+        }
+    }
+
+    public synchronized int getReferenceCount(ClassLoader loader) {
+        Entry entry = getEntry(loader);
+        return entry == null ? 0 : entry.references;
+    }
+
+    public synchronized int getTypeCount(ClassLoader loader) {
+        Entry entry = getEntry(loader);
+        return entry == null ? 0 : entry.types.size();
+    }
+
+    private synchronized Entry getEntry(DynamicClassLoader dcl) {
+        Entry entry = getEntry(dcl.getParent());
+        return entry != null && entry.dcl == dcl ? entry : null;
+    }
+
+    private Entry getEntry(ClassLoader loader) {
+        WeakReference<Entry> reference = this.entries.get(loader);
+        return reference == null ? null : reference.get();
+    }
+
+    private static class Entry {
+
+        private DynamicClassLoader dcl;
+
+        private int references = 0;
+
+        private Map<String, Type> types = new ConcurrentHashMap<String, Type>();
+
+        private Entry(ClassLoader loader) {
+            this.dcl = new EntryClassLoader(loader, this);
+        }
+    }
+
+    /**
+     * Shared loader of an {@link Entry} which keeps the entry alive for as
+     * long as the loader is used.
+     */
+    private static class EntryClassLoader extends DynamicClassLoader {
+
+        @SuppressWarnings("unused")
+        private Entry entry;
+
+        private EntryClassLoader(ClassLoader parent, Entry entry) {
+            super(parent);
+            this.entry = entry;
+        }
+    }
+
+    private static class Type {
+
+        private Class<?> type;
+
+        private String variant;
+
+        private Type(Class<?> type, String variant) {
+            this.type = type;
+            this.variant = variant;
+        }
+    }
+
+    /**
+     * Release the reference a session holds on the registry when it logs out.
+     */
+    public static class Release extends SessionEventAdapter {
+
+        private ClassLoader loader;
+
+        private boolean released = false;
+
+        public Release(ClassLoader loader) {
+            this.loader = loader;
+        }
+
+        @Override
+        public synchronized void postLogout(SessionEvent event) {
+            if (!this.released) {
+                this.released = true;
+                getInstance().release(this.loader);
+            }
+        }
+    }
+
+}
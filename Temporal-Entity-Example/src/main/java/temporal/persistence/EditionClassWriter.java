@@ -14,28 +14,273 @@ package temporal.persistence;
 
 import static org.eclipse.persistence.internal.dynamic.DynamicPropertiesManager.PROPERTIES_MANAGER_FIELD;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
 import org.eclipse.persistence.dynamic.DynamicClassLoader;
 import org.eclipse.persistence.dynamic.DynamicClassWriter;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.internal.libraries.asm.ClassAdapter;
+import org.eclipse.persistence.internal.libraries.asm.ClassReader;
 import org.eclipse.persistence.internal.libraries.asm.ClassWriter;
+import org.eclipse.persistence.internal.libraries.asm.Label;
+import org.eclipse.persistence.internal.libraries.asm.MethodAdapter;
 import org.eclipse.persistence.internal.libraries.asm.MethodVisitor;
 import org.eclipse.persistence.internal.libraries.asm.Opcodes;
+import org.eclipse.persistence.internal.libraries.asm.Type;
+import org.eclipse.persistence.mappings.CollectionMapping;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+
+import temporal.BaseEntity;
 
 /**
  * Custom {@link DynamicClassWriter} used to creat edition class with additional
  * interface.
+ * <p>
+ * When the parent class has not been woven for change tracking the edition
+ * class can implement {@link ChangeTracker} itself. The setters of the
+ * tracked attributes are overridden to fire a {@link PropertyChangeEvent} to
+ * the listener EclipseLink sets on registered editions so that they can use
+ * attribute change tracking. Unlike the weaver, writes to the fields in other
+ * methods of the parent class are not intercepted, so classes with such
+ * writes are not tracked and keep deferred change detection. Neither are
+ * classes with aggregates, such as the {@link temporal.Effectivity} of
+ * {@link temporal.BaseTemporalEntity}, which are not woven themselves. See
+ * {@link #getTrackedAttributes(ClassDescriptor)}.
  * 
  * @author dclarke
  * @since EclipseLink 2.3.1
  */
 public class EditionClassWriter extends DynamicClassWriter implements Opcodes {
-    
+
+    /**
+     * Field holding the listener of a generated {@link ChangeTracker}, named
+     * as by the EclipseLink weaver.
+     */
+    public static final String LISTENER_FIELD = "_persistence_listener";
+
+    private static final String LISTENER_DESC = Type.getDescriptor(PropertyChangeListener.class);
+
+    private static final String LISTENER_NAME = Type.getInternalName(PropertyChangeListener.class);
+
+    private static final String EVENT_NAME = Type.getInternalName(PropertyChangeEvent.class);
+
     private Class<?> editionInterface;
-    
+
+    /**
+     * Attributes whose setters fire change events or <code>null</code> if the
+     * class does not implement {@link ChangeTracker} itself.
+     */
+    private List<String> trackedAttributes;
+
     public EditionClassWriter(@SuppressWarnings("rawtypes") Class parentClass, Class<?> editionInterface) {
+        this(parentClass, editionInterface, null);
+    }
+
+    public EditionClassWriter(@SuppressWarnings("rawtypes") Class parentClass, Class<?> editionInterface, Collection<String> trackedAttributes) {
         super(parentClass);
         this.editionInterface = editionInterface;
+        if (trackedAttributes != null) {
+            this.trackedAttributes = new ArrayList<String>(trackedAttributes);
+        }
+    }
+
+    public List<String> getTrackedAttributes() {
+        return this.trackedAttributes == null ? null : Collections.unmodifiableList(this.trackedAttributes);
+    }
+
+    /**
+     * Determine the attributes of the source descriptor an edition class must
+     * track to implement {@link ChangeTracker}. Every updatable mapping must be
+     * trackable for attribute change tracking to be correct:
+     * <ul>
+     * <li>direct and object reference mappings need a public getter and
+     * setter, which is overridden, and their fields must not be written by
+     * any other method of the class or its superclasses than a constructor
+     * <li>collection mappings must use transparent indirection whose
+     * collections raise their own change events
+     * <li>aggregates must be change trackers themselves
+     * </ul>
+     * The identifier and version from {@link BaseEntity} are assigned by
+     * EclipseLink and need no events. Neither do mappings which are read-only
+     * or whose fields are neither insertable nor updatable, such as the
+     * continuity id.
+     * 
+     * @return the attributes with setters to override or <code>null</code> if
+     *         the class is already a {@link ChangeTracker} or cannot be
+     *         tracked
+     */
+    public static List<String> getTrackedAttributes(ClassDescriptor descriptor) {
+        Class<?> javaClass = descriptor.getJavaClass();
+        if (ChangeTracker.class.isAssignableFrom(javaClass)) {
+            return null;
+        }
+        List<String> attributes = new ArrayList<String>();
+        Map<Field, Method> setters = new HashMap<Field, Method>();
+
+        for (DatabaseMapping mapping : descriptor.getMappings()) {
+            Field field = getField(javaClass, mapping.getAttributeName());
+            if (field == null) {
+                return null;
+            }
+            if (field.getDeclaringClass() == BaseEntity.class || mapping.isReadOnly() || !isWritable(mapping)) {
+                continue;
+            }
+            Method setter = getSetter(javaClass, mapping.getAttributeName());
+
+            if (mapping.isAggregateObjectMapping()) {
+                if (!ChangeTracker.class.isAssignableFrom(field.getType())) {
+                    return null;
+                }
+            } else if (mapping.isCollectionMapping()) {
+                if (!((CollectionMapping) mapping).getIndirectionPolicy().usesTransparentIndirection()) {
+                    return null;
+                }
+            } else if ((!mapping.isDirectToFieldMapping() && !mapping.isObjectReferenceMapping()) || setter == null) {
+                return null;
+            }
+
+            if (setter != null) {
+                attributes.add(mapping.getAttributeName());
+                if (!mapping.isAggregateObjectMapping() && !mapping.isCollectionMapping()) {
+                    setters.put(field, setter);
+                }
+            }
+        }
+        if (writesOutsideSetters(javaClass, setters)) {
+            return null;
+        }
+        return attributes;
+    }
+
+    /**
+     * @return <code>true</code> if any field of the mapping is insertable or
+     *         updatable
+     */
+    private static boolean isWritable(DatabaseMapping mapping) {
+        for (DatabaseField field : mapping.getFields()) {
+            if (field.isInsertable() || field.isUpdatable()) {
+                return true;
+            }
+        }
+        return mapping.getFields().isEmpty();
+    }
+
+    /**
+     * Scan the bytecode of the class and its superclasses for writes to the
+     * fields of the tracked setters in methods other than constructors and
+     * the field's own setter. Such writes would not fire change events.
+     * 
+     * @return <code>true</code> if a field is written outside its setter or
+     *         the bytecode cannot be read
+     */
+    private static boolean writesOutsideSetters(Class<?> javaClass, final Map<Field, Method> setters) {
+        for (Class<?> type = javaClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            InputStream in = type.getClassLoader() == null ? null : type.getClassLoader().getResourceAsStream(type.getName().replace('.', '/') + ".class");
+            if (in == null) {
+                return true;
+            }
+            final String owner = Type.getInternalName(type);
+            final boolean[] written = new boolean[1];
+            try {
+                new ClassReader(in).accept(new ClassAdapter(new ClassWriter(0)) {
+                    @Override
+                    public MethodVisitor visitMethod(int access, final String name, final String desc, String signature, String[] exceptions) {
+                        return new MethodAdapter(super.visitMethod(access, name, desc, signature, exceptions)) {
+                            @Override
+                            public void visitFieldInsn(int opcode, String fieldOwner, String fieldName, String fieldDesc) {
+                                if (opcode == PUTFIELD && !INIT.equals(name)) {
+                                    for (Map.Entry<Field, Method> entry : setters.entrySet()) {
+                                        Field field = entry.getKey();
+                                        Method setter = entry.getValue();
+                                        if (field.getName().equals(fieldName) && Type.getInternalName(field.getDeclaringClass()).equals(fieldOwner) && !(setter.getName().equals(name) && Type.getMethodDescriptor(setter).equals(desc))) {
+                                            written[0] = true;
+                                        }
+                                    }
+                                }
+                                super.visitFieldInsn(opcode, fieldOwner, fieldName, fieldDesc);
+                            }
+                        };
+                    }
+                }, 0);
+            } catch (IOException e) {
+                return true;
+            } finally {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+            if (written[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Field getField(Class<?> javaClass, String attributeName) {
+        for (Class<?> type = javaClass; type != null; type = type.getSuperclass()) {
+            try {
+                return type.getDeclaredField(attributeName);
+            } catch (NoSuchFieldException e) {
+                // Check the superclass
+            }
+        }
+        return null;
+    }
+
+    private static String capitalize(String attributeName) {
+        return Character.toUpperCase(attributeName.charAt(0)) + attributeName.substring(1);
+    }
+
+    private static Method getGetter(Class<?> javaClass, String attributeName) {
+        String suffix = capitalize(attributeName);
+        for (String prefix : new String[] { "get", "is" }) {
+            try {
+                Method getter = javaClass.getMethod(prefix + suffix);
+                if (getter.getReturnType() != void.class && !Modifier.isStatic(getter.getModifiers())) {
+                    return getter;
+                }
+            } catch (NoSuchMethodException e) {
+                // Try the next prefix
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the public, overridable setter of the attribute taking the type
+     *         returned by its getter or <code>null</code>
+     */
+    private static Method getSetter(Class<?> javaClass, String attributeName) {
+        Method getter = getGetter(javaClass, attributeName);
+        if (getter == null) {
+            return null;
+        }
+        try {
+            Method setter = javaClass.getMethod("set" + capitalize(attributeName), getter.getReturnType());
+            int modifiers = setter.getModifiers();
+            if (setter.getReturnType() == void.class && !Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                return setter;
+            }
+        } catch (NoSuchMethodException e) {
+            // No setter
+        }
+        return null;
     }
 
     public byte[] writeClass(DynamicClassLoader loader, String className) throws ClassNotFoundException {
@@ -48,11 +293,13 @@ public class EditionClassWriter extends DynamicClassWriter implements Opcodes {
         String parentClassNameAsSlashes = parentClassName.replace('.', '/');
         String classNameAsSlashes = className.replace('.', '/');
         String editionInterfaceName = this.editionInterface.getName().replace('.', '/');
-        
+        boolean tracked = this.trackedAttributes != null && !ChangeTracker.class.isAssignableFrom(parent);
+        String[] interfaces = tracked ? new String[] { editionInterfaceName, Type.getInternalName(ChangeTracker.class) } : new String[] { editionInterfaceName };
+
         ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
 
         // public class Foo extends DynamicEntityImpl {
-        cw.visit(V1_5, ACC_PUBLIC + ACC_SUPER, classNameAsSlashes, null, parentClassNameAsSlashes, new String[] {editionInterfaceName});
+        cw.visit(V1_5, ACC_PUBLIC + ACC_SUPER, classNameAsSlashes, null, parentClassNameAsSlashes, interfaces);
 
         // public static DynamicPropertiesManager DPM = new
         // DynamicPropertiesManager();
@@ -79,11 +326,138 @@ public class EditionClassWriter extends DynamicClassWriter implements Opcodes {
         mv.visitInsn(ARETURN);
         mv.visitMaxs(0, 0);
 
+        if (tracked) {
+            writeChangeTracker(cw, parent, classNameAsSlashes, parentClassNameAsSlashes);
+        }
+
         cw.visitEnd();
         return cw.toByteArray();
 
     }
 
+    /**
+     * Write the {@link ChangeTracker} methods and the setter overrides of the
+     * tracked attributes.
+     */
+    private void writeChangeTracker(ClassWriter cw, Class<?> parent, String classNameAsSlashes, String parentClassNameAsSlashes) {
+        // protected transient PropertyChangeListener _persistence_listener;
+        cw.visitField(ACC_PROTECTED + ACC_TRANSIENT, LISTENER_FIELD, LISTENER_DESC, null, null);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "_persistence_getPropertyChangeListener", "()" + LISTENER_DESC, null, null);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, classNameAsSlashes, LISTENER_FIELD, LISTENER_DESC);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+
+        mv = cw.visitMethod(ACC_PUBLIC, "_persistence_setPropertyChangeListener", "(" + LISTENER_DESC + ")V", null, null);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, classNameAsSlashes, LISTENER_FIELD, LISTENER_DESC);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+
+        for (String attributeName : this.trackedAttributes) {
+            Method getter = getGetter(parent, attributeName);
+            Method setter = getSetter(parent, attributeName);
+            if (setter != null) {
+                writeSetter(cw, classNameAsSlashes, parentClassNameAsSlashes, attributeName, getter, setter);
+            }
+        }
+    }
+
+    /**
+     * <pre>
+     * public void setFoo(T value) {
+     *     PropertyChangeListener listener = _persistence_listener;
+     *     if (listener == null) {
+     *         super.setFoo(value);
+     *         return;
+     *     }
+     *     Object old = getFoo();
+     *     super.setFoo(value);
+     *     listener.propertyChange(new PropertyChangeEvent(this, "foo", old, value));
+     * }
+     * </pre>
+     */
+    private void writeSetter(ClassWriter cw, String classNameAsSlashes, String parentClassNameAsSlashes, String attributeName, Method getter, Method setter) {
+        Type valueType = Type.getType(getter.getReturnType());
+        String setterDesc = Type.getMethodDescriptor(setter);
+        int listenerIndex = 1 + valueType.getSize();
+        int oldIndex = listenerIndex + 1;
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, setter.getName(), setterDesc, null, null);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, classNameAsSlashes, LISTENER_FIELD, LISTENER_DESC);
+        mv.visitVarInsn(ASTORE, listenerIndex);
+
+        Label track = new Label();
+        mv.visitVarInsn(ALOAD, listenerIndex);
+        mv.visitJumpInsn(IFNONNULL, track);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(valueType.getOpcode(ILOAD), 1);
+        mv.visitMethodInsn(INVOKESPECIAL, parentClassNameAsSlashes, setter.getName(), setterDesc);
+        mv.visitInsn(RETURN);
+
+        mv.visitLabel(track);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKEVIRTUAL, classNameAsSlashes, getter.getName(), Type.getMethodDescriptor(getter));
+        box(mv, valueType);
+        mv.visitVarInsn(ASTORE, oldIndex);
+
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(valueType.getOpcode(ILOAD), 1);
+        mv.visitMethodInsn(INVOKESPECIAL, parentClassNameAsSlashes, setter.getName(), setterDesc);
+
+        mv.visitVarInsn(ALOAD, listenerIndex);
+        mv.visitTypeInsn(NEW, EVENT_NAME);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitLdcInsn(attributeName);
+        mv.visitVarInsn(ALOAD, oldIndex);
+        mv.visitVarInsn(valueType.getOpcode(ILOAD), 1);
+        box(mv, valueType);
+        mv.visitMethodInsn(INVOKESPECIAL, EVENT_NAME, INIT, "(Ljava/lang/Object;Ljava/lang/String;Ljava/lang/Object;Ljava/lang/Object;)V");
+        mv.visitMethodInsn(INVOKEINTERFACE, LISTENER_NAME, "propertyChange", "(L" + EVENT_NAME + ";)V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+    }
+
+    /**
+     * Box the primitive value on the top of the stack.
+     */
+    private void box(MethodVisitor mv, Type type) {
+        String boxed;
+        switch (type.getSort()) {
+        case Type.BOOLEAN:
+            boxed = "java/lang/Boolean";
+            break;
+        case Type.CHAR:
+            boxed = "java/lang/Character";
+            break;
+        case Type.BYTE:
+            boxed = "java/lang/Byte";
+            break;
+        case Type.SHORT:
+            boxed = "java/lang/Short";
+            break;
+        case Type.INT:
+            boxed = "java/lang/Integer";
+            break;
+        case Type.FLOAT:
+            boxed = "java/lang/Float";
+            break;
+        case Type.LONG:
+            boxed = "java/lang/Long";
+            break;
+        case Type.DOUBLE:
+            boxed = "java/lang/Double";
+            break;
+        default:
+            return;
+        }
+        mv.visitMethodInsn(INVOKESTATIC, boxed, "valueOf", "(" + type.getDescriptor() + ")L" + boxed + ";");
+    }
+
     private Class<?> getParentClass(ClassLoader loader) throws ClassNotFoundException {
         if (parentClass == null && parentClassName != null) {
             parentClass = loader.loadClass(parentClassName);
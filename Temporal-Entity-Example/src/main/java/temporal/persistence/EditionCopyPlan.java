@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import static temporal.TemporalHelper.NON_TEMPORAL;
+
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.descriptors.InstanceVariableAttributeAccessor;
+import org.eclipse.persistence.internal.descriptors.MethodAttributeAccessor;
+import org.eclipse.persistence.internal.queries.ContainerPolicy;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.mappings.CollectionMapping;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+
+import temporal.BaseEntity;
+import temporal.TemporalEntity;
+import temporal.TemporalEntityManager;
+
+/**
+ * The mappings of an edition descriptor whose values are copied from the
+ * source to a new edition by {@link TemporalEntityManager#newEdition}. The
+ * effectivity, the identifier and version from {@link BaseEntity} and mappings
+ * flagged with the {@link temporal.TemporalHelper#NON_TEMPORAL} property are
+ * excluded.
+ * <p>
+ * A plan is created for each edition descriptor by
+ * {@link ConfigureTemporalDescriptors}. It is not used if a subclass of
+ * {@link TemporalEntityManager} overrides its copyValue method, which remains
+ * the extension point for copying values. The mappings are resolved on first use
+ * since their attribute accessors are only initialized with the descriptor at
+ * login.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionCopyPlan {
+
+    private ClassDescriptor descriptor;
+
+    private volatile Step[] steps;
+
+    public EditionCopyPlan(ClassDescriptor descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    public ClassDescriptor getDescriptor() {
+        return this.descriptor;
+    }
+
+    /**
+     * Copy the mapped values from the source to the target. Both must be
+     * unwrapped domain objects.
+     */
+    public void copy(AbstractSession session, Object source, Object target) {
+        for (Step step : getSteps()) {
+            Object value = step.mapping.getRealAttributeValueFromObject(source, session);
+            if (step.containerPolicy != null) {
+                value = step.containerPolicy.cloneFor(value);
+            }
+            step.mapping.setRealAttributeValueInObject(target, value);
+        }
+    }
+
+    /**
+     * @return the mappings copied by this plan
+     */
+    public List<DatabaseMapping> getMappings() {
+        Step[] planSteps = getSteps();
+        List<DatabaseMapping> mappings = new ArrayList<DatabaseMapping>(planSteps.length);
+        for (Step step : planSteps) {
+            mappings.add(step.mapping);
+        }
+        return mappings;
+    }
+
+    private Step[] getSteps() {
+        Step[] planSteps = this.steps;
+        if (planSteps == null) {
+            planSteps = buildSteps();
+            this.steps = planSteps;
+        }
+        return planSteps;
+    }
+
+    private Step[] buildSteps() {
+        List<Step> planSteps = new ArrayList<Step>();
+        for (DatabaseMapping mapping : getDescriptor().getMappings()) {
+            if (isCopied(mapping)) {
+                ContainerPolicy cp = mapping.isCollectionMapping() ? ((CollectionMapping) mapping).getContainerPolicy() : null;
+                planSteps.add(new Step(mapping, cp));
+            }
+        }
+        return planSteps.toArray(new Step[planSteps.size()]);
+    }
+
+    private boolean isCopied(DatabaseMapping mapping) {
+        if (mapping.getAttributeName().equals("effectivity")) {
+            return false;
+        }
+
+        String nonTemporal = (String) mapping.getProperty(NON_TEMPORAL);
+        if (nonTemporal != null && Boolean.valueOf(nonTemporal)) {
+            return false;
+        }
+
+        Member member = null;
+        if (mapping.getAttributeAccessor().isInstanceVariableAttributeAccessor()) {
+            member = ((InstanceVariableAttributeAccessor) mapping.getAttributeAccessor()).getAttributeField();
+        } else {
+            member = ((MethodAttributeAccessor) mapping.getAttributeAccessor()).getGetMethod();
+        }
+        return !member.getDeclaringClass().equals(BaseEntity.class);
+    }
+
+    /**
+     * Copy the value of one mapping from the source to the target, resolving
+     * whether and how it is copied on each call. Used by
+     * {@link TemporalEntityManager} for each mapping of an edition descriptor
+     * without a plan or when its copyValue method is overridden. Either object
+     * may be wrapped.
+     */
+    public static void copyValue(AbstractSession session, DatabaseMapping mapping, TemporalEntity<?> source, TemporalEntity<?> target) {
+        if (mapping.getAttributeName().equals("effectivity")) {
+            return;
+        }
+
+        String nonTemporal = (String) mapping.getProperty(NON_TEMPORAL);
+        if (nonTemporal != null && Boolean.valueOf(nonTemporal)) {
+            return;
+        }
+
+        TemporalEntity<?> unwrappedSource = source;
+        if (mapping.getDescriptor().hasWrapperPolicy() && mapping.getDescriptor().getWrapperPolicy().isWrapped(unwrappedSource)) {
+            unwrappedSource = (TemporalEntity<?>) mapping.getDescriptor().getWrapperPolicy().unwrapObject(unwrappedSource, session);
+        }
+
+        Member member = null;
+
+        if (mapping.getAttributeAccessor().isInstanceVariableAttributeAccessor()) {
+            member = ((InstanceVariableAttributeAccessor) mapping.getAttributeAccessor()).getAttributeField();
+        } else {
+            member = ((MethodAttributeAccessor) mapping.getAttributeAccessor()).getGetMethod();
+        }
+        if (member.getDeclaringClass().equals(BaseEntity.class)) {
+            return;
+        }
+
+        Object value = mapping.getRealAttributeValueFromObject(unwrappedSource, session);
+
+        if (mapping.isCollectionMapping()) {
+            value = ((CollectionMapping) mapping).getContainerPolicy().cloneFor(value);
+        }
+
+        Object unwrappedTarget = target;
+        if (mapping.getDescriptor().hasWrapperPolicy() && mapping.getDescriptor().getWrapperPolicy().isWrapped(unwrappedTarget)) {
+            unwrappedTarget = (TemporalEntity<?>) mapping.getDescriptor().getWrapperPolicy().unwrapObject(unwrappedTarget, session);
+        }
+
+        mapping.setRealAttributeValueInObject(unwrappedTarget, value);
+    }
+
+    private static class Step {
+
+        private DatabaseMapping mapping;
+
+        private ContainerPolicy containerPolicy;
+
+        private Step(DatabaseMapping mapping, ContainerPolicy containerPolicy) {
+            this.mapping = mapping;
+            this.containerPolicy = containerPolicy;
+        }
+    }
+
+}
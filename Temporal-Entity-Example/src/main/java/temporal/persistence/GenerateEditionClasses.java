@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import static temporal.persistence.DescriptorHelper.EDITION;
+import static temporal.persistence.DescriptorHelper.EDITION_VIEW;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.dynamic.DynamicClassWriter;
+import org.eclipse.persistence.internal.weaving.PersistenceWeaved;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import temporal.TemporalHelper;
+
+/**
+ * Build time generator of the edition and edition view classes, and their
+ * interfaces, that {@link ConfigureTemporalDescriptors} otherwise creates in a
+ * {@link DynamicClassLoader} on every startup. The classes are written as
+ * class files into an output directory, normally the build's classes
+ * directory, using the same {@link EditionClassWriter} and
+ * {@link EditionInterfaceClassWriter}. When found on the class path they are
+ * loaded by {@link ConfigureTemporalDescriptors} instead of being generated.
+ * <p>
+ * The temporal entities are those of the persistence unit, listed as classes
+ * in its persistence.xml or as entities in its mapping files. They must
+ * already be statically woven. The generated classes are subclasses declaring
+ * no attributes of their own, so the weaver has nothing to add to them. They
+ * inherit the lazy loading, change tracking and fetch group support woven
+ * into their entity. They can not be listed in the persistence unit for the
+ * weaver as they would be mapped as subclasses of their entity.
+ * <p>
+ * The {@link EditionClassCache} key of each generated class, which hashes the
+ * woven bytes of its entity, is written to {@value #INDEX_RESOURCE}. A class
+ * whose entity has changed since it was generated is rejected by
+ * {@link #loadGeneratedClass(ClassLoader, String, Class, DynamicClassWriter)}.
+ * <p>
+ * Usage: <code>GenerateEditionClasses &lt;output dir&gt; [&lt;persistence unit&gt;]</code>
+ * 
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class GenerateEditionClasses {
+
+    /**
+     * Suffixes of the temporal types generated for each entity.
+     */
+    public static final String[] SUFFIXES = new String[] { EDITION, EDITION_VIEW };
+
+    /**
+     * Resource holding the {@link EditionClassCache} key of each generated
+     * class by its name.
+     */
+    public static final String INDEX_RESOURCE = "META-INF/temporal-edition-classes.properties";
+
+    private static final Map<ClassLoader, Properties> INDEXES = new WeakHashMap<ClassLoader, Properties>();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 2) {
+            throw new IllegalArgumentException("Usage: GenerateEditionClasses <output dir> [<persistence unit>]");
+        }
+        File outputDirectory = new File(args[0]);
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        DynamicClassLoader dcl = new DynamicClassLoader(loader);
+
+        Properties index = new Properties();
+        for (Class<?> entityClass : getTemporalEntityClasses(loader, args.length > 1 ? args[1] : null)) {
+            index.putAll(generate(dcl, entityClass, outputDirectory));
+        }
+        OutputStream out = new FileOutputStream(createFile(outputDirectory, INDEX_RESOURCE));
+        try {
+            index.store(out, "Generated by " + GenerateEditionClasses.class.getName());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write the class files of the edition and edition view types of the
+     * entity class into the output directory.
+     * 
+     * @return the {@link EditionClassCache} key of each class written by its
+     *         name
+     * @throws IllegalArgumentException
+     *             if the entity class is not woven
+     */
+    public static Properties generate(DynamicClassLoader dcl, Class<?> entityClass, File outputDirectory) throws ClassNotFoundException, IOException {
+        if (!PersistenceWeaved.class.isAssignableFrom(entityClass)) {
+            throw new IllegalArgumentException("Entity not statically woven: " + entityClass.getName());
+        }
+        Properties keys = new Properties();
+        for (String suffix : SUFFIXES) {
+            String interfaceName = entityClass.getName() + suffix + "I";
+            Class<?> parentInterface = entityClass.getInterfaces()[0];
+            EditionInterfaceClassWriter interfaceWriter = new EditionInterfaceClassWriter(parentInterface);
+            write(outputDirectory, interfaceName, parentInterface, interfaceWriter.writeClass(dcl, interfaceName), "", keys);
+            Class<?> infc = dcl.createDynamicClass(interfaceName, interfaceWriter);
+
+            String className = entityClass.getName() + suffix;
+            EditionClassWriter writer = new EditionClassWriter(entityClass, infc);
+            write(outputDirectory, className, entityClass, writer.writeClass(dcl, className), EditionClassCache.getVariant(writer), keys);
+        }
+        return keys;
+    }
+
+    /**
+     * @param unitName
+     *            the name of the persistence unit or <code>null</code> for
+     *            all persistence units
+     * @return the temporal entity classes listed in the persistence unit or
+     *         its mapping files, including the default META-INF/orm.xml
+     */
+    public static List<Class<?>> getTemporalEntityClasses(ClassLoader loader, String unitName) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        DocumentBuilder builder = factory.newDocumentBuilder();
+
+        Set<String> classNames = new LinkedHashSet<String>();
+        boolean found = false;
+        for (Document persistenceXml : parse(builder, loader, "META-INF/persistence.xml")) {
+            NodeList units = persistenceXml.getElementsByTagNameNS("*", "persistence-unit");
+            for (int index = 0; index < units.getLength(); index++) {
+                Element unit = (Element) units.item(index);
+                if (unitName != null && !unitName.equals(unit.getAttribute("name"))) {
+                    continue;
+                }
+                found = true;
+                Set<String> mappingFiles = new LinkedHashSet<String>();
+                mappingFiles.add("META-INF/orm.xml");
+                mappingFiles.addAll(getTexts(unit, "mapping-file"));
+                classNames.addAll(getTexts(unit, "class"));
+
+                for (String mappingFile : mappingFiles) {
+                    for (Document mappings : parse(builder, loader, mappingFile)) {
+                        List<String> packages = getTexts(mappings.getDocumentElement(), "package");
+                        NodeList entities = mappings.getElementsByTagNameNS("*", "entity");
+                        for (int entityIndex = 0; entityIndex < entities.getLength(); entityIndex++) {
+                            String className = ((Element) entities.item(entityIndex)).getAttribute("class");
+                            if (className.indexOf('.') < 0 && !packages.isEmpty()) {
+                                className = packages.get(0) + "." + className;
+                            }
+                            classNames.add(className);
+                        }
+                    }
+                }
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException("Persistence unit not found: " + unitName);
+        }
+
+        List<Class<?>> entityClasses = new ArrayList<Class<?>>();
+        for (String className : classNames) {
+            Class<?> entityClass = loader.loadClass(className);
+            if (TemporalHelper.isTemporalEntity(entityClass)) {
+                entityClasses.add(entityClass);
+            }
+        }
+        return entityClasses;
+    }
+
+    /**
+     * Load the class generated at build time from the loader.
+     * 
+     * @return the class or <code>null</code> if it is not available
+     * @throws IllegalStateException
+     *             if the class was not generated by this generator from the
+     *             current source class and writer. The class can not be
+     *             replaced as the loader defines it first.
+     */
+    public static Class<?> loadGeneratedClass(ClassLoader loader, String className, Class<?> source, DynamicClassWriter writer) {
+        Class<?> type;
+        try {
+            type = loader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        String key = getIndex(loader).getProperty(className);
+        if (key == null || !key.equals(EditionClassCache.getKey(className, source, EditionClassCache.getVariant(writer)))) {
+            throw new IllegalStateException("Generated class: " + className + " does not match: " + source.getName() + ", run " + GenerateEditionClasses.class.getSimpleName() + " again");
+        }
+        return type;
+    }
+
+    private static Properties getIndex(ClassLoader loader) {
+        synchronized (INDEXES) {
+            Properties index = INDEXES.get(loader);
+            if (index == null) {
+                index = new Properties();
+                try {
+                    for (Enumeration<URL> urls = loader.getResources(INDEX_RESOURCE); urls.hasMoreElements();) {
+                        InputStream in = urls.nextElement().openStream();
+                        try {
+                            index.load(in);
+                        } finally {
+                            in.close();
+                        }
+                    }
+                } catch (IOException e) {
+                    // Without an index every generated class is rejected
+                }
+                INDEXES.put(loader, index);
+            }
+            return index;
+        }
+    }
+
+    private static List<Document> parse(DocumentBuilder builder, ClassLoader loader, String resource) throws Exception {
+        List<Document> documents = new ArrayList<Document>();
+        for (Enumeration<URL> urls = loader.getResources(resource); urls.hasMoreElements();) {
+            InputStream in = urls.nextElement().openStream();
+            try {
+                documents.add(builder.parse(in));
+            } finally {
+                in.close();
+            }
+        }
+        return documents;
+    }
+
+    private static List<String> getTexts(Element parent, String name) {
+        List<String> texts = new ArrayList<String>();
+        NodeList elements = parent.getElementsByTagNameNS("*", name);
+        for (int index = 0; index < elements.getLength(); index++) {
+            texts.add(elements.item(index).getTextContent().trim());
+        }
+        return texts;
+    }
+
+    private static void write(File outputDirectory, String className, Class<?> source, byte[] bytes, String variant, Properties keys) throws IOException {
+        OutputStream out = new FileOutputStream(createFile(outputDirectory, className.replace('.', '/') + ".class"));
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        String key = EditionClassCache.getKey(className, source, variant);
+        if (key != null) {
+            keys.setProperty(className, key);
+        }
+    }
+
+    private static File createFile(File outputDirectory, String path) throws IOException {
+        File file = new File(outputDirectory, path.replace('/', File.separatorChar));
+        if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create directory: " + file.getParentFile());
+        }
+        return file;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.dynamic.DynamicClassWriter;
+
+/**
+ * Writer providing bytes previously generated, or read from the
+ * {@link EditionClassCache}, to the {@link DynamicClassLoader}. This allows
+ * the bytes to be generated without holding the lock of the loader.
+ * 
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+class GeneratedClassWriter extends DynamicClassWriter {
+
+    private byte[] bytes;
+
+    GeneratedClassWriter(Class<?> parentClass, byte[] bytes) {
+        super(parentClass);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public byte[] writeClass(DynamicClassLoader loader, String className) {
+        return this.bytes;
+    }
+
+}
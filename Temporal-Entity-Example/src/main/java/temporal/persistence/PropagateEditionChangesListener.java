@@ -59,7 +59,7 @@ public class PropagateEditionChangesListener extends SessionEventAdapter {
                 if (objCS != null && objCS.hasChanges() && futures != null) {
                     for (String attr : objCS.getChangedAttributeNames()) {
                         ChangeRecord cr = (ChangeRecord) objCS.getAttributesToChanges().get(attr);
-                        entry.getAttributes().add(attr);
+                        entry.addAttribute(attr);
 
                         if (!cr.getMapping().getAttributeName().equals("continuity")) {
                             propogateChanges(uow, futures, entry, cr);
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import static temporal.persistence.DescriptorHelper.CURRENT;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkChangeSet;
+import org.eclipse.persistence.internal.sessions.UnitOfWorkImpl;
+import org.eclipse.persistence.sessions.SessionEvent;
+import org.eclipse.persistence.sessions.SessionEventAdapter;
+
+/**
+ * Invalidate the {@link TemporalResultCache} when a transaction commits. The
+ * current descriptors of the temporal types written are collected from the
+ * change set of each flush and their cached results are removed after the
+ * commit so that other EntityManagers do not cache the previous state again.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class ResultCacheInvalidator extends SessionEventAdapter {
+
+    /**
+     * Unit of work property holding the current descriptors written and not
+     * yet committed.
+     */
+    private static final String CHANGED_DESCRIPTORS = ResultCacheInvalidator.class.getName();
+
+    @Override
+    public void postCalculateUnitOfWorkChangeSet(SessionEvent event) {
+        UnitOfWorkImpl uow = (UnitOfWorkImpl) event.getSession();
+        UnitOfWorkChangeSet uowCS = (UnitOfWorkChangeSet) event.getResult();
+        if (!isEnabled(uow) || uowCS == null) {
+            return;
+        }
+
+        Set<ClassDescriptor> changed = getChangedDescriptors(uow);
+        for (Object clone : uowCS.getCloneToObjectChangeSet().keySet()) {
+            addCurrentDescriptor(uow, clone, changed);
+        }
+        for (Object clone : uow.getDeletedObjects().keySet()) {
+            addCurrentDescriptor(uow, clone, changed);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void postCommitUnitOfWork(SessionEvent event) {
+        UnitOfWorkImpl uow = (UnitOfWorkImpl) event.getSession();
+        Set<ClassDescriptor> changed = (Set<ClassDescriptor>) uow.getProperty(CHANGED_DESCRIPTORS);
+        if (changed != null) {
+            uow.removeProperty(CHANGED_DESCRIPTORS);
+            TemporalResultCache resultCache = TemporalResultCache.getInstance(uow.getRootSession(null));
+            for (ClassDescriptor currentDescriptor : changed) {
+                resultCache.invalidate(currentDescriptor);
+            }
+        }
+    }
+
+    private boolean isEnabled(AbstractSession uow) {
+        TemporalResultCache resultCache = TemporalResultCache.getInstance(uow.getRootSession(null));
+        return resultCache != null && resultCache.isEnabled();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<ClassDescriptor> getChangedDescriptors(UnitOfWorkImpl uow) {
+        Set<ClassDescriptor> changed = (Set<ClassDescriptor>) uow.getProperty(CHANGED_DESCRIPTORS);
+        if (changed == null) {
+            changed = new HashSet<ClassDescriptor>();
+            uow.setProperty(CHANGED_DESCRIPTORS, changed);
+        }
+        return changed;
+    }
+
+    private void addCurrentDescriptor(UnitOfWorkImpl uow, Object clone, Set<ClassDescriptor> changed) {
+        ClassDescriptor descriptor = uow.getClassDescriptor(clone);
+        if (descriptor != null && descriptor.getProperty(CURRENT) != null) {
+            changed.add((ClassDescriptor) descriptor.getProperty(CURRENT));
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import temporal.Effectivity;
+import temporal.Temporal;
+import temporal.TemporalEntity;
+import temporal.TemporalEntityManager;
+
+/**
+ * Index of the {@link Temporal} clones registered in a
+ * {@link TemporalEntityManager}'s persistence context ordered by their
+ * {@link Effectivity} start and end. This allows the clones which are not
+ * valid at an effective time to be found without scanning the complete clone
+ * mapping of the unit of work.
+ * <p>
+ * The index holds two arrays of the same entries, one sorted by start and one
+ * by end. The clones not valid at a time are the suffix of the start array
+ * starting after the time and the prefix of the end array ending at or before
+ * it, both located with a binary search. Entries added since the arrays were
+ * sorted are held in a pending list and merged once it grows large enough.
+ * Removed entries are flagged and dropped on the next rebuild.
+ * <p>
+ * {@link TemporalEntity} clones are also indexed by continuity id so the
+ * edition of a continuity valid at an effective time can be found in the
+ * persistence context without a query.
+ * <p>
+ * The index records the interval of a clone at the time it is added. The
+ * {@link Effectivity} of an indexed clone re-adds it when its start or end is
+ * set, so changes such as the end set on the predecessor of a new edition are
+ * reflected before they are flushed. Clones are also re-added by
+ * {@link ConfigureTemporalDescriptors} when they are written or refreshed, as
+ * EclipseLink sets the fields without the setters.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class TemporalCloneIndex {
+
+    /**
+     * Minimum number of pending entries before the sorted arrays are rebuilt.
+     */
+    private static final int MIN_PENDING = 64;
+
+    private Map<Temporal, Entry> entries = new IdentityHashMap<Temporal, Entry>();
+
+    private Entry[] byStart = new Entry[0];
+
+    private Entry[] byEnd = new Entry[0];
+
+    private List<Entry> pending = new ArrayList<Entry>();
+
+    private Map<Integer, List<Entry>> byContinuity = new HashMap<Integer, List<Entry>>();
+
+    /**
+     * Number of removed entries still held in the sorted arrays or pending
+     * list.
+     */
+    private int removed = 0;
+
+    /**
+     * Add the temporal clone to the index or update its interval if its
+     * {@link Effectivity} has changed since it was added.
+     */
+    public void add(Temporal temporal) {
+        Effectivity effectivity = temporal.getEffectivity();
+        if (effectivity == null) {
+            return;
+        }
+        int continuityId = getContinuityId(temporal);
+        Entry entry = this.entries.get(temporal);
+        if (entry != null) {
+            if (entry.start == effectivity.getStart() && entry.end == effectivity.getEnd() && entry.continuityId == continuityId) {
+                return;
+            }
+            retire(entry);
+        }
+        entry = new Entry(temporal, effectivity.getStart(), effectivity.getEnd(), continuityId);
+        this.entries.put(temporal, entry);
+        this.pending.add(entry);
+        effectivity.setCloneIndex(this, temporal);
+
+        if (continuityId > 0) {
+            List<Entry> editions = this.byContinuity.get(continuityId);
+            if (editions == null) {
+                editions = new ArrayList<Entry>(2);
+                this.byContinuity.put(continuityId, editions);
+            }
+            editions.add(entry);
+        }
+    }
+
+    public void remove(Object temporal) {
+        Entry entry = this.entries.remove(temporal);
+        if (entry != null) {
+            retire(entry);
+            detach(entry.temporal);
+        }
+    }
+
+    /**
+     * Stop the {@link Effectivity} of the clone re-adding it to this index.
+     */
+    private void detach(Temporal temporal) {
+        Effectivity effectivity = temporal.getEffectivity();
+        if (effectivity != null && effectivity.getCloneIndex() == this) {
+            effectivity.setCloneIndex(null, null);
+        }
+    }
+
+    /**
+     * Flag the entry as removed leaving it in the sorted arrays until the next
+     * rebuild.
+     */
+    private void retire(Entry entry) {
+        entry.removed = true;
+        this.removed++;
+
+        List<Entry> editions = this.byContinuity.get(entry.continuityId);
+        if (editions != null) {
+            editions.remove(entry);
+            if (editions.isEmpty()) {
+                this.byContinuity.remove(entry.continuityId);
+            }
+        }
+    }
+
+    private int getContinuityId(Temporal temporal) {
+        if (temporal instanceof TemporalEntity<?>) {
+            return ((TemporalEntity<?>) temporal).getContinuityId();
+        }
+        return 0;
+    }
+
+    /**
+     * Find the indexed edition of the provided type for the continuity that is
+     * valid at the effective time. The current {@link Effectivity} of each
+     * candidate is checked in case it has changed since it was indexed.
+     * 
+     * @return the edition or <code>null</code> if none is indexed
+     */
+    public TemporalEntity<?> getEdition(Class<?> editionClass, int continuityId, Long effective) {
+        List<Entry> editions = this.byContinuity.get(continuityId);
+        if (editions != null) {
+            for (Entry entry : editions) {
+                if (editionClass.isInstance(entry.temporal) && entry.temporal.getEffectivity().includes(effective)) {
+                    return (TemporalEntity<?>) entry.temporal;
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(Object temporal) {
+        return this.entries.containsKey(temporal);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public void clear() {
+        for (Temporal temporal : this.entries.keySet()) {
+            detach(temporal);
+        }
+        this.entries.clear();
+        this.byStart = new Entry[0];
+        this.byEnd = new Entry[0];
+        this.pending.clear();
+        this.byContinuity.clear();
+        this.removed = 0;
+    }
+
+    /**
+     * Find the indexed clones whose interval does not include the provided
+     * effective time. A <code>null</code> effective time is treated as
+     * {@link Effectivity#BOT} consistent with
+     * {@link Effectivity#includes(Long)}.
+     */
+    public List<Temporal> getExcluded(Long effective) {
+        long time = effective == null ? Effectivity.BOT : effective;
+
+        if ((this.pending.size() > MIN_PENDING && this.pending.size() > this.byStart.length / 4) || this.removed > this.entries.size()) {
+            rebuild();
+        }
+
+        List<Temporal> excluded = new ArrayList<Temporal>();
+
+        // Starts after the effective time
+        for (int index = firstStartAfter(time); index < this.byStart.length; index++) {
+            Entry entry = this.byStart[index];
+            if (!entry.removed) {
+                excluded.add(entry.temporal);
+            }
+        }
+
+        // Ends at or before the effective time. Those that also start after
+        // it have already been collected.
+        for (int index = 0; index < this.byEnd.length && this.byEnd[index].end <= time; index++) {
+            Entry entry = this.byEnd[index];
+            if (!entry.removed && entry.start <= time) {
+                excluded.add(entry.temporal);
+            }
+        }
+
+        for (Entry entry : this.pending) {
+            if (!entry.removed && !entry.includes(time)) {
+                excluded.add(entry.temporal);
+            }
+        }
+
+        return excluded;
+    }
+
+    /**
+     * Binary search for the first entry in {@link #byStart} that starts after
+     * the provided time.
+     */
+    private int firstStartAfter(long time) {
+        int low = 0;
+        int high = this.byStart.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.byStart[mid].start <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rebuild the sorted arrays from the live entries dropping removed ones and
+     * merging those pending.
+     */
+    private void rebuild() {
+        Entry[] live = this.entries.values().toArray(new Entry[this.entries.size()]);
+
+        Arrays.sort(live, START_ORDER);
+        this.byStart = live;
+
+        Entry[] ends = live.clone();
+        Arrays.sort(ends, END_ORDER);
+        this.byEnd = ends;
+
+        this.pending.clear();
+        this.removed = 0;
+    }
+
+    private static final Comparator<Entry> START_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            return e1.start < e2.start ? -1 : (e1.start == e2.start ? 0 : 1);
+        }
+    };
+
+    private static final Comparator<Entry> END_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry e1, Entry e2) {
+            return e1.end < e2.end ? -1 : (e1.end == e2.end ? 0 : 1);
+        }
+    };
+
+    /**
+     * Indexed clone with the interval it had when added.
+     */
+    private static class Entry {
+
+        private Temporal temporal;
+
+        private long start;
+
+        private long end;
+
+        private int continuityId;
+
+        private boolean removed = false;
+
+        private Entry(Temporal temporal, long start, long end, int continuityId) {
+            this.temporal = temporal;
+            this.start = start;
+            this.end = end;
+            this.continuityId = continuityId;
+        }
+
+        private boolean includes(long time) {
+            return this.start <= time && this.end > time;
+        }
+    }
+
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import org.eclipse.persistence.internal.helper.ConcurrentFixedCache;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.DatabaseRecord;
+import org.eclipse.persistence.sessions.Session;
+
+import temporal.TemporalEntityManager;
+
+/**
+ * Cache of parsed and prepared JPQL queries keyed by the JPQL string, the
+ * result class of typed queries and the temporal mode ({@link DescriptorHelper#CURRENT},
+ * {@link DescriptorHelper#EDITION} or {@link DescriptorHelper#EDITION_VIEW})
+ * the query was redirected for.
+ * <p>
+ * The project's JPQL parse cache is keyed only on the JPQL string so it must
+ * stay disabled: the same string resolves to the current or the edition
+ * descriptor depending on the effective time of the
+ * {@link TemporalEntityManager}. This cache replaces it for temporal
+ * persistence units. Cached queries are never handed out directly, a clone is
+ * returned for each use.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class TemporalQueryCache {
+
+    /**
+     * Session property name used to hold the cache for a persistence unit.
+     */
+    public static final String PROPERTY = TemporalQueryCache.class.getName();
+
+    private ConcurrentFixedCache cache;
+
+    public TemporalQueryCache(int maxSize) {
+        this.cache = new ConcurrentFixedCache(maxSize);
+    }
+
+    /**
+     * Lookup the cache configured on the session by
+     * {@link ConfigureTemporalDescriptors}.
+     *
+     * @return the cache or <code>null</code> if the session was not customized
+     */
+    public static TemporalQueryCache getInstance(Session session) {
+        return (TemporalQueryCache) session.getProperty(PROPERTY);
+    }
+
+    /**
+     * @return a clone of the cached untyped query for the JPQL and temporal
+     *         mode or <code>null</code> on a cache miss.
+     */
+    public DatabaseQuery get(String jpql, String mode) {
+        return get(jpql, null, mode);
+    }
+
+    /**
+     * Edition view queries are never redirected so they are cached once under
+     * {@link DescriptorHelper#EDITION_VIEW} independent of the mode requested.
+     *
+     * @param resultClass
+     *            the result class of a typed query or <code>null</code>
+     * @return a clone of the cached query for the JPQL, result class and
+     *         temporal mode or <code>null</code> on a cache miss.
+     */
+    public DatabaseQuery get(String jpql, Class<?> resultClass, String mode) {
+        DatabaseQuery query = (DatabaseQuery) this.cache.get(buildKey(jpql, resultClass, DescriptorHelper.EDITION_VIEW));
+        if (query == null) {
+            query = (DatabaseQuery) this.cache.get(buildKey(jpql, resultClass, mode));
+        }
+        if (query == null) {
+            return null;
+        }
+        return (DatabaseQuery) query.clone();
+    }
+
+    public void put(String jpql, String mode, DatabaseQuery query, Session session) {
+        put(jpql, null, mode, query, session);
+    }
+
+    /**
+     * Cache a copy of the provided query after it has been redirected to its
+     * temporal type. The copy is prepared against the provided session so
+     * subsequent hits avoid both the JPQL parse and the SQL generation.
+     */
+    public void put(String jpql, Class<?> resultClass, String mode, DatabaseQuery query, Session session) {
+        if (this.cache.getMaxSize() <= 0) {
+            return;
+        }
+        DatabaseQuery copy = (DatabaseQuery) query.clone();
+        copy.checkPrepare((AbstractSession) session, new DatabaseRecord());
+        this.cache.put(buildKey(jpql, resultClass, mode), copy);
+    }
+
+    public void clear() {
+        this.cache.clear();
+    }
+
+    public int getMaxSize() {
+        return this.cache.getMaxSize();
+    }
+
+    private String buildKey(String jpql, Class<?> resultClass, String mode) {
+        return mode + ":" + (resultClass == null ? "" : resultClass.getName()) + ":" + jpql;
+    }
+
+}
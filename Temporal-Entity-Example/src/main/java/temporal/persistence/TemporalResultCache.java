@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved.
+ * This program and the accompanying materials are made available under the 
+ * terms of the Eclipse Public License v1.0 and Eclipse Distribution License v. 1.0 
+ * which accompanies this distribution. 
+ * The Eclipse Public License is available at http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at 
+ * http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors:
+ *      dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package temporal.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.LockModeType;
+import javax.persistence.Parameter;
+import javax.persistence.Query;
+
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.Session;
+
+import temporal.TemporalEntityManager;
+
+/**
+ * Opt-in cache of the results of temporal queries keyed by the JPQL, its
+ * parameter values, paging and hints and the effective time the query was
+ * executed at. Locking and refreshing queries are not cached. Only the
+ * class and primary key of each result is held. Results are read from the
+ * shared cache into the persistence context of the EntityManager on a hit
+ * and a miss is reported if any is no longer cached.
+ * <p>
+ * The cache is disabled until a maximum size is set. The least recently used
+ * results are evicted once it is full. Results are invalidated by
+ * {@link ResultCacheInvalidator} when a transaction writing instances of the
+ * query's reference type, its current, edition or edition view, commits.
+ * Changes to other types used in the query criteria do not invalidate
+ * results.
+ *
+ * @see TemporalEntityManager#getCachedResultList(Query)
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class TemporalResultCache {
+
+    /**
+     * Session property name used to hold the cache for a persistence unit.
+     */
+    public static final String PROPERTY = TemporalResultCache.class.getName();
+
+    private int maxSize = 0;
+
+    private Map<List<Object>, Results> results = new LinkedHashMap<List<Object>, Results>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Results> eldest) {
+            return size() > getMaxSize();
+        }
+    };
+
+    /**
+     * Number of invalidations of each current descriptor, used to detect an
+     * invalidation while a query is executed.
+     */
+    private Map<ClassDescriptor, Long> generations = new HashMap<ClassDescriptor, Long>();
+
+    /**
+     * Number of times all results were removed.
+     */
+    private long clears = 0;
+
+    private AtomicLong hits = new AtomicLong();
+
+    private AtomicLong misses = new AtomicLong();
+
+    /**
+     * Lookup the cache configured on the session by
+     * {@link ConfigureTemporalDescriptors}.
+     *
+     * @return the cache or <code>null</code> if the session was not customized
+     */
+    public static TemporalResultCache getInstance(Session session) {
+        return (TemporalResultCache) session.getProperty(PROPERTY);
+    }
+
+    public synchronized int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Enable the cache with the provided maximum number of results or disable
+     * it with a size of 0.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (maxSize <= 0) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return getMaxSize() > 0;
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * Build the key for the query at the effective time from its JPQL,
+     * parameter values, first and maximum results and hints. Locking queries
+     * and queries refreshing their results must read the database and are not
+     * cached.
+     *
+     * @return the key or <code>null</code> if the query can not be cached
+     */
+    public List<Object> buildKey(Query query, Long effective) {
+        String jpql = query.unwrap(DatabaseQuery.class).getJPQLString();
+        if (jpql == null) {
+            return null;
+        }
+        LockModeType lockMode = query.getLockMode();
+        if (lockMode != null && lockMode != LockModeType.NONE) {
+            return null;
+        }
+        Map<String, Object> hints = new TreeMap<String, Object>();
+        if (query.getHints() != null) {
+            hints.putAll(query.getHints());
+        }
+        Object refresh = hints.get(QueryHints.REFRESH);
+        if (refresh != null && Boolean.valueOf(refresh.toString())) {
+            return null;
+        }
+        Map<String, Object> parameters = new TreeMap<String, Object>();
+        for (Parameter<?> parameter : query.getParameters()) {
+            if (query.isBound(parameter)) {
+                String name = parameter.getName() == null ? String.valueOf(parameter.getPosition()) : parameter.getName();
+                parameters.put(name, query.getParameterValue(parameter));
+            }
+        }
+        return Arrays.asList(jpql, effective, parameters, query.getFirstResult(), query.getMaxResults(), hints);
+    }
+
+    /**
+     * Read the cached results into the session.
+     *
+     * @return the results or <code>null</code> if not cached
+     */
+    public List<Object> get(List<Object> key, Session session) {
+        Results cached;
+        synchronized (this) {
+            cached = this.results.get(key);
+        }
+        if (cached != null) {
+            List<Object> objects = new ArrayList<Object>(cached.primaryKeys.length);
+            for (int index = 0; index < cached.primaryKeys.length; index++) {
+                Object object = session.getIdentityMapAccessor().getFromIdentityMap(cached.primaryKeys[index], cached.classes[index]);
+                if (object == null) {
+                    remove(key);
+                    objects = null;
+                    break;
+                }
+                objects.add(object);
+            }
+            if (objects != null) {
+                this.hits.incrementAndGet();
+                return objects;
+            }
+        }
+        this.misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @return the invalidation generation of the current descriptor, which
+     *         changes each time its results are invalidated
+     * @see #put(List, ClassDescriptor, long, List, Session)
+     */
+    public synchronized long getGeneration(ClassDescriptor currentDescriptor) {
+        Long generation = this.generations.get(currentDescriptor);
+        return this.clears + (generation == null ? 0 : generation);
+    }
+
+    /**
+     * Cache the results of a query against the current descriptor of its
+     * reference type. The results are not cached if the descriptor was
+     * invalidated since the generation was read before the query was
+     * executed, as they may not include the committed changes.
+     */
+    public void put(List<Object> key, ClassDescriptor currentDescriptor, long generation, List<?> objects, Session session) {
+        if (key == null || !isEnabled()) {
+            return;
+        }
+        Results cached = new Results(currentDescriptor, objects.size());
+        for (int index = 0; index < objects.size(); index++) {
+            Object object = objects.get(index);
+            ClassDescriptor descriptor = session.getClassDescriptor(object);
+            cached.classes[index] = descriptor.getJavaClass();
+            cached.primaryKeys[index] = descriptor.getObjectBuilder().extractPrimaryKeyFromObject(object, (AbstractSession) session);
+        }
+        synchronized (this) {
+            if (getGeneration(currentDescriptor) == generation) {
+                this.results.put(key, cached);
+            }
+        }
+    }
+
+    public synchronized void remove(List<Object> key) {
+        this.results.remove(key);
+    }
+
+    /**
+     * Remove all results of queries against the current descriptor.
+     */
+    public synchronized void invalidate(ClassDescriptor currentDescriptor) {
+        Long generation = this.generations.get(currentDescriptor);
+        this.generations.put(currentDescriptor, generation == null ? 1 : generation + 1);
+        for (Iterator<Results> i = this.results.values().iterator(); i.hasNext();) {
+            if (i.next().currentDescriptor == currentDescriptor) {
+                i.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        this.clears++;
+        this.results.clear();
+    }
+
+    private static class Results {
+
+        private ClassDescriptor currentDescriptor;
+
+        private Class<?>[] classes;
+
+        private Object[] primaryKeys;
+
+        private Results(ClassDescriptor currentDescriptor, int size) {
+            this.currentDescriptor = currentDescriptor;
+            this.classes = new Class<?>[size];
+            this.primaryKeys = new Object[size];
+        }
+    }
+
+}
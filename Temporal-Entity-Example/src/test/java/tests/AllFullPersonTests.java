@@ -24,7 +24,8 @@ import tests.editionsets.FullPersonWithEditionsMove;
 @SuiteClasses({FullPersonWithEditionsQueries.class,
   FullPersonWithEditionsMods.class,
   FullPersonWithEditionsMove.class,
-  FullPersonWithEditionsDelete.class})
+  FullPersonWithEditionsDelete.class,
+  FullPersonBatchFetchTests.class})
 public class AllFullPersonTests
 {
 }
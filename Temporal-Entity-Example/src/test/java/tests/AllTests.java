@@ -23,6 +23,12 @@ import org.junit.runners.Suite.SuiteClasses;
   ProxyWrapperUpdateTests.class,
   MultipleEditionQueries.class,
   DuplicateInsertOnCreateMerge.class,
+  BatchEditionCreationTests.class,
+  ReadOnlyEntityManagerTests.class,
+  ContinuityBatchTests.class,
+  FullPersonBatchFetchTests.class,
+  TemporalFetchPlanTests.class,
+  SharedEditionCacheTests.class,
   tests.editionsets.AllTests.class})
 public class AllTests
 {
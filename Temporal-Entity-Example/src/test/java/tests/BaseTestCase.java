@@ -60,6 +60,7 @@ public abstract class BaseTestCase
       properties.put(PersistenceUnitProperties.JDBC_URL, "jdbc:h2:mem:test");
       properties.put(PersistenceUnitProperties.JDBC_USER, "sa");
       properties.put(PersistenceUnitProperties.JDBC_PASSWORD, "");
+      addProperties(properties);
 
       emf = Persistence.createEntityManagerFactory("example", properties);
 
@@ -81,6 +82,14 @@ public abstract class BaseTestCase
     return emf;
   }
 
+  /**
+   * Add persistence unit properties used by the test case to create its
+   * EntityManagerFactory.
+   */
+  protected void addProperties(Map<String, Object> properties)
+  {
+  }
+
   public TemporalEntityManager getEntityManager()
   {
     return getEntityManager(null);
@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.config.BatchWriting;
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetEntry;
+import temporal.TemporalEntityManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static example.PersonModelExample.T2;
+import static temporal.Effectivity.BOT;
+import static temporal.Effectivity.EOT;
+
+/**
+ * Verify the batch edition and entity creation methods of
+ * {@link TemporalEntityManager} and compare their throughput against creating
+ * editions one at a time, which flushes the persistence context on each call.
+ * The persistence unit uses JDBC batch writing for this comparison.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class BatchEditionCreationTests extends BaseTestCase
+{
+
+  private static final int COUNT = 200;
+
+  /**
+   * Batch the inserts of the editions and EditionSet entries when they are
+   * flushed so the throughput reflects a batch writing configuration.
+   */
+  @Override
+  protected void addProperties(Map<String, Object> properties)
+  {
+    properties.put(PersistenceUnitProperties.BATCH_WRITING, BatchWriting.JDBC);
+    properties.put(PersistenceUnitProperties.BATCH_WRITING_SIZE, String.valueOf(COUNT));
+  }
+
+  @Override
+  public void populate(TemporalEntityManager em)
+  {
+    List<PersonEntity> people = em.newEntities(PersonEntity.class, COUNT);
+    for (int index = 0; index < people.size(); index++)
+    {
+      people.get(index).setName("Person " + index);
+    }
+  }
+
+  private List<Person> queryAllAtT2(TemporalEntityManager em)
+  {
+    return em.createQuery("SELECT p FROM Person p ORDER BY p.id", Person.class).getResultList();
+  }
+
+  @Test
+  public void verifyNewEntities()
+  {
+    TemporalEntityManager em = getEntityManager();
+
+    List<Person> people = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+
+    Assert.assertEquals(COUNT, people.size());
+    for (Person person : people)
+    {
+      Assert.assertEquals(BOT, person.getEffectivity().getStart());
+      Assert.assertEquals(EOT, person.getEffectivity().getEnd());
+      Assert.assertSame(person, person.getContinuity());
+    }
+  }
+
+  @Test
+  public void verifyNewEditions()
+  {
+    TemporalEntityManager em = getEntityManager();
+    em.getTransaction().begin();
+    em.setEffectiveTime(T2);
+
+    List<Person> people = queryAllAtT2(em);
+    List<Person> editions = em.newEditions(people);
+
+    Assert.assertEquals(COUNT, editions.size());
+    for (int index = 0; index < editions.size(); index++)
+    {
+      Person edition = editions.get(index);
+      Assert.assertEquals(T2, edition.getEffectivity().getStart());
+      Assert.assertEquals(EOT, edition.getEffectivity().getEnd());
+      Assert.assertEquals(T2, people.get(index).getEffectivity().getEnd());
+      Assert.assertEquals(people.get(index).getName(), edition.getName());
+      Assert.assertEquals(people.get(index).getContinuityId(), edition.getContinuityId());
+    }
+
+    EditionSet es = em.getEditionSet();
+    Assert.assertEquals(COUNT, es.getEntries().size());
+
+    // Changes after creation are tracked as they are for newEdition
+    editions.get(0).setName("Changed");
+    em.flush();
+
+    for (EditionSetEntry entry : es.getEntries())
+    {
+      Assert.assertEquals(entry.getTemporal() == editions.get(0), entry.getAttributes().contains("name"));
+    }
+  }
+
+  /**
+   * Compare creating an edition of every person with
+   * {@link TemporalEntityManager#newEdition} against a single
+   * {@link TemporalEntityManager#newEditions} call.
+   */
+  @Test
+  public void newEditionsThroughput()
+  {
+    TemporalEntityManager em = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    em.getTransaction().begin();
+    em.setEffectiveTime(T2);
+    List<Person> people = queryAllAtT2(em);
+
+    long start = System.nanoTime();
+    for (Person person : people)
+    {
+      em.newEdition(person);
+    }
+    long singleTime = System.nanoTime() - start;
+
+    em.getTransaction().rollback();
+    em.close();
+
+    em = getEntityManager();
+    em.getTransaction().begin();
+    em.setEffectiveTime(T2);
+    people = queryAllAtT2(em);
+
+    start = System.nanoTime();
+    List<Person> editions = em.newEditions(people);
+    long batchTime = System.nanoTime() - start;
+
+    Assert.assertEquals(COUNT, editions.size());
+    System.out.println("NEW EDITIONS: count=" + COUNT + " batchWriting=" + BatchWriting.JDBC + " newEdition=" + (singleTime / 1000000) + "ms newEditions=" + (batchTime / 1000000) + "ms");
+  }
+
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.server.Server;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.TemporalEntityManager;
+import temporal.persistence.ContinuityBatchLoader;
+
+import java.util.List;
+
+import static example.PersonModelExample.T2;
+
+/**
+ * Verify the continuities of editions read together are resolved with a
+ * batch query, see {@link ContinuityBatchLoader}, instead of one query per
+ * edition.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class ContinuityBatchTests extends BaseTestCase
+{
+
+  private static final int COUNT = 200;
+
+  @Override
+  public void populate(TemporalEntityManager em)
+  {
+    List<PersonEntity> people = em.newEntities(PersonEntity.class, COUNT);
+    for (int index = 0; index < people.size(); index++)
+    {
+      people.get(index).setName("Person " + index);
+    }
+    em.flush();
+
+    em.setEffectiveTime(T2);
+    List<Person> editions = em.newEditions(em.createQuery("SELECT p FROM Person p", Person.class).getResultList());
+    for (Person edition : editions)
+    {
+      edition.setEmail(edition.getName() + "@email.com");
+    }
+  }
+
+  @Test
+  public void resolveContinuitiesAtT2()
+  {
+    // Continuities must be read from the database
+    JpaHelper.getServerSession(getEMF()).getIdentityMapAccessor().initializeAllIdentityMaps();
+
+    SQLCounter counter = SQLCounter.install(getEMF());
+    try
+    {
+      TemporalEntityManager em = getEntityManager(T2);
+      List<Person> editions = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+      Assert.assertEquals(COUNT, editions.size());
+
+      counter.reset();
+      for (Person edition : editions)
+      {
+        Assert.assertEquals(T2, edition.getEffectivity().getStart());
+        Assert.assertNotNull(edition.getContinuity());
+        Assert.assertNotSame(edition, edition.getContinuity());
+        Assert.assertEquals(edition.getContinuityId(), edition.getContinuity().getId());
+        Assert.assertEquals(edition.getName(), edition.getContinuity().getName());
+      }
+
+      System.out.println("CONTINUITY SQL: editions=" + COUNT + " statements=" + counter.getCount());
+      Assert.assertTrue(counter.getCount() <= 1 + COUNT / ContinuityBatchLoader.BATCH_SIZE);
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+  }
+
+  @Test
+  public void cachedContinuitiesNotRead()
+  {
+    TemporalEntityManager em = getEntityManager(T2);
+    List<Person> editions = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+    for (Person edition : editions)
+    {
+      edition.getContinuity();
+    }
+
+    SQLCounter counter = SQLCounter.install(getEMF());
+    try
+    {
+      TemporalEntityManager em2 = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+      em2.setEffectiveTime(T2);
+      try
+      {
+        List<Person> cached = em2.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+        counter.reset();
+        for (Person edition : cached)
+        {
+          Assert.assertEquals(edition.getContinuityId(), edition.getContinuity().getId());
+        }
+        Assert.assertEquals(0, counter.getCount());
+      }
+      finally
+      {
+        em2.close();
+      }
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+  }
+
+  /**
+   * Continuities pending in a closed EntityManager are not read by another
+   * which only reads one edition.
+   */
+  @Test
+  public void pendingLimitedToPersistenceContext()
+  {
+    Server session = JpaHelper.getServerSession(getEMF());
+    session.getIdentityMapAccessor().initializeAllIdentityMaps();
+
+    TemporalEntityManager em = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    em.setEffectiveTime(T2);
+    List<Person> editions = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+    int first = editions.get(0).getContinuityId();
+    int other = editions.get(1).getContinuityId();
+    em.close();
+
+    em = getEntityManager(T2);
+    Person edition = em.createQuery("SELECT p FROM Person p WHERE p.cid = :CID", Person.class).setParameter("CID", first).getSingleResult();
+    Assert.assertEquals(first, edition.getContinuity().getId());
+    Assert.assertNull(session.getIdentityMapAccessor().getFromIdentityMap(other, PersonEntity.class));
+  }
+
+}
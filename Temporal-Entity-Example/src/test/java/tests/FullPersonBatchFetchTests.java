@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.jpa.JpaHelper;
+
+import model.Hobby;
+import model.Person;
+import model.entities.AddressEntity;
+import model.entities.PersonEntity;
+import temporal.Effectivity;
+import temporal.TemporalEntityManager;
+import temporal.persistence.ConfigureTemporalDescriptors;
+
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import static example.PersonModelExample.GOLF;
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T4;
+
+/**
+ * Count the SQL statements used to read the relationships of all persons at
+ * an effective time. The address, phones and hobbies of the editions are
+ * batch read, see {@link ConfigureTemporalDescriptors#BATCH_FETCH_PROPERTY},
+ * so each relationship is read with a single statement for all persons
+ * instead of one per person.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class FullPersonBatchFetchTests extends FullPersonWithEditions
+{
+
+  private static final int COUNT = 20;
+
+  @Override
+  public void populate(EntityManagerFactory emf)
+  {
+    super.populate(emf);
+
+    TemporalEntityManager em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    em.getTransaction().begin();
+    try
+    {
+      Hobby golf = em.find(Hobby.class, GOLF);
+      for (int index = 0; index < COUNT; index++)
+      {
+        PersonEntity person = new PersonEntity();
+        person.setName("Person " + index);
+        person.setAddress(new AddressEntity(index + " Main St", "Ottawa", "ON"));
+        person.addPhone("Home", "613-555-" + (1000 + index));
+        em.persist(person);
+        em.persist(person.addHobby(golf, Effectivity.BOT));
+      }
+      em.getTransaction().commit();
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  /**
+   * Read all persons at the effective time from the database and count the
+   * statements used to access each relationship.
+   */
+  private void readRelationships(long effectiveTime, int expectedPhones)
+  {
+    JpaHelper.getServerSession(getEMF()).getIdentityMapAccessor().initializeAllIdentityMaps();
+
+    SQLCounter counter = SQLCounter.install(getEMF());
+    try
+    {
+      TemporalEntityManager em = getEntityManager(effectiveTime);
+      List<Person> people = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+      Assert.assertEquals(COUNT + 1, people.size());
+
+      counter.reset();
+      for (Person person : people)
+      {
+        Assert.assertNotNull(person.getAddress());
+        Assert.assertNotNull(person.getAddress().getCity());
+      }
+      int addressStatements = counter.getCount();
+
+      counter.reset();
+      for (Person person : people)
+      {
+        if (person.getContinuityId() == getSample().getContinuityId())
+        {
+          Assert.assertEquals(expectedPhones, person.getPhones().size());
+        }
+        else
+        {
+          Assert.assertEquals(1, person.getPhones().size());
+        }
+      }
+      int phoneStatements = counter.getCount();
+
+      counter.reset();
+      for (Person person : people)
+      {
+        Assert.assertFalse(person.getPersonHobbies().isEmpty());
+      }
+      int hobbyStatements = counter.getCount();
+
+      System.out.println("BATCH FETCH SQL: persons=" + people.size() + " address=" + addressStatements + " phones=" + phoneStatements + " hobbies=" + hobbyStatements);
+      Assert.assertTrue(addressStatements <= 1);
+      Assert.assertTrue(phoneStatements <= 1);
+      // The hobbies are batch read with one statement. PersonHobby is
+      // identified by its hobby name so all rows build the same instance,
+      // whose EAGER person joins on CID instead of the primary key and is
+      // read with one more statement.
+      Assert.assertTrue(hobbyStatements <= 2);
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+  }
+
+  @Test
+  public void batchReadAtT2()
+  {
+    readRelationships(T2, 2);
+
+    Person sample = getEntityManager().find(Person.class, getSample().getContinuityId());
+    Assert.assertEquals("Toronto", sample.getAddress().getCity());
+    Assert.assertTrue(sample.getPersonHobbies().containsKey(GOLF));
+  }
+
+  @Test
+  public void batchReadAtT4()
+  {
+    readRelationships(T4, 2);
+
+    Person sample = getEntityManager().find(Person.class, getSample().getContinuityId());
+    Assert.assertEquals("San Francisco", sample.getAddress().getCity());
+    Assert.assertFalse(sample.getPersonHobbies().containsKey(GOLF));
+  }
+
+}
@@ -15,10 +15,13 @@ import org.junit.Test;
 
 import org.eclipse.persistence.jpa.JpaHelper;
 import org.eclipse.persistence.sessions.CopyGroup;
+import org.eclipse.persistence.sessions.server.Server;
 
 import model.Person;
 import model.Phone;
 import temporal.TemporalEntityManager;
+import temporal.persistence.DescriptorHelper;
+import temporal.persistence.EditionCache;
 
 import javax.persistence.TypedQuery;
 
@@ -203,4 +206,45 @@ public class FullPersonWithEditionsMods extends FullPersonWithEditions
     }
     Assert.fail("IllegalStateException expected");
   }
+
+  /**
+   * An edition read in one EntityManager is found in the shared cache by
+   * another without a query and its relationships are still resolved at the
+   * second EntityManager's effective time. A write to the continuity removes
+   * it from the {@link EditionCache}.
+   */
+  @Test
+  public void findEditionFromSharedCacheAcrossEntityManagers()
+  {
+    Server session = JpaHelper.getServerSession(getEMF());
+    EditionCache editionCache = DescriptorHelper.getEditionCache(DescriptorHelper.getEditionDescriptor(session, Person.class));
+
+    TemporalEntityManager em = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    em.setEffectiveTime(T2);
+    Person pT2 = em.find(Person.class, getSample().getContinuityId());
+    em.close();
+
+    Assert.assertNotNull(pT2);
+    Assert.assertEquals(pT2.getId(), editionCache.getPrimaryKey(getSample().getContinuityId(), T2));
+    Assert.assertNull(editionCache.getPrimaryKey(getSample().getContinuityId(), T4));
+
+    em = getEntityManager();
+    em.setEffectiveTime(T2 + 1);
+    Person pEdition = em.find(Person.class, getSample().getContinuityId());
+
+    Assert.assertNotNull(pEdition);
+    Assert.assertNotSame(pT2, pEdition);
+    Assert.assertEquals(pT2.getId(), pEdition.getId());
+    Assert.assertEquals(T2, pEdition.getEffectivity().getStart());
+    Assert.assertEquals("Toronto", pEdition.getAddress().getCity());
+    Assert.assertEquals(2, pEdition.getPhones().size());
+
+    em.getTransaction().begin();
+    pEdition.setEmail("jimmy@email.com");
+    em.flush();
+
+    Assert.assertNull(editionCache.getPrimaryKey(getSample().getContinuityId(), T2));
+
+    em.getTransaction().rollback();
+  }
 }
@@ -12,20 +12,37 @@ package tests;
 
 import org.junit.Test;
 
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.RepeatableWriteUnitOfWork;
+import org.eclipse.persistence.jpa.JpaHelper;
+
 import example.PersonModelExample;
 import junit.framework.Assert;
 import model.Address;
 import model.Person;
 import model.Phone;
+import temporal.TemporalCursor;
+import temporal.persistence.DescriptorHelper;
+import temporal.persistence.TemporalResultCache;
 import temporal.TemporalEntityManager;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import static example.PersonModelExample.GOLF;
 import static example.PersonModelExample.RUN;
 import static example.PersonModelExample.SKI;
 import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T3;
 import static example.PersonModelExample.T4;
+import static example.PersonModelExample.T5;
+import static temporal.Effectivity.BOT;
 
 /**
  * TODO
@@ -54,6 +71,322 @@ public class MultipleEditionQueries extends BaseTestCase
     Assert.assertEquals(3, results.size());
   }
 
+  @Test
+  public void queryPersonAsOfMultipleTimes()
+  {
+    TemporalEntityManager em = getEntityManager();
+
+    Map<Long, List<Person>> results = em.queryAsOf("SELECT p FROM Person p WHERE p.cid = " + getSample().getId(), Person.class, T5, BOT, T2, T3, T4);
+
+    Assert.assertEquals(5, results.size());
+    Assert.assertEquals(Long.valueOf(T5), results.keySet().iterator().next());
+    for (List<Person> people : results.values())
+    {
+      Assert.assertEquals(1, people.size());
+    }
+
+    Person atT2 = results.get(T2).get(0);
+    Assert.assertEquals(T2, atT2.getEffectivity().getStart());
+    Assert.assertSame(atT2, results.get(T3).get(0));
+    Assert.assertEquals(BOT, results.get(BOT).get(0).getEffectivity().getStart());
+    Assert.assertEquals(T4, results.get(T4).get(0).getEffectivity().getStart());
+    Assert.assertSame(results.get(T4).get(0), results.get(T5).get(0));
+  }
+
+  /**
+   * The parameters of the query are used and the times are bound so queries
+   * for other times reuse the same SQL.
+   */
+  @Test
+  public void queryPersonAsOfWithParameters()
+  {
+    TemporalEntityManager em = getEntityManager();
+
+    TypedQuery<Person> query = em.createQuery("SELECT p FROM Person p WHERE p.cid = :CID", Person.class).setParameter("CID", getSample().getId());
+    Map<Long, List<Person>> results = em.queryAsOf(query, T2, T4);
+
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals(T2, results.get(T2).get(0).getEffectivity().getStart());
+    Assert.assertEquals(T4, results.get(T4).get(0).getEffectivity().getStart());
+
+    query = em.createQuery("SELECT p FROM Person p WHERE p.cid = ?1", Person.class).setParameter(1, getSample().getId());
+    results = em.queryAsOf(query, BOT, T3);
+    Assert.assertEquals(BOT, results.get(BOT).get(0).getEffectivity().getStart());
+    Assert.assertEquals(T2, results.get(T3).get(0).getEffectivity().getStart());
+
+    query = em.createQuery("SELECT p FROM Person p WHERE p.cid = :CID", Person.class).setParameter("CID", -1);
+    for (List<Person> people : em.queryAsOf(query, T2, T4).values())
+    {
+      Assert.assertTrue(people.isEmpty());
+    }
+  }
+
+  @Test
+  public void queryAllAddressEditions()
+  {
+    TemporalEntityManager em = getEntityManager();
+
+    List<Address> results = em.createNamedQuery("AddressEdition.all", Address.class).setParameter("CID", getSample().getAddress().getId()).getResultList();
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals(BOT, results.get(0).getEffectivity().getStart());
+    Assert.assertEquals(T2, results.get(1).getEffectivity().getStart());
+    Assert.assertEquals(T4, results.get(2).getEffectivity().getStart());
+  }
+
+  @Test
+  public void streamPersonHistory()
+  {
+    TemporalEntityManager em = getEntityManager();
+
+    Iterator<Person> history = em.getHistory(Person.class, getSample().getId(), 2);
+
+    List<Long> starts = new ArrayList<Long>();
+    while (history.hasNext())
+    {
+      Person edition = history.next();
+      Assert.assertEquals(getSample().getId(), edition.getContinuityId());
+      starts.add(edition.getEffectivity().getStart());
+    }
+
+    Assert.assertEquals(3, starts.size());
+    Assert.assertEquals(Long.valueOf(BOT), starts.get(0));
+    Assert.assertEquals(Long.valueOf(T2), starts.get(1));
+    Assert.assertEquals(Long.valueOf(T4), starts.get(2));
+    Assert.assertFalse(history.hasNext());
+  }
+
+  @Test
+  public void streamPeopleAtT2()
+  {
+    TemporalEntityManager em = getEntityManager();
+    RepeatableWriteUnitOfWork uow = em.unwrap(RepeatableWriteUnitOfWork.class);
+
+    TemporalCursor<Person> cursor = em.stream("SELECT p FROM Person p", Person.class, T2);
+    TemporalEntityManager cursorEm = cursor.getEntityManager();
+    RepeatableWriteUnitOfWork cursorUow = cursorEm.unwrap(RepeatableWriteUnitOfWork.class);
+    Assert.assertNotSame(em, cursorEm);
+    Assert.assertEquals(Long.valueOf(T2), cursorEm.getEffectiveTime());
+    Assert.assertNull(em.getEffectiveTime());
+
+    int count = 0;
+    while (cursor.hasNext())
+    {
+      Person person = cursor.next();
+      Assert.assertEquals(T2, person.getEffectivity().getStart());
+      Assert.assertEquals("Toronto", person.getAddress().getCity());
+      Assert.assertTrue(cursorUow.getCloneMapping().containsKey(person));
+      Assert.assertFalse(uow.getCloneMapping().containsKey(person));
+      count++;
+    }
+
+    Assert.assertEquals(1, count);
+    Assert.assertTrue(cursor.isClosed());
+    Assert.assertFalse(cursorEm.isOpen());
+    Assert.assertNull(em.getEffectiveTime());
+    for (Object clone : uow.getCloneMapping().keySet())
+    {
+      Assert.assertFalse(clone instanceof Person);
+    }
+  }
+
+  /**
+   * A result changed since it was read is kept in the cursor's persistence
+   * context even though the change has not been flushed.
+   */
+  @Test
+  public void streamKeepsChangedResults()
+  {
+    TemporalEntityManager em = getEntityManager();
+    em.setEffectiveTime(T4);
+    Person atT4 = em.find(Person.class, getSample().getId());
+
+    TemporalCursor<Person> cursor = em.stream("SELECT p FROM PersonEditionView p ORDER BY p.effectivity.start", Person.class, T2);
+    RepeatableWriteUnitOfWork cursorUow = cursor.getEntityManager().unwrap(RepeatableWriteUnitOfWork.class);
+    try
+    {
+      Person first = cursor.next();
+      first.setEmail("changed@email.com");
+      Person second = cursor.next();
+      Assert.assertTrue(cursorUow.getCloneMapping().containsKey(first));
+
+      cursor.next();
+      Assert.assertTrue(cursorUow.getCloneMapping().containsKey(first));
+      Assert.assertFalse(cursorUow.getCloneMapping().containsKey(second));
+    }
+    finally
+    {
+      cursor.close();
+    }
+
+    // The EntityManager streamed from keeps its effective time and clones
+    Assert.assertEquals(Long.valueOf(T4), em.getEffectiveTime());
+    Assert.assertTrue(em.contains(atT4));
+  }
+
+  @Test
+  public void cachedResultsAtT2()
+  {
+    TemporalResultCache resultCache = TemporalResultCache.getInstance(JpaHelper.getServerSession(getEMF()));
+    resultCache.setMaxSize(10);
+    long hits = resultCache.getHitCount();
+    long misses = resultCache.getMissCount();
+    try
+    {
+      String jpql = "SELECT p FROM Person p WHERE p.cid = :CID";
+
+      TemporalEntityManager em = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+      em.setEffectiveTime(T2);
+      List<Person> results = em.getCachedResultList(em.createQuery(jpql).setParameter("CID", getSample().getId()));
+      em.close();
+
+      Assert.assertEquals(1, results.size());
+      Assert.assertEquals(hits, resultCache.getHitCount());
+      Assert.assertEquals(misses + 1, resultCache.getMissCount());
+
+      em = getEntityManager();
+      em.setEffectiveTime(T2);
+      List<Person> cached = em.getCachedResultList(em.createQuery(jpql).setParameter("CID", getSample().getId()));
+
+      Assert.assertEquals(1, cached.size());
+      Assert.assertEquals(results.get(0).getId(), cached.get(0).getId());
+      Assert.assertEquals(T2, cached.get(0).getEffectivity().getStart());
+      Assert.assertEquals("Toronto", cached.get(0).getAddress().getCity());
+      Assert.assertEquals(hits + 1, resultCache.getHitCount());
+
+      // Another effective time is a miss
+      em.setEffectiveTime(T4);
+      em.getCachedResultList(em.createQuery(jpql).setParameter("CID", getSample().getId()));
+      Assert.assertEquals(misses + 2, resultCache.getMissCount());
+
+      // Committing a change to a Person invalidates its results
+      em.setEffectiveTime(T2);
+      em.getTransaction().begin();
+      Person person = em.find(Person.class, getSample().getId());
+      String email = person.getEmail();
+      person.setEmail("jimmy@email.com");
+      em.getTransaction().commit();
+      try
+      {
+        em.getCachedResultList(em.createQuery(jpql).setParameter("CID", getSample().getId()));
+        Assert.assertEquals(hits + 1, resultCache.getHitCount());
+        Assert.assertEquals(misses + 3, resultCache.getMissCount());
+      }
+      finally
+      {
+        setEmail(T2, email);
+      }
+    }
+    finally
+    {
+      resultCache.setMaxSize(0);
+    }
+  }
+
+  /**
+   * Restore the email of the sample's edition at the effective time for the
+   * other tests sharing the populated data.
+   */
+  /**
+   * Each page of a paged query is cached separately and locking queries are
+   * not answered from the cache.
+   */
+  @Test
+  public void cachedResultsPagedAndLocked()
+  {
+    TemporalResultCache resultCache = TemporalResultCache.getInstance(JpaHelper.getServerSession(getEMF()));
+    resultCache.setMaxSize(10);
+    long hits = resultCache.getHitCount();
+    long misses = resultCache.getMissCount();
+    try
+    {
+      String jpql = "SELECT p FROM Person p";
+      TemporalEntityManager em = getEntityManager();
+      em.setEffectiveTime(T2);
+
+      List<Person> first = em.getCachedResultList(em.createQuery(jpql).setFirstResult(0).setMaxResults(1));
+      List<Person> second = em.getCachedResultList(em.createQuery(jpql).setFirstResult(1).setMaxResults(1));
+      Assert.assertEquals(1, first.size());
+      Assert.assertTrue(second.isEmpty());
+      Assert.assertEquals(hits, resultCache.getHitCount());
+      Assert.assertEquals(misses + 2, resultCache.getMissCount());
+
+      first = em.getCachedResultList(em.createQuery(jpql).setFirstResult(0).setMaxResults(1));
+      Assert.assertEquals(1, first.size());
+      Assert.assertEquals(hits + 1, resultCache.getHitCount());
+
+      em.getTransaction().begin();
+      try
+      {
+        List<Person> locked = em.getCachedResultList(em.createQuery(jpql).setFirstResult(0).setMaxResults(1).setLockMode(LockModeType.PESSIMISTIC_WRITE));
+        Assert.assertEquals(1, locked.size());
+        Assert.assertEquals(hits + 1, resultCache.getHitCount());
+        Assert.assertEquals(misses + 2, resultCache.getMissCount());
+      }
+      finally
+      {
+        em.getTransaction().rollback();
+      }
+    }
+    finally
+    {
+      resultCache.setMaxSize(0);
+    }
+  }
+
+  /**
+   * Results of a query executed while a commit invalidated its type are not
+   * cached.
+   */
+  @Test
+  public void invalidatedResultsNotCached()
+  {
+    TemporalResultCache resultCache = TemporalResultCache.getInstance(JpaHelper.getServerSession(getEMF()));
+    resultCache.setMaxSize(10);
+    try
+    {
+      TemporalEntityManager em = getEntityManager();
+      em.setEffectiveTime(T2);
+      Query query = em.createQuery("SELECT p FROM Person p WHERE p.cid = :CID").setParameter("CID", getSample().getId());
+      List<Object> key = resultCache.buildKey(query, T2);
+      ClassDescriptor currentDesc = DescriptorHelper.getCurrentDescriptor(JpaHelper.getServerSession(getEMF()), Person.class);
+
+      long generation = resultCache.getGeneration(currentDesc);
+      List<?> results = query.getResultList();
+      resultCache.invalidate(currentDesc);
+      resultCache.put(key, currentDesc, generation, results, JpaHelper.getServerSession(getEMF()));
+      Assert.assertNull(resultCache.get(key, JpaHelper.getServerSession(getEMF())));
+
+      generation = resultCache.getGeneration(currentDesc);
+      resultCache.put(key, currentDesc, generation, results, JpaHelper.getServerSession(getEMF()));
+      Assert.assertNotNull(resultCache.get(key, JpaHelper.getServerSession(getEMF())));
+    }
+    finally
+    {
+      resultCache.setMaxSize(0);
+    }
+  }
+
+  private void setEmail(long effectiveTime, String email)
+  {
+    TemporalEntityManager em = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    try
+    {
+      em.setEffectiveTime(effectiveTime);
+      em.getTransaction().begin();
+      em.find(Person.class, getSample().getId()).setEmail(email);
+      em.getTransaction().commit();
+    }
+    finally
+    {
+      if (em.getTransaction().isActive())
+      {
+        em.getTransaction().rollback();
+      }
+      em.close();
+    }
+  }
+
   @Override
   public void populate(TemporalEntityManager em)
   {
@@ -0,0 +1,293 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.internal.sessions.RepeatableWriteUnitOfWork;
+
+import model.Hobby;
+import model.Person;
+import model.entities.PhoneEntity;
+import temporal.TemporalEntityManager;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import static example.PersonModelExample.GOLF;
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T4;
+
+/**
+ * Verify the read-only {@link TemporalEntityManager} returned by
+ * {@link TemporalEntityManager#readOnly(javax.persistence.EntityManagerFactory, long)}
+ * and compare the latency and allocation of reading a person as of a time
+ * with it against the default persistence context which registers clones.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class ReadOnlyEntityManagerTests extends FullPersonWithEditions
+{
+
+  private static final int READS = 1000;
+
+  @Test
+  public void verifyReadOnlyT2()
+  {
+    TemporalEntityManager em = TemporalEntityManager.readOnly(getEMF(), T2);
+    try
+    {
+      Assert.assertTrue(em.isReadOnly());
+      verifyT2(em);
+
+      Person person = em.find(Person.class, getSample().getContinuityId());
+      Assert.assertTrue(em.unwrap(RepeatableWriteUnitOfWork.class).getCloneMapping().isEmpty());
+      Assert.assertFalse(em.contains(person));
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  @Test
+  public void queryReadOnlyT4()
+  {
+    TemporalEntityManager em = TemporalEntityManager.readOnly(getEMF(), T4);
+    try
+    {
+      verifyT4(em);
+
+      List<Person> people = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+      Assert.assertEquals(1, people.size());
+      Assert.assertEquals("James", people.get(0).getName());
+      Assert.assertTrue(em.unwrap(RepeatableWriteUnitOfWork.class).getCloneMapping().isEmpty());
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  @Test
+  public void findNonTemporalReadOnly()
+  {
+    TemporalEntityManager em = TemporalEntityManager.readOnly(getEMF(), T2);
+    try
+    {
+      Hobby golf = em.find(Hobby.class, GOLF);
+      Assert.assertNotNull(golf);
+      Assert.assertTrue(em.unwrap(RepeatableWriteUnitOfWork.class).getCloneMapping().isEmpty());
+      Assert.assertFalse(em.contains(golf));
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  @Test
+  public void rejectChanges()
+  {
+    TemporalEntityManager em = TemporalEntityManager.readOnly(getEMF(), T2);
+    try
+    {
+      Person person = em.find(Person.class, getSample().getContinuityId());
+
+      try
+      {
+        em.newEdition(person);
+        Assert.fail("UnsupportedOperationException expected on newEdition");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.newEntity(PhoneEntity.class);
+        Assert.fail("UnsupportedOperationException expected on newEntity");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.persist(person);
+        Assert.fail("UnsupportedOperationException expected on persist");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.setEffectiveTime(T4);
+        Assert.fail("UnsupportedOperationException expected on setEffectiveTime");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.flush();
+        Assert.fail("UnsupportedOperationException expected on flush");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.refresh(person);
+        Assert.fail("UnsupportedOperationException expected on refresh");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.lock(person, LockModeType.PESSIMISTIC_WRITE);
+        Assert.fail("UnsupportedOperationException expected on lock");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.joinTransaction();
+        Assert.fail("UnsupportedOperationException expected on joinTransaction");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.createNativeQuery("SELECT * FROM THOBBY");
+        Assert.fail("UnsupportedOperationException expected on createNativeQuery");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.createNativeQuery("SELECT * FROM THOBBY", Hobby.class);
+        Assert.fail("UnsupportedOperationException expected on createNativeQuery");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      try
+      {
+        em.getTransaction().begin();
+        Assert.fail("UnsupportedOperationException expected on begin");
+      }
+      catch (UnsupportedOperationException expected)
+      {
+      }
+      Assert.assertFalse(em.getTransaction().isActive());
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  @Test
+  public void readOnlyCost()
+  {
+    for (int i = 0; i < READS; i++)
+    {
+      readT2(false);
+      readT2(true);
+    }
+
+    long[] unitOfWork = measure(false);
+    long[] readOnly = measure(true);
+
+    System.out.println("READ ONLY COST: reads=" + READS + " unitOfWork=" + format(unitOfWork) + " readOnly=" + format(readOnly));
+  }
+
+  /**
+   * @return the time and, if it could be measured, the allocation
+   */
+  private String format(long[] cost)
+  {
+    return cost[0] + "ns" + (cost[1] < 0 ? "" : "/" + cost[1] + "B");
+  }
+
+  /**
+   * @return the average time and bytes allocated, or -1 if allocation can not
+   *         be measured on this VM, to read the sample person at T2
+   */
+  private long[] measure(boolean readOnly)
+  {
+    long allocated = getAllocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < READS; i++)
+    {
+      readT2(readOnly);
+    }
+    long time = System.nanoTime() - start;
+    if (allocated >= 0)
+    {
+      allocated = (getAllocatedBytes() - allocated) / READS;
+    }
+    return new long[] { time / READS, allocated };
+  }
+
+  private void readT2(boolean readOnly)
+  {
+    TemporalEntityManager em = readOnly ? TemporalEntityManager.readOnly(getEMF(), T2) : TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    try
+    {
+      em.setEffectiveTime(T2);
+      Person person = em.find(Person.class, getSample().getContinuityId());
+      person.getAddress().getCity();
+      person.getPhones().size();
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  /**
+   * The allocation of the current thread is only available from the
+   * com.sun.management extension of the ThreadMXBean which is looked up
+   * reflectively as other VMs do not provide it.
+   *
+   * @return the bytes allocated by the current thread or -1 if this VM can
+   *         not measure it
+   */
+  private long getAllocatedBytes()
+  {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    try
+    {
+      Class<?> extension = Class.forName("com.sun.management.ThreadMXBean");
+      if (extension.isInstance(threadBean))
+      {
+        Method method = extension.getMethod("getThreadAllocatedBytes", long.class);
+        return (Long) method.invoke(threadBean, Thread.currentThread().getId());
+      }
+    }
+    catch (Exception e)
+    {
+      // Not supported by this VM
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests;
+
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.logging.DefaultSessionLog;
+import org.eclipse.persistence.logging.SessionLog;
+import org.eclipse.persistence.logging.SessionLogEntry;
+import org.eclipse.persistence.sessions.server.Server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Session log counting the SQL statements logged by a persistence unit. All
+ * entries are passed on to the original log. EntityManagers must be created
+ * after the counter is installed for their statements to be counted.
+ * <p>
+ * Requires SQL logging, which is enabled at FINE in the persistence.xml.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class SQLCounter extends DefaultSessionLog
+{
+
+  private Server session;
+
+  private SessionLog log;
+
+  private AtomicInteger count = new AtomicInteger();
+
+  private SQLCounter(Server session)
+  {
+    this.session = session;
+    this.log = session.getSessionLog();
+  }
+
+  public static SQLCounter install(EntityManagerFactory emf)
+  {
+    SQLCounter counter = new SQLCounter(JpaHelper.getServerSession(emf));
+    counter.session.setSessionLog(counter);
+    return counter;
+  }
+
+  public void uninstall()
+  {
+    this.session.setSessionLog(this.log);
+  }
+
+  public int getCount()
+  {
+    return this.count.get();
+  }
+
+  public void reset()
+  {
+    this.count.set(0);
+  }
+
+  @Override
+  public boolean shouldLog(int level, String category)
+  {
+    return this.log.shouldLog(level, category);
+  }
+
+  @Override
+  public void log(SessionLogEntry entry)
+  {
+    if (SessionLog.SQL.equals(entry.getNameSpace()))
+    {
+      this.count.incrementAndGet();
+    }
+    this.log.log(entry);
+  }
+
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Address;
+import model.Person;
+import model.entities.AddressEntity;
+import model.entities.PersonEntity;
+import temporal.Effectivity;
+import temporal.TemporalEntityManager;
+import temporal.persistence.DescriptorHelper;
+import temporal.persistence.EditionCache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import static example.PersonModelExample.T1;
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T3;
+
+/**
+ * Verify editions shared in the session cache are read by EntityManagers at
+ * different effective times while their relationships are resolved at each
+ * EntityManager's own effective time, and that the {@link EditionCache} is
+ * bounded.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class SharedEditionCacheTests extends BaseTestCase
+{
+
+  private static final int COUNT = 3;
+
+  private static List<Integer> personIds = new ArrayList<Integer>();
+
+  @Override
+  protected void populate(EntityManagerFactory emf)
+  {
+    personIds.clear();
+    TemporalEntityManager em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    em.getTransaction().begin();
+    List<AddressEntity> addresses = new ArrayList<AddressEntity>();
+    for (int index = 0; index < COUNT; index++)
+    {
+      AddressEntity address = em.newEntity(AddressEntity.class);
+      address.setStreet(index + " Main St");
+      address.setCity("City " + index);
+      PersonEntity person = em.newEntity(PersonEntity.class);
+      person.setName("Person " + index);
+      person.setAddress(address);
+      addresses.add(address);
+    }
+    em.getTransaction().commit();
+    em.close();
+
+    // Only the address of person 0 changes at T2
+    em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    em.getTransaction().begin();
+    for (Person person : em.createQuery("SELECT p FROM Person p ORDER BY p.name", Person.class).getResultList())
+    {
+      personIds.add(person.getId());
+    }
+    Address address = em.find(Address.class, addresses.get(0).getId());
+    em.setEffectiveTime(T2);
+    Address edition = em.newEdition(address);
+    edition.setCity("City 0 at T2");
+    em.getTransaction().commit();
+    em.close();
+  }
+
+  @Test
+  public void relationshipsResolvedPerEntityManager()
+  {
+    TemporalEntityManager emT1 = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    TemporalEntityManager emT3 = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    try
+    {
+      emT1.setEffectiveTime(T1);
+      Person atT1 = emT1.find(Person.class, personIds.get(0));
+      Assert.assertEquals(Effectivity.BOT, atT1.getEffectivity().getStart());
+      Assert.assertTrue(getEMF().getCache().contains(atT1.getClass(), atT1.getId()));
+
+      // The same shared edition covers T3
+      emT3.setEffectiveTime(T3);
+      Person atT3 = emT3.find(Person.class, personIds.get(0));
+      Assert.assertNotSame(atT1, atT3);
+      Assert.assertSame(atT1.getClass(), atT3.getClass());
+      Assert.assertEquals(atT1.getId(), atT3.getId());
+
+      Assert.assertEquals("City 0 at T2", atT3.getAddress().getCity());
+      Assert.assertEquals("City 0", atT1.getAddress().getCity());
+      Assert.assertEquals("City 0 at T2", atT3.getAddress().getCity());
+      Assert.assertEquals(T2, atT3.getAddress().getEffectivity().getStart());
+      Assert.assertEquals(T2, atT1.getAddress().getEffectivity().getEnd());
+
+      // A third EntityManager at T1 reading after T3 still sees the original
+      TemporalEntityManager em = getEntityManager();
+      em.setEffectiveTime(T1);
+      Assert.assertEquals("City 0", em.find(Person.class, personIds.get(0)).getAddress().getCity());
+    }
+    finally
+    {
+      emT1.close();
+      emT3.close();
+    }
+  }
+
+  @Test
+  public void editionCacheBounded()
+  {
+    ClassDescriptor editionDesc = DescriptorHelper.getEditionDescriptor(JpaHelper.getServerSession(getEMF()), Person.class);
+    Assert.assertEquals(editionDesc.getIdentityMapSize(), DescriptorHelper.getEditionCache(editionDesc).getMaxSize());
+
+    TemporalEntityManager em = getEntityManager();
+    em.setEffectiveTime(T1);
+    EditionCache cache = new EditionCache(2);
+    List<Person> people = new ArrayList<Person>();
+    for (int id : personIds)
+    {
+      Person person = em.find(Person.class, id);
+      people.add(person);
+      cache.put(person, person.getId());
+    }
+
+    // The least recently used continuity is removed
+    Assert.assertEquals(2, cache.size());
+    Assert.assertNull(cache.getPrimaryKey(people.get(0).getContinuityId(), T1));
+    Assert.assertEquals(people.get(1).getId(), cache.getPrimaryKey(people.get(1).getContinuityId(), T1));
+    Assert.assertEquals(people.get(2).getId(), cache.getPrimaryKey(people.get(2).getContinuityId(), T1));
+
+    cache.getPrimaryKey(people.get(1).getContinuityId(), T1);
+    cache.setMaxSize(1);
+    Assert.assertEquals(1, cache.size());
+    Assert.assertNotNull(cache.getPrimaryKey(people.get(1).getContinuityId(), T1));
+  }
+
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.eclipse.persistence.jpa.JpaHelper;
+
+import model.Person;
+import temporal.Effectivity;
+import temporal.TemporalEntityManager;
+import temporal.TemporalFetchPlan;
+
+import static example.PersonModelExample.GOLF;
+import static example.PersonModelExample.RUN;
+import static example.PersonModelExample.SKI;
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T4;
+
+/**
+ * Verify a {@link TemporalFetchPlan} loads a person with its address, phones,
+ * hobbies and nicknames at an effective time in a fixed number of SQL
+ * statements.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class TemporalFetchPlanTests extends FullPersonWithEditions
+{
+
+  private static final String PLAN = "person-graph";
+
+  /**
+   * One statement for the person and its address plus one for each
+   * collection.
+   */
+  private static final int PLAN_STATEMENTS = 4;
+
+  @Before
+  public void addFetchPlan()
+  {
+    TemporalEntityManager em = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    em.addFetchPlan(new TemporalFetchPlan(PLAN, Person.class, "address", "phones", "hobbies", "nicknames"));
+    em.close();
+  }
+
+  private Person findWithPlan(Long effectiveTime, SQLCounter counter)
+  {
+    // Relationships must be read from the database
+    JpaHelper.getServerSession(getEMF()).getIdentityMapAccessor().initializeAllIdentityMaps();
+
+    TemporalEntityManager em = getEntityManager(effectiveTime);
+    counter.reset();
+
+    Person person = em.find(Person.class, getSample().getContinuityId(), PLAN);
+    Assert.assertNotNull(person);
+    Assert.assertNotNull(person.getAddress().getCity());
+    person.getPhones().size();
+    person.getPersonHobbies().size();
+    person.getNicknames().size();
+    return person;
+  }
+
+  @Test
+  public void findCurrent()
+  {
+    SQLCounter counter = SQLCounter.install(getEMF());
+    try
+    {
+      Person person = findWithPlan(Effectivity.BOT, counter);
+
+      Assert.assertEquals("Jim", person.getName());
+      Assert.assertEquals("Miami", person.getAddress().getCity());
+      Assert.assertEquals(1, person.getPhones().size());
+      Assert.assertTrue(person.getPersonHobbies().isEmpty());
+
+      System.out.println("FETCH PLAN SQL: BOT statements=" + counter.getCount());
+      Assert.assertTrue(counter.getCount() <= PLAN_STATEMENTS);
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+  }
+
+  @Test
+  public void findAtT2()
+  {
+    SQLCounter counter = SQLCounter.install(getEMF());
+    try
+    {
+      Person person = findWithPlan(T2, counter);
+
+      Assert.assertEquals("Jimmy", person.getName());
+      Assert.assertEquals("Toronto", person.getAddress().getCity());
+      Assert.assertEquals(2, person.getPhones().size());
+      Assert.assertNotNull(person.getPhone("Work"));
+      Assert.assertEquals(1, person.getPersonHobbies().size());
+      Assert.assertTrue(person.getPersonHobbies().containsKey(GOLF));
+
+      System.out.println("FETCH PLAN SQL: T2 statements=" + counter.getCount());
+      Assert.assertTrue(counter.getCount() <= PLAN_STATEMENTS);
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+  }
+
+  @Test
+  public void findAtT4()
+  {
+    SQLCounter counter = SQLCounter.install(getEMF());
+    try
+    {
+      Person person = findWithPlan(T4, counter);
+
+      Assert.assertEquals("James", person.getName());
+      Assert.assertEquals("San Francisco", person.getAddress().getCity());
+      Assert.assertEquals(2, person.getPhones().size());
+      Assert.assertNotNull(person.getPhone("Cell"));
+      Assert.assertEquals(2, person.getPersonHobbies().size());
+      Assert.assertTrue(person.getPersonHobbies().containsKey(RUN));
+      Assert.assertTrue(person.getPersonHobbies().containsKey(SKI));
+
+      System.out.println("FETCH PLAN SQL: T4 statements=" + counter.getCount());
+      Assert.assertTrue(counter.getCount() <= PLAN_STATEMENTS);
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownAttribute()
+  {
+    TemporalEntityManager em = getEntityManager(T2);
+    em.addFetchPlan(new TemporalFetchPlan("invalid", Person.class, "name"));
+    em.createQuery("SELECT p FROM Person p", Person.class, "invalid");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void unknownPlan()
+  {
+    getEntityManager(T2).createQuery("SELECT p FROM Person p", Person.class, "missing");
+  }
+
+}
@@ -25,6 +25,13 @@ import org.junit.runners.Suite.SuiteClasses;
   PropagateChangesTests.class,
   PropagateDeleteChangesTests.class,
   BrokenTemporalReferenceTests.class,
+  EditionSetIndexTests.class,
+  BulkApplyEditionSetTests.class,
+  BulkApplyComparisonTests.class,
+  BulkMoveEditionSetTests.class,
+  EditionSetAttributeMaskTests.class,
+  EditionSetSchedulerTests.class,
+  ParallelApplyEditionSetTests.class,
 })
 public class AllTests
 {
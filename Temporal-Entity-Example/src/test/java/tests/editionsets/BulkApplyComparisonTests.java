@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.editionsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetHelper;
+import temporal.TemporalEntityManager;
+import tests.BaseTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T4;
+
+/**
+ * Verify {@link EditionSetHelper#applyBulk(TemporalEntityManager, EditionSet)}
+ * leaves the same TPERSON rows as
+ * {@link EditionSetHelper#apply(javax.persistence.EntityManager, EditionSet)}
+ * other than for its documented differences. Both are applied to the same
+ * fixture and rolled back.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class BulkApplyComparisonTests extends BaseTestCase
+{
+
+  private static int newId;
+
+  @Override
+  protected void populate(EntityManagerFactory emf)
+  {
+    TemporalEntityManager em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    em.getTransaction().begin();
+    List<PersonEntity> people = em.newEntities(PersonEntity.class, 4);
+    for (int index = 0; index < people.size(); index++)
+    {
+      people.get(index).setName("Person " + index);
+      people.get(index).setEmail("person" + index + "@email.com");
+      people.get(index).addNickname("P" + index);
+    }
+    em.getTransaction().commit();
+    em.close();
+
+    // Person 2 has a later edition at T4 so its T2 edition ends at T4
+    populateEdition(emf, people.get(2).getId(), T4, "Person 2 at T4", null);
+    populateEdition(emf, people.get(0).getId(), T2, "Person 0 at T2", "person0@t2.com");
+    populateEdition(emf, people.get(1).getId(), T2, null, "person1@t2.com");
+    populateEdition(emf, people.get(2).getId(), T2, "Person 2 at T2", null);
+
+    em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    em.getTransaction().begin();
+    em.setEffectiveTime(T2);
+    PersonEntity created = em.newEntity(PersonEntity.class);
+    created.setName("Created at T2");
+    em.getTransaction().commit();
+    em.close();
+    newId = created.getId();
+  }
+
+  private void populateEdition(EntityManagerFactory emf, int id, long effective, String name, String email)
+  {
+    TemporalEntityManager em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    try
+    {
+      em.getTransaction().begin();
+      PersonEntity current = em.find(PersonEntity.class, id);
+      em.setEffectiveTime(effective);
+      PersonEntity edition = em.newEdition(current);
+      if (name != null)
+      {
+        edition.setName(name);
+      }
+      if (email != null)
+      {
+        edition.setEmail(email);
+      }
+      em.getTransaction().commit();
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<List<Object>> rows(TemporalEntityManager em, String sql)
+  {
+    List<List<Object>> rows = new ArrayList<List<Object>>();
+    for (Object row : em.createNativeQuery(sql).getResultList())
+    {
+      rows.add(row instanceof Object[] ? Arrays.asList((Object[]) row) : Arrays.asList(row));
+    }
+    return rows;
+  }
+
+  /**
+   * Apply the EditionSet at T2 with either path and return the TPERSON rows
+   * other than the entity created at T2, the number of rows of that entity
+   * and the nicknames, before rolling back.
+   */
+  private List<List<List<Object>>> applyAndRollback(boolean bulk)
+  {
+    closeEntityManager();
+    TemporalEntityManager em = getEntityManager();
+    em.getTransaction().begin();
+    try
+    {
+      EditionSet es = em.find(EditionSet.class, T2);
+      Assert.assertNotNull(es);
+      Assert.assertEquals(4, es.getEntries().size());
+      if (bulk)
+      {
+        EditionSetHelper.applyBulk(em, es);
+      }
+      else
+      {
+        em.setEditionSet(es);
+        EditionSetHelper.apply(em, es);
+        em.flush();
+      }
+      List<List<List<Object>>> results = new ArrayList<List<List<Object>>>();
+      results.add(rows(em, "SELECT * FROM TPERSON WHERE OID <> " + newId + " ORDER BY OID"));
+      results.add(rows(em, "SELECT COUNT(*) FROM TPERSON WHERE OID = " + newId));
+      results.add(rows(em, "SELECT OID, NAME FROM TPERSON_NNAMES ORDER BY OID, NAME"));
+      results.add(rows(em, "SELECT COUNT(*) FROM TEDITIONSET WHERE ID = " + T2));
+      return results;
+    }
+    finally
+    {
+      em.getTransaction().rollback();
+      closeEntityManager();
+    }
+  }
+
+  @Test
+  public void sameRowsAsApply()
+  {
+    List<List<List<Object>>> applied = applyAndRollback(false);
+    List<List<List<Object>>> bulk = applyAndRollback(true);
+
+    // The 4 continuities and the T4 edition remain
+    Assert.assertEquals(5, applied.get(0).size());
+    Assert.assertEquals(applied.get(0), bulk.get(0));
+
+    // Removing the EditionSet removes the entity created in it
+    Assert.assertEquals(0, ((Number) applied.get(1).get(0).get(0)).intValue());
+    Assert.assertEquals(1, ((Number) bulk.get(1).get(0).get(0)).intValue());
+
+    // Nicknames were not changed so both keep those of the continuities
+    Assert.assertEquals(applied.get(2), bulk.get(2));
+
+    Assert.assertEquals(0, ((Number) applied.get(3).get(0).get(0)).intValue());
+    Assert.assertEquals(0, ((Number) bulk.get(3).get(0).get(0)).intValue());
+  }
+
+}
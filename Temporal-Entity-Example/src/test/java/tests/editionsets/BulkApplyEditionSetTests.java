@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.editionsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetHelper;
+import temporal.Effectivity;
+import temporal.TemporalEntityManager;
+import tests.BaseTestCase;
+import tests.SQLCounter;
+
+import java.util.List;
+
+import static example.PersonModelExample.T2;
+
+/**
+ * Verify applying a large {@link EditionSet} with
+ * {@link EditionSetHelper#applyBulk(TemporalEntityManager, EditionSet)} and
+ * report the number of statements and time used.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class BulkApplyEditionSetTests extends BaseTestCase
+{
+
+  private static final int COUNT = 1000;
+
+  @Override
+  public void populate(TemporalEntityManager em)
+  {
+    List<PersonEntity> people = em.newEntities(PersonEntity.class, COUNT);
+    for (int index = 0; index < people.size(); index++)
+    {
+      people.get(index).setName("Person " + index);
+      people.get(index).setEmail("person" + index + "@email.com");
+      people.get(index).addNickname("P" + index);
+    }
+    em.flush();
+
+    em.setEffectiveTime(T2);
+    List<Person> editions = em.newEditions(em.createQuery("SELECT p FROM Person p", Person.class).getResultList());
+    for (Person edition : editions)
+    {
+      edition.setName(edition.getName() + " at T2");
+      edition.addNickname("T2");
+    }
+    em.flush();
+  }
+
+  @Test
+  public void applyAtT2()
+  {
+    // Read the currents into the shared cache
+    TemporalEntityManager em = TemporalEntityManager.getInstance(getEMF().createEntityManager());
+    List<Person> currents = em.createQuery("SELECT p FROM Person p WHERE p.name LIKE 'Person %'", Person.class).getResultList();
+    Assert.assertEquals(COUNT, currents.size());
+    int id = currents.get(0).getId();
+    em.close();
+
+    SQLCounter counter = SQLCounter.install(getEMF());
+    long time;
+    try
+    {
+      em = getEntityManager();
+      em.getTransaction().begin();
+      EditionSet es = em.find(EditionSet.class, T2);
+      Assert.assertNotNull(es);
+
+      counter.reset();
+      long start = System.nanoTime();
+      EditionSetHelper.applyBulk(em, es);
+
+      // The shared cache is only invalidated once the transaction commits
+      Assert.assertTrue(getEMF().getCache().contains(PersonEntity.class, id));
+
+      em.getTransaction().commit();
+      time = System.nanoTime() - start;
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+    System.out.println("BULK APPLY: entries=" + COUNT + " statements=" + counter.getCount() + " time=" + (time / 1000000) + "ms");
+    Assert.assertTrue(counter.getCount() < COUNT);
+    Assert.assertFalse(getEMF().getCache().contains(PersonEntity.class, id));
+
+    closeEntityManager();
+    em = getEntityManager();
+    Assert.assertNull(em.find(EditionSet.class, T2));
+
+    List<Person> people = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+    Assert.assertEquals(COUNT, people.size());
+    for (Person person : people)
+    {
+      Assert.assertTrue(person.getName(), person.getName().endsWith(" at T2"));
+      Assert.assertTrue(person.getEmail().startsWith("person"));
+      Assert.assertTrue(person.getNicknames().contains("T2"));
+      Assert.assertEquals(Effectivity.BOT, person.getEffectivity().getStart());
+      Assert.assertEquals(Effectivity.EOT, person.getEffectivity().getEnd());
+    }
+
+    // Only the continuities remain
+    em.setEffectiveTime(T2);
+    Assert.assertEquals(COUNT, em.createQuery("SELECT p FROM PersonEditionView p", Person.class).getResultList().size());
+  }
+
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.editionsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Address;
+import model.Person;
+import model.entities.AddressEntity;
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetHelper;
+import temporal.Effectivity;
+import temporal.TemporalEntityManager;
+import tests.BaseTestCase;
+import tests.SQLCounter;
+
+import java.util.List;
+
+import static example.PersonModelExample.T1;
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T3;
+
+/**
+ * Verify moving a large {@link EditionSet} with
+ * {@link EditionSetHelper#moveBulk(TemporalEntityManager, long)} and report the
+ * number of statements and time used.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class BulkMoveEditionSetTests extends BaseTestCase
+{
+
+  private static final int COUNT = 1000;
+
+  /**
+   * Start of an address referenced by an edition at T2, between T1 and T2
+   */
+  private static final long ADDRESS_START = (T1 + T2) / 2;
+
+  @Override
+  public void populate(TemporalEntityManager em)
+  {
+    List<PersonEntity> people = em.newEntities(PersonEntity.class, COUNT);
+    for (int index = 0; index < people.size(); index++)
+    {
+      people.get(index).setName("Person " + index);
+    }
+    em.flush();
+
+    // An address which only exists from ADDRESS_START, created in its own
+    // EditionSet so moving the EditionSet at T2 does not move it
+    em.setEffectiveTime(ADDRESS_START);
+    Address address = em.newEntity(AddressEntity.class);
+    address.setCity("Ottawa");
+    em.flush();
+
+    em.setEffectiveTime(T2);
+    List<Person> editions = em.newEditions(em.createQuery("SELECT p FROM Person p", Person.class).getResultList());
+    for (Person edition : editions)
+    {
+      edition.setName(edition.getName() + " at T2");
+    }
+    editions.get(0).setAddress(address);
+    em.flush();
+  }
+
+  @Test
+  public void moveToT3()
+  {
+    // Moving before the address exists breaks the reference to it
+    TemporalEntityManager em = getEntityManager(T2);
+    Assert.assertEquals(COUNT, em.getEditionSet().getEntries().size());
+    em.getTransaction().begin();
+    try
+    {
+      EditionSetHelper.moveBulk(em, T1);
+      Assert.fail("IllegalStateException expected");
+    }
+    catch (IllegalStateException ise)
+    {
+      em.getTransaction().rollback();
+    }
+    closeEntityManager();
+
+    SQLCounter counter = SQLCounter.install(getEMF());
+    long time;
+    try
+    {
+      em = getEntityManager(T2);
+      em.getTransaction().begin();
+      Assert.assertEquals(COUNT, em.getEditionSet().getEntries().size());
+
+      counter.reset();
+      long start = System.nanoTime();
+      EditionSetHelper.moveBulk(em, T3);
+      em.getTransaction().commit();
+      time = System.nanoTime() - start;
+    }
+    finally
+    {
+      counter.uninstall();
+    }
+    System.out.println("BULK MOVE: entries=" + COUNT + " statements=" + counter.getCount() + " time=" + (time / 1000000) + "ms");
+    Assert.assertTrue(counter.getCount() < COUNT);
+    Assert.assertEquals(T3, (long) em.getEffectiveTime());
+    closeEntityManager();
+
+    em = getEntityManager();
+    Assert.assertNull(em.find(EditionSet.class, T2));
+    EditionSet es = em.find(EditionSet.class, T3);
+    Assert.assertNotNull(es);
+    Assert.assertEquals(COUNT, es.getEntries().size());
+    Assert.assertNotNull(em.find(EditionSet.class, ADDRESS_START));
+
+    em.setEffectiveTime(T2);
+    for (Person person : em.createQuery("SELECT p FROM Person p", Person.class).getResultList())
+    {
+      Assert.assertEquals(Effectivity.BOT, person.getEffectivity().getStart());
+      Assert.assertEquals(T3, person.getEffectivity().getEnd());
+      Assert.assertFalse(person.getName().endsWith(" at T2"));
+    }
+
+    em.setEffectiveTime(T3);
+    List<Person> editions = em.createQuery("SELECT p FROM Person p", Person.class).getResultList();
+    Assert.assertEquals(COUNT, editions.size());
+    for (Person edition : editions)
+    {
+      Assert.assertEquals(T3, edition.getEffectivity().getStart());
+      Assert.assertTrue(edition.getName().endsWith(" at T2"));
+      if (edition.getAddress() != null)
+      {
+        Assert.assertEquals("Ottawa", edition.getAddress().getCity());
+        Assert.assertEquals(ADDRESS_START, edition.getAddress().getEffectivity().getStart());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.editionsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetEntry;
+import temporal.EditionSetHelper;
+import temporal.TemporalEntityManager;
+import temporal.persistence.AttributeOrdinals;
+import tests.BaseTestCase;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T3;
+
+/**
+ * Verify the changed attributes of an {@link EditionSetEntry} are stored as a
+ * mask of their {@link AttributeOrdinals} instead of TEDITIONSET_ENTRY_ATTR
+ * rows.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionSetAttributeMaskTests extends BaseTestCase
+{
+
+  @Override
+  public void populate(TemporalEntityManager em)
+  {
+    PersonEntity person = em.newEntity(PersonEntity.class);
+    person.setName("Jane");
+    person.setEmail("jane@email.com");
+    em.flush();
+
+    em.setEffectiveTime(T2);
+    Person edition = em.newEdition(person);
+    edition.setName("Jane at T2");
+    edition.setEmail("jane@t2.com");
+    em.flush();
+  }
+
+  private EditionSetEntry findEntry(TemporalEntityManager em)
+  {
+    EditionSet es = em.find(EditionSet.class, T2);
+    Assert.assertNotNull(es);
+    Assert.assertEquals(1, es.getEntries().size());
+    return es.getEntries().get(0);
+  }
+
+  @Test
+  public void maskStoredWithoutAttributeRows()
+  {
+    TemporalEntityManager em = getEntityManager();
+    EditionSetEntry entry = findEntry(em);
+
+    Assert.assertTrue(entry.hasAttributeMask());
+    Assert.assertTrue(entry.getAttributes().contains("name"));
+    Assert.assertTrue(entry.getAttributes().contains("email"));
+    Assert.assertEquals(entry.getAttributes().size(), entry.getAttributeBits().cardinality());
+    Assert.assertTrue(entry.hasChanges());
+
+    Number rows = (Number) em.createNativeQuery("SELECT COUNT(*) FROM TEDITIONSET_ENTRY_ATTR").getSingleResult();
+    Assert.assertEquals(0, rows.intValue());
+  }
+
+  @Test
+  public void ordinalsSortedByName()
+  {
+    TemporalEntityManager em = getEntityManager();
+    EditionSetEntry entry = findEntry(em);
+    AttributeOrdinals ordinals = AttributeOrdinals.forClass(entry.getTemporal().getClass());
+
+    Assert.assertNotNull(ordinals);
+    for (int index = 1; index < ordinals.size(); index++)
+    {
+      Assert.assertTrue(ordinals.getAttributeName(index - 1).compareTo(ordinals.getAttributeName(index)) < 0);
+    }
+    BitSet bits = entry.getAttributeBits();
+    Assert.assertTrue(bits.get(ordinals.getOrdinal("name")));
+    Assert.assertTrue(bits.get(ordinals.getOrdinal("email")));
+    Assert.assertEquals(-1, ordinals.getOrdinal("unknown"));
+    Assert.assertEquals(bits, AttributeOrdinals.toBitSet(AttributeOrdinals.toMask(bits)));
+  }
+
+  @Test
+  public void unknownAttributeUsesCollection()
+  {
+    TemporalEntityManager em = getEntityManager();
+    Person edition = (Person) findEntry(em).getTemporal();
+
+    EditionSetEntry entry = new EditionSetEntry(new EditionSet(T3), edition, false);
+    entry.addAttribute("name");
+    Assert.assertTrue(entry.hasAttributeMask());
+
+    entry.addAttribute("unknown");
+    Assert.assertFalse(entry.hasAttributeMask());
+    Assert.assertEquals(2, entry.getAttributes().size());
+    Assert.assertTrue(entry.getAttributes().contains("name"));
+    Assert.assertTrue(entry.getAttributes().contains("unknown"));
+    Assert.assertEquals(1, entry.getAttributeBits().cardinality());
+  }
+
+  /**
+   * A mask written before an attribute was added to the type has other
+   * ordinals and must not be decoded with the current ones.
+   */
+  @Test
+  public void masksOfOtherLayoutRejected()
+  {
+    TemporalEntityManager em = getEntityManager();
+    EditionSetEntry entry = findEntry(em);
+    AttributeOrdinals current = AttributeOrdinals.forClass(entry.getTemporal().getClass());
+    long id = entry.getId();
+    long mask = AttributeOrdinals.toMask(entry.getAttributeBits());
+
+    List<String> names = new ArrayList<String>();
+    for (int index = 0; index < current.size(); index++)
+    {
+      names.add(current.getAttributeName(index));
+    }
+    names.remove("email");
+    AttributeOrdinals previous = new AttributeOrdinals(names)
+    {
+    };
+    Assert.assertTrue(previous.getLayout() != current.getLayout());
+
+    updateMask(id, previous.getBit("name"), previous.getLayout());
+    try
+    {
+      closeEntityManager();
+      em = getEntityManager();
+      EditionSetEntry oldEntry = findEntry(em);
+      try
+      {
+        oldEntry.getAttributes();
+        Assert.fail("IllegalStateException expected");
+      }
+      catch (IllegalStateException e)
+      {
+        // expected
+      }
+      try
+      {
+        oldEntry.getAttributeBits();
+        Assert.fail("IllegalStateException expected");
+      }
+      catch (IllegalStateException e)
+      {
+        // expected
+      }
+
+      em.getTransaction().begin();
+      try
+      {
+        EditionSetHelper.applyBulk(em, oldEntry.getEditionSet());
+        Assert.fail("IllegalStateException expected");
+      }
+      catch (IllegalStateException e)
+      {
+        // expected
+      }
+      finally
+      {
+        em.getTransaction().rollback();
+      }
+    }
+    finally
+    {
+      updateMask(id, mask, current.getLayout());
+    }
+  }
+
+  @Test
+  public void registerOtherAttributesRejected()
+  {
+    TemporalEntityManager em = getEntityManager();
+    Class<?> editionClass = findEntry(em).getTemporal().getClass();
+
+    RelationalDescriptor descriptor = new RelationalDescriptor();
+    descriptor.setJavaClass(editionClass);
+    descriptor.addDirectMapping("name", "NAME");
+    try
+    {
+      AttributeOrdinals.register(descriptor);
+      Assert.fail("IllegalStateException expected");
+    }
+    catch (IllegalStateException e)
+    {
+      // expected
+    }
+    Assert.assertTrue(AttributeOrdinals.forClass(editionClass).size() > 1);
+  }
+
+  private void updateMask(long id, long mask, int layout)
+  {
+    closeEntityManager();
+    TemporalEntityManager em = getEntityManager();
+    em.getTransaction().begin();
+    int updated = em.createNativeQuery("UPDATE TEDITIONSET_ENTRY SET ATTRIBUTE_MASK = ?, ATTRIBUTE_LAYOUT = ? WHERE ID = ?").setParameter(1, mask).setParameter(2, layout).setParameter(3, id).executeUpdate();
+    em.getTransaction().commit();
+    Assert.assertEquals(1, updated);
+    closeEntityManager();
+    getEMF().getCache().evict(EditionSetEntry.class);
+    getEMF().getCache().evict(EditionSet.class);
+  }
+
+}
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.editionsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetEntry;
+import temporal.Temporal;
+import temporal.TemporalEntityManager;
+import tests.BaseTestCase;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static example.PersonModelExample.T2;
+
+/**
+ * Verify the lookup and removal of entries in a large {@link EditionSet}
+ * through its index of entries by temporal object.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionSetIndexTests extends BaseTestCase
+{
+
+  private static final int COUNT = 2000;
+
+  @Override
+  public void populate(TemporalEntityManager em)
+  {
+    List<PersonEntity> people = em.newEntities(PersonEntity.class, COUNT);
+    for (int index = 0; index < people.size(); index++)
+    {
+      people.get(index).setName("Person " + index);
+    }
+  }
+
+  private List<Person> createEditionsAtT2(TemporalEntityManager em)
+  {
+    em.getTransaction().begin();
+    em.setEffectiveTime(T2);
+    List<Person> editions = em.newEditions(em.createQuery("SELECT p FROM Person p", Person.class).getResultList());
+    Assert.assertEquals(COUNT, em.getEditionSet().getEntries().size());
+    return editions;
+  }
+
+  /**
+   * @return the temporal objects of the entries, failing if any is listed
+   *         more than once
+   */
+  private Map<Temporal, EditionSetEntry> getTemporals(EditionSet es)
+  {
+    Map<Temporal, EditionSetEntry> temporals = new IdentityHashMap<Temporal, EditionSetEntry>();
+    for (EditionSetEntry entry : es.getEntries())
+    {
+      Assert.assertNull(temporals.put(entry.getTemporal(), entry));
+    }
+    return temporals;
+  }
+
+  /**
+   * Removing the editions in creation order moves the last entry into the
+   * removed position each time. The remaining entries must still be exactly
+   * the editions not yet removed.
+   */
+  @Test
+  public void removeAllEditions()
+  {
+    TemporalEntityManager em = getEntityManager();
+    List<Person> editions = createEditionsAtT2(em);
+    EditionSet es = em.getEditionSet();
+
+    long start = System.nanoTime();
+    for (int index = 0; index < COUNT / 2; index++)
+    {
+      em.remove(editions.get(index));
+    }
+    long time = System.nanoTime() - start;
+
+    Map<Temporal, EditionSetEntry> remaining = getTemporals(es);
+    Assert.assertEquals(COUNT / 2, remaining.size());
+    for (int index = 0; index < COUNT; index++)
+    {
+      Assert.assertEquals(index >= COUNT / 2, remaining.containsKey(editions.get(index)));
+    }
+
+    start = System.nanoTime();
+    for (int index = COUNT / 2; index < COUNT; index++)
+    {
+      em.remove(editions.get(index));
+    }
+    time += System.nanoTime() - start;
+
+    System.out.println("EDITION SET REMOVE: entries=" + COUNT + " time=" + (time / 1000000) + "ms");
+    Assert.assertTrue(es.getEntries().isEmpty());
+  }
+
+  @Test
+  public void removeAfterEntriesChanged()
+  {
+    TemporalEntityManager em = getEntityManager();
+    List<Person> editions = createEditionsAtT2(em);
+    EditionSet es = em.getEditionSet();
+
+    // Entries changed directly are indexed again on the next lookup
+    es.getEntries().remove(0);
+    em.remove(editions.get(1));
+
+    Assert.assertEquals(COUNT - 2, es.getEntries().size());
+    Assert.assertEquals(COUNT - 2, getTemporals(es).size());
+  }
+
+  /**
+   * Replacing and reordering entries keeps the number of entries so it can
+   * not be detected by size.
+   */
+  @Test
+  public void removeAfterSameSizeChange()
+  {
+    TemporalEntityManager em = getEntityManager();
+    List<Person> editions = createEditionsAtT2(em);
+    EditionSet es = em.getEditionSet();
+
+    // Swap the first and last entries
+    List<EditionSetEntry> entries = es.getEntries();
+    EditionSetEntry first = entries.get(0);
+    entries.set(0, entries.get(COUNT - 1));
+    entries.set(COUNT - 1, first);
+    em.remove(editions.get(0));
+
+    Assert.assertEquals(COUNT - 1, es.getEntries().size());
+    Assert.assertFalse(getTemporals(es).containsKey(editions.get(0)));
+    Assert.assertTrue(getTemporals(es).containsKey(editions.get(COUNT - 1)));
+
+    // Replace an entry with a new one for the same edition
+    int position = new ArrayList<EditionSetEntry>(es.getEntries()).indexOf(getTemporals(es).get(editions.get(1)));
+    EditionSetEntry replacement = new EditionSetEntry(es, editions.get(1), false);
+    es.getEntries().set(position, replacement);
+    em.remove(editions.get(1));
+
+    Assert.assertEquals(COUNT - 2, es.getEntries().size());
+    Assert.assertFalse(es.getEntries().contains(replacement));
+    Assert.assertFalse(getTemporals(es).containsKey(editions.get(1)));
+  }
+
+}
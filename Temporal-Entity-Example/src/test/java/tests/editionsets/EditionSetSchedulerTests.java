@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.editionsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetScheduler;
+import temporal.TemporalEntityManager;
+import temporal.persistence.BulkEditionSetOperations;
+import tests.BaseTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import static example.PersonModelExample.T1;
+import static example.PersonModelExample.T2;
+import static example.PersonModelExample.T3;
+import static example.PersonModelExample.T4;
+import static example.PersonModelExample.T5;
+
+/**
+ * Verify {@link EditionSetScheduler} applies the due {@link EditionSet}s in
+ * effective time order using a test clock. Each test creates person A with
+ * editions at T2 and T4 and person B at T3 and applies all of them, as an
+ * EditionSet is identified by its effective time.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionSetSchedulerTests extends BaseTestCase
+{
+
+  private static int aId;
+
+  private static int bId;
+
+  private static class TestClock implements EditionSetScheduler.Clock
+  {
+    private final long time;
+
+    private TestClock(long time)
+    {
+      this.time = time;
+    }
+
+    @Override
+    public long currentTime()
+    {
+      return this.time;
+    }
+  }
+
+  private void createEditions()
+  {
+    EntityManagerFactory emf = getEMF();
+    TemporalEntityManager em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    em.getTransaction().begin();
+    PersonEntity a = em.newEntity(PersonEntity.class);
+    a.setName("A");
+    PersonEntity b = em.newEntity(PersonEntity.class);
+    b.setName("B");
+    em.getTransaction().commit();
+    em.close();
+    aId = a.getId();
+    bId = b.getId();
+
+    // The T4 edition is created first so the T2 edition ends at T4
+    populateEdition(emf, aId, T4, "A at T4");
+    populateEdition(emf, aId, T2, "A at T2");
+    populateEdition(emf, bId, T3, "B at T3");
+  }
+
+  private void populateEdition(EntityManagerFactory emf, int id, long effective, String name)
+  {
+    TemporalEntityManager em = TemporalEntityManager.getInstance(emf.createEntityManager());
+    try
+    {
+      em.getTransaction().begin();
+      PersonEntity current = em.find(PersonEntity.class, id);
+      em.setEffectiveTime(effective);
+      PersonEntity edition = em.newEdition(current);
+      edition.setName(name);
+      em.getTransaction().commit();
+    }
+    finally
+    {
+      em.close();
+    }
+  }
+
+  private String currentName(int id)
+  {
+    closeEntityManager();
+    return getEntityManager().find(Person.class, id).getName();
+  }
+
+  @Test
+  public void applyDueEditionSets()
+  {
+    createEditions();
+    EditionSetScheduler scheduler = new EditionSetScheduler(getEMF(), new TestClock(T1), 2);
+    Assert.assertTrue(scheduler.findDue().isEmpty());
+    Assert.assertTrue(scheduler.run().isEmpty());
+
+    // A's EditionSets at T2 and T4 are applied in order, B's is disjoint
+    scheduler = new EditionSetScheduler(getEMF(), new TestClock(T5), 2);
+    Assert.assertEquals(Arrays.asList(T2, T3, T4), scheduler.findDue());
+    TemporalEntityManager em = getEntityManager();
+    Set<List<Object>> atT2 = BulkEditionSetOperations.selectContinuities(em, T2);
+    Set<List<Object>> atT3 = BulkEditionSetOperations.selectContinuities(em, T3);
+    Set<List<Object>> atT4 = BulkEditionSetOperations.selectContinuities(em, T4);
+    Assert.assertEquals(1, atT2.size());
+    Assert.assertEquals(atT2, atT4);
+    Assert.assertTrue(Collections.disjoint(atT2, atT3));
+
+    scheduler = new EditionSetScheduler(getEMF(), new TestClock(T3), 2);
+    long start = System.nanoTime();
+    Assert.assertEquals(Arrays.asList(T2, T3), scheduler.run());
+    long time = System.nanoTime() - start;
+    System.out.println("EDITION SET SCHEDULER: applied=2 time=" + (time / 1000000) + "ms");
+
+    Assert.assertTrue(scheduler.getFailures().isEmpty());
+    Assert.assertEquals("A at T2", currentName(aId));
+    Assert.assertEquals("B at T3", currentName(bId));
+
+    // Nothing more is due until the clock reaches T4
+    Assert.assertTrue(scheduler.run().isEmpty());
+
+    // A new scheduler resumes with the remaining EditionSet
+    scheduler = new EditionSetScheduler(getEMF(), new TestClock(T5), 2);
+    Assert.assertEquals(Arrays.asList(T4), scheduler.run());
+    Assert.assertTrue(scheduler.getFailures().isEmpty());
+    Assert.assertEquals("A at T4", currentName(aId));
+    Assert.assertTrue(scheduler.findDue().isEmpty());
+  }
+
+  /**
+   * The EditionSet at T2 fails so the later one at T4 changing the same
+   * continuity is not applied in the run while B's disjoint EditionSet at T3
+   * is. Both are applied in order by the next run.
+   */
+  @Test
+  public void skipAfterFailedEditionSet()
+  {
+    createEditions();
+    EditionSetScheduler failing = new EditionSetScheduler(getEMF(), new TestClock(T5), 1)
+    {
+      @Override
+      protected void apply(TemporalEntityManager em, EditionSet editionSet)
+      {
+        if (editionSet.getEffective() == T2)
+        {
+          throw new IllegalStateException("Apply failure");
+        }
+        super.apply(em, editionSet);
+      }
+    };
+
+    Assert.assertEquals(Arrays.asList(T3), failing.run());
+    Assert.assertEquals(Collections.singleton(T2), failing.getFailures().keySet());
+    Assert.assertEquals("Apply failure", failing.getFailures().get(T2).getMessage());
+    Assert.assertEquals("A", currentName(aId));
+    Assert.assertEquals("B at T3", currentName(bId));
+
+    EditionSetScheduler scheduler = new EditionSetScheduler(getEMF(), new TestClock(T5), 1);
+    Assert.assertEquals(Arrays.asList(T2, T4), scheduler.run());
+    Assert.assertTrue(scheduler.getFailures().isEmpty());
+    Assert.assertEquals("A at T4", currentName(aId));
+    Assert.assertTrue(scheduler.findDue().isEmpty());
+  }
+
+  /**
+   * Two schedulers apply the EditionSet at T2 at the same time. The first
+   * holds the PESSIMISTIC_WRITE lock until the second has tried to lock it.
+   * The second then either finds it removed and skips it or fails on the
+   * lock. In both cases it is applied once.
+   */
+  @Test
+  public void concurrentSchedulersApplyOnce() throws Exception
+  {
+    createEditions();
+    final CountDownLatch locked = new CountDownLatch(1);
+    final EditionSetScheduler first = new EditionSetScheduler(getEMF(), new TestClock(T2), 1)
+    {
+      @Override
+      protected void apply(TemporalEntityManager em, EditionSet editionSet)
+      {
+        locked.countDown();
+        try
+        {
+          // Within the H2 lock timeout
+          Thread.sleep(200);
+        }
+        catch (InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+        }
+        super.apply(em, editionSet);
+      }
+    };
+    EditionSetScheduler second = new EditionSetScheduler(getEMF(), new TestClock(T2), 1);
+
+    final List<Long> firstApplied = new ArrayList<Long>();
+    Thread thread = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        firstApplied.addAll(first.run());
+      }
+    };
+    thread.start();
+    Assert.assertTrue(locked.await(10, TimeUnit.SECONDS));
+    List<Long> secondApplied = second.run();
+    thread.join(10000);
+
+    Assert.assertEquals(Arrays.asList(T2), firstApplied);
+    Assert.assertTrue(first.getFailures().isEmpty());
+    Assert.assertTrue(secondApplied.isEmpty());
+    Assert.assertEquals("A at T2", currentName(aId));
+    Assert.assertEquals(Arrays.asList(T3, T4), new EditionSetScheduler(getEMF(), new TestClock(T5), 1).run());
+  }
+
+  /**
+   * A periodic run failing with an Error is logged and the schedule
+   * continues.
+   */
+  @Test
+  public void scheduleSurvivesFailedRun() throws Exception
+  {
+    final CountDownLatch runs = new CountDownLatch(2);
+    final List<Throwable> logged = Collections.synchronizedList(new ArrayList<Throwable>());
+    EditionSetScheduler scheduler = new EditionSetScheduler(getEMF(), new TestClock(T1), 1)
+    {
+      @Override
+      public synchronized List<Long> run()
+      {
+        runs.countDown();
+        throw new AssertionError("Run failure");
+      }
+
+      @Override
+      protected void log(Throwable throwable)
+      {
+        logged.add(throwable);
+        super.log(throwable);
+      }
+    };
+    scheduler.start(10, TimeUnit.MILLISECONDS);
+    try
+    {
+      Assert.assertTrue(runs.await(10, TimeUnit.SECONDS));
+    }
+    finally
+    {
+      scheduler.stop();
+    }
+    Assert.assertFalse(logged.isEmpty());
+    Assert.assertEquals("Run failure", logged.get(0).getMessage());
+  }
+
+}
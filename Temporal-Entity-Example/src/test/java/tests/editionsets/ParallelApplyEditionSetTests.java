@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.editionsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.EditionSet;
+import temporal.EditionSetHelper;
+import temporal.Effectivity;
+import temporal.ParallelEditionSetApply;
+import temporal.TemporalEntityManager;
+import tests.BaseTestCase;
+
+import java.util.List;
+
+import static example.PersonModelExample.T2;
+
+/**
+ * Verify applying a large {@link EditionSet} in chunks with
+ * {@link EditionSetHelper#applyParallel} including recovery after a chunk
+ * fails.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class ParallelApplyEditionSetTests extends BaseTestCase
+{
+
+  private static final int COUNT = 400;
+
+  private static final int CHUNK_SIZE = 50;
+
+  @Override
+  public void populate(TemporalEntityManager em)
+  {
+    List<PersonEntity> people = em.newEntities(PersonEntity.class, COUNT);
+    for (int index = 0; index < people.size(); index++)
+    {
+      people.get(index).setName("Person " + index);
+    }
+    em.flush();
+
+    em.setEffectiveTime(T2);
+    List<Person> editions = em.newEditions(em.createQuery("SELECT p FROM Person p", Person.class).getResultList());
+    for (Person edition : editions)
+    {
+      edition.setName(edition.getName() + " at T2");
+    }
+    em.flush();
+  }
+
+  private int countApplied()
+  {
+    closeEntityManager();
+    Number count = (Number) getEntityManager().createQuery("SELECT COUNT(p) FROM Person p WHERE p.name LIKE '% at T2'").getSingleResult();
+    return count.intValue();
+  }
+
+  @Test
+  public void applyInChunks()
+  {
+    // The first chunk fails so its entries stay in the EditionSet
+    ParallelEditionSetApply failing = new ParallelEditionSetApply(getEMF(), T2, CHUNK_SIZE, 4)
+    {
+      private boolean failed = false;
+
+      @Override
+      protected void applyChunk(List<Long> entryIds)
+      {
+        synchronized (this)
+        {
+          if (!this.failed)
+          {
+            this.failed = true;
+            throw new IllegalStateException("Chunk failure");
+          }
+        }
+        super.applyChunk(entryIds);
+      }
+    };
+    try
+    {
+      failing.apply();
+      Assert.fail("IllegalStateException expected");
+    }
+    catch (IllegalStateException e)
+    {
+      Assert.assertEquals("Chunk failure", e.getCause().getMessage());
+    }
+
+    Assert.assertEquals(COUNT - CHUNK_SIZE, countApplied());
+    EditionSet es = getEntityManager().find(EditionSet.class, T2);
+    Assert.assertNotNull(es);
+    Assert.assertEquals(CHUNK_SIZE, es.getEntries().size());
+
+    // Applying again completes the remaining entries
+    long start = System.nanoTime();
+    int applied = EditionSetHelper.applyParallel(getEMF(), T2, CHUNK_SIZE, 4);
+    long time = System.nanoTime() - start;
+    System.out.println("PARALLEL APPLY: entries=" + applied + " time=" + (time / 1000000) + "ms");
+
+    Assert.assertEquals(CHUNK_SIZE, applied);
+    Assert.assertEquals(COUNT, countApplied());
+    Assert.assertNull(getEntityManager().find(EditionSet.class, T2));
+
+    for (Person person : getEntityManager().createQuery("SELECT p FROM Person p", Person.class).getResultList())
+    {
+      Assert.assertEquals(Effectivity.BOT, person.getEffectivity().getStart());
+      Assert.assertEquals(Effectivity.EOT, person.getEffectivity().getEnd());
+    }
+  }
+
+}
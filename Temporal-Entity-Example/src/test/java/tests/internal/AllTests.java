@@ -26,6 +26,13 @@ import org.junit.runners.Suite.SuiteClasses;
   TemporalHelperTests.class,
   TemporalEntityManagerTests.class,
   TemporalEntityTests.class,
+  TemporalCloneIndexTests.class,
+  EditionCopyPlanTests.class,
+  GenerateEditionClassesTests.class,
+  EditionClassCacheTests.class,
+  EditionClassRegistryTests.class,
+  ParallelCustomizationTests.class,
+  EditionChangeTrackingTests.class,
   //WrapperPolicyTests.class,
 })
 public class AllTests
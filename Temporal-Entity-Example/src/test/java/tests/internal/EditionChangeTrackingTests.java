@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.descriptors.RelationalDescriptor;
+import org.eclipse.persistence.descriptors.changetracking.AttributeChangeTrackingPolicy;
+import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.platform.database.H2Platform;
+import org.eclipse.persistence.sessions.DatabaseLogin;
+import org.eclipse.persistence.sessions.DatabaseSession;
+import org.eclipse.persistence.sessions.Project;
+import org.eclipse.persistence.sessions.UnitOfWork;
+import org.eclipse.persistence.tools.schemaframework.SchemaManager;
+
+import temporal.persistence.EditionClassWriter;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verify the {@link ChangeTracker} implementation {@link EditionClassWriter}
+ * generates into edition classes of types not woven for change tracking.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionChangeTrackingTests
+{
+
+  /**
+   * Parent class which is not woven.
+   */
+  public static class Sample
+  {
+    private String name;
+
+    private int count;
+
+    public String getName()
+    {
+      return this.name;
+    }
+
+    public void setName(String name)
+    {
+      this.name = name;
+    }
+
+    public int getCount()
+    {
+      return this.count;
+    }
+
+    public void setCount(int count)
+    {
+      this.count = count;
+    }
+  }
+
+  /**
+   * Unwoven entity which writes a mapped field outside of its setter.
+   */
+  public static class RenamingSample extends Sample
+  {
+    private String alias;
+
+    public String getAlias()
+    {
+      return this.alias;
+    }
+
+    public void setAlias(String alias)
+    {
+      this.alias = alias;
+    }
+
+    public void rename(String alias)
+    {
+      this.alias = alias;
+    }
+  }
+
+  /**
+   * Unwoven entity with an id, mapped in a native session.
+   */
+  public static class Entity extends Sample
+  {
+    private int id;
+
+    public int getId()
+    {
+      return this.id;
+    }
+
+    public void setId(int id)
+    {
+      this.id = id;
+    }
+  }
+
+  private static RelationalDescriptor createDescriptor(Class<?> javaClass, String... attributes)
+  {
+    RelationalDescriptor descriptor = new RelationalDescriptor();
+    descriptor.setJavaClass(javaClass);
+    descriptor.setTableName("SAMPLE");
+    for (String attribute : attributes)
+    {
+      descriptor.addDirectMapping(attribute, attribute.toUpperCase());
+    }
+    return descriptor;
+  }
+
+  private static class RecordingListener implements PropertyChangeListener
+  {
+    private List<PropertyChangeEvent> events = new ArrayList<PropertyChangeEvent>();
+
+    @Override
+    public void propertyChange(PropertyChangeEvent event)
+    {
+      this.events.add(event);
+    }
+  }
+
+  private Sample createEdition() throws Exception
+  {
+    DynamicClassLoader dcl = new DynamicClassLoader(getClass().getClassLoader());
+    EditionClassWriter writer = new EditionClassWriter(Sample.class, Serializable.class, Arrays.asList("name", "count"));
+    Class<?> editionClass = dcl.createDynamicClass(Sample.class.getName() + "Edition", writer);
+
+    Assert.assertTrue(ChangeTracker.class.isAssignableFrom(editionClass));
+    return (Sample) editionClass.newInstance();
+  }
+
+  @Test
+  public void trackedSetters() throws Exception
+  {
+    Sample edition = createEdition();
+    RecordingListener listener = new RecordingListener();
+    ((ChangeTracker) edition)._persistence_setPropertyChangeListener(listener);
+    Assert.assertSame(listener, ((ChangeTracker) edition)._persistence_getPropertyChangeListener());
+
+    edition.setName("Jimmy");
+    edition.setCount(3);
+
+    Assert.assertEquals("Jimmy", edition.getName());
+    Assert.assertEquals(3, edition.getCount());
+    Assert.assertEquals(2, listener.events.size());
+
+    PropertyChangeEvent nameEvent = listener.events.get(0);
+    Assert.assertSame(edition, nameEvent.getSource());
+    Assert.assertEquals("name", nameEvent.getPropertyName());
+    Assert.assertNull(nameEvent.getOldValue());
+    Assert.assertEquals("Jimmy", nameEvent.getNewValue());
+
+    PropertyChangeEvent countEvent = listener.events.get(1);
+    Assert.assertEquals("count", countEvent.getPropertyName());
+    Assert.assertEquals(Integer.valueOf(0), countEvent.getOldValue());
+    Assert.assertEquals(Integer.valueOf(3), countEvent.getNewValue());
+  }
+
+  @Test
+  public void untrackedWithoutListener() throws Exception
+  {
+    Sample edition = createEdition();
+
+    edition.setName("Jimmy");
+
+    Assert.assertEquals("Jimmy", edition.getName());
+    Assert.assertNull(((ChangeTracker) edition)._persistence_getPropertyChangeListener());
+  }
+
+  @Test
+  public void trackedAttributes()
+  {
+    Assert.assertEquals(Arrays.asList("name", "count"), EditionClassWriter.getTrackedAttributes(createDescriptor(Sample.class, "name", "count")));
+  }
+
+  /**
+   * A write in a method other than the setter would not fire an event so the
+   * class is not tracked.
+   */
+  @Test
+  public void writeOutsideSetterNotTracked()
+  {
+    Assert.assertNull(EditionClassWriter.getTrackedAttributes(createDescriptor(RenamingSample.class, "name", "alias")));
+    Assert.assertNotNull(EditionClassWriter.getTrackedAttributes(createDescriptor(RenamingSample.class, "name")));
+  }
+
+  /**
+   * Commit a change made through a generated setter of an unwoven entity with
+   * attribute change tracking and read it back from the database.
+   */
+  @Test
+  public void commitTrackedChange() throws Exception
+  {
+    RelationalDescriptor source = createDescriptor(Entity.class, "id", "name", "count");
+    source.addPrimaryKeyFieldName("ID");
+    List<String> tracked = EditionClassWriter.getTrackedAttributes(source);
+    Assert.assertEquals(Arrays.asList("id", "name", "count"), tracked);
+
+    DynamicClassLoader dcl = new DynamicClassLoader(getClass().getClassLoader());
+    Class<?> editionClass = dcl.createDynamicClass(Entity.class.getName() + "Edition", new EditionClassWriter(Entity.class, Serializable.class, tracked));
+    RelationalDescriptor descriptor = createDescriptor(editionClass, "id", "name", "count");
+    descriptor.addPrimaryKeyFieldName("ID");
+    descriptor.setObjectChangePolicy(new AttributeChangeTrackingPolicy());
+
+    Project project = new Project();
+    project.addDescriptor(descriptor);
+    DatabaseLogin login = new DatabaseLogin();
+    login.setDriverClassName("org.h2.Driver");
+    login.setConnectionString("jdbc:h2:mem:EditionChangeTrackingTests");
+    login.setUserName("sa");
+    login.setPassword("");
+    login.usePlatform(new H2Platform());
+    project.setLogin(login);
+
+    DatabaseSession session = project.createDatabaseSession();
+    session.dontLogMessages();
+    session.login();
+    try
+    {
+      new SchemaManager(session).replaceDefaultTables();
+
+      UnitOfWork uow = session.acquireUnitOfWork();
+      Entity entity = (Entity) uow.registerNewObject(editionClass.newInstance());
+      entity.setId(1);
+      entity.setName("Jimmy");
+      uow.commit();
+
+      uow = session.acquireUnitOfWork();
+      Entity clone = (Entity) uow.readObject(editionClass);
+      Assert.assertNotNull(((ChangeTracker) clone)._persistence_getPropertyChangeListener());
+      clone.setName("James");
+      clone.setCount(2);
+      uow.commit();
+
+      session.getIdentityMapAccessor().initializeAllIdentityMaps();
+      Entity read = (Entity) session.readObject(editionClass);
+      Assert.assertEquals("James", read.getName());
+      Assert.assertEquals(2, read.getCount());
+    }
+    finally
+    {
+      session.logout();
+    }
+  }
+
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.dynamic.DynamicClassWriter;
+
+import model.Address;
+import model.Person;
+import temporal.persistence.EditionClassCache;
+import temporal.persistence.EditionInterfaceClassWriter;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Verify generated edition classes are stored in and read back from the
+ * {@link EditionClassCache} directory.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionClassCacheTests
+{
+
+  private static final String INTERFACE_NAME = "model.entities.PersonEntityEditionI";
+
+  private File createDirectory() throws Exception
+  {
+    File directory = File.createTempFile("editioncache", "");
+    Assert.assertTrue(directory.delete());
+    return directory;
+  }
+
+  @Test
+  public void cacheAcrossRestarts() throws Exception
+  {
+    File directory = createDirectory();
+    DynamicClassLoader dcl = new DynamicClassLoader(getClass().getClassLoader());
+
+    EditionClassCache cache = new EditionClassCache(directory);
+    byte[] generated = cache.getWriter(dcl, INTERFACE_NAME, Person.class, new EditionInterfaceClassWriter(Person.class)).writeClass(dcl, INTERFACE_NAME);
+
+    Assert.assertEquals(0, cache.getHitCount());
+    Assert.assertEquals(1, cache.getMissCount());
+    Assert.assertEquals(1, directory.listFiles().length);
+
+    // A new cache on the same directory simulates the next startup
+    cache = new EditionClassCache(directory);
+    DynamicClassWriter writer = cache.getWriter(dcl, INTERFACE_NAME, Person.class, new EditionInterfaceClassWriter(Person.class));
+
+    Assert.assertEquals(1, cache.getHitCount());
+    Assert.assertEquals(0, cache.getMissCount());
+    Assert.assertTrue(Arrays.equals(generated, writer.writeClass(dcl, INTERFACE_NAME)));
+
+    Class<?> infc = dcl.createDynamicClass(INTERFACE_NAME, writer);
+    Assert.assertTrue(infc.isInterface());
+    Assert.assertTrue(Person.class.isAssignableFrom(infc));
+  }
+
+  @Test
+  public void changedSourceIsNotCached() throws Exception
+  {
+    File directory = createDirectory();
+    DynamicClassLoader dcl = new DynamicClassLoader(getClass().getClassLoader());
+    EditionClassCache cache = new EditionClassCache(directory);
+
+    cache.getWriter(dcl, INTERFACE_NAME, Person.class, new EditionInterfaceClassWriter(Person.class));
+    cache.getWriter(dcl, INTERFACE_NAME, Address.class, new EditionInterfaceClassWriter(Address.class));
+
+    Assert.assertEquals(0, cache.getHitCount());
+    Assert.assertEquals(2, cache.getMissCount());
+    Assert.assertEquals(2, directory.listFiles().length);
+  }
+
+}
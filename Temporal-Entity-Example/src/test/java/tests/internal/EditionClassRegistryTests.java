@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.config.PersistenceUnitProperties;
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.server.Server;
+
+import model.Person;
+import temporal.persistence.DescriptorHelper;
+import temporal.persistence.EditionClassRegistry;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+/**
+ * Verify EntityManagerFactories for the same persistence unit, one per
+ * tenant, share their edition types through the {@link EditionClassRegistry}
+ * so the number of loaded classes and the metaspace used stay flat as
+ * factories are added.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionClassRegistryTests
+{
+
+  private static final int EMFS = 50;
+
+  private EntityManagerFactory createEMF(int tenant)
+  {
+    Map<String, Object> properties = new HashMap<String, Object>();
+    properties.put(PersistenceUnitProperties.TRANSACTION_TYPE, "RESOURCE_LOCAL");
+    properties.put(PersistenceUnitProperties.NON_JTA_DATASOURCE, "");
+    properties.put(PersistenceUnitProperties.JDBC_DRIVER, "org.h2.Driver");
+    properties.put(PersistenceUnitProperties.JDBC_URL, "jdbc:h2:mem:tenant" + tenant);
+    properties.put(PersistenceUnitProperties.JDBC_USER, "sa");
+    properties.put(PersistenceUnitProperties.JDBC_PASSWORD, "");
+    properties.put(PersistenceUnitProperties.SESSION_NAME, "tenant" + tenant);
+
+    return Persistence.createEntityManagerFactory("example", properties);
+  }
+
+  private long getMetaspaceUsed()
+  {
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+    {
+      if (pool.getName().contains("Metaspace") || pool.getName().contains("Perm Gen"))
+      {
+        return pool.getUsage().getUsed();
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  public void shareEditionTypesAcrossFactories()
+  {
+    EditionClassRegistry registry = EditionClassRegistry.getInstance();
+    ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    List<EntityManagerFactory> emfs = new ArrayList<EntityManagerFactory>();
+    ClassLoader loader = null;
+    int references = 0;
+
+    try
+    {
+      emfs.add(createEMF(0));
+      Server session = JpaHelper.getServerSession(emfs.get(0));
+      Class<?> personEdition = DescriptorHelper.getEditionDescriptor(session, Person.class).getJavaClass();
+      loader = session.getPlatform().getConversionManager().getLoader().getParent();
+      references = registry.getReferenceCount(loader) - 1;
+      int types = registry.getTypeCount(loader);
+
+      System.gc();
+      long classes = classLoading.getLoadedClassCount();
+      long metaspace = getMetaspaceUsed();
+
+      for (int tenant = 1; tenant < EMFS; tenant++)
+      {
+        EntityManagerFactory emf = createEMF(tenant);
+        emfs.add(emf);
+        Server tenantSession = JpaHelper.getServerSession(emf);
+        Assert.assertNotSame(session, tenantSession);
+        Assert.assertSame(personEdition, DescriptorHelper.getEditionDescriptor(tenantSession, Person.class).getJavaClass());
+      }
+
+      System.gc();
+      long addedClasses = classLoading.getLoadedClassCount() - classes;
+      long addedMetaspace = getMetaspaceUsed() - metaspace;
+      System.out.println("EDITION CLASSES: emfs=" + EMFS + " types=" + types + " addedClasses=" + addedClasses + " addedMetaspace=" + addedMetaspace + "B");
+
+      Assert.assertEquals(references + EMFS, registry.getReferenceCount(loader));
+      Assert.assertEquals(types, registry.getTypeCount(loader));
+      Assert.assertTrue("Classes loaded per EMF: " + addedClasses, addedClasses < EMFS);
+    }
+    finally
+    {
+      for (EntityManagerFactory emf : emfs)
+      {
+        emf.close();
+      }
+    }
+
+    Assert.assertEquals(references, registry.getReferenceCount(loader));
+  }
+
+  /**
+   * A type generated with other tracked attributes, as by a persistence unit
+   * mapping the class differently, is not reused.
+   */
+  @Test
+  public void otherVariantRejected()
+  {
+    EditionClassRegistry registry = EditionClassRegistry.getInstance();
+    ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+    DynamicClassLoader dcl = registry.acquire(loader);
+    try
+    {
+      registry.addType(dcl, "model.PersonEdition", "[email, name]", Object.class);
+      Assert.assertSame(Object.class, registry.getType(dcl, "model.PersonEdition", "[email, name]"));
+      try
+      {
+        registry.getType(dcl, "model.PersonEdition", "[name]");
+        Assert.fail("IllegalStateException expected");
+      }
+      catch (IllegalStateException e)
+      {
+        // expected
+      }
+    }
+    finally
+    {
+      registry.release(loader);
+    }
+    Assert.assertEquals(0, registry.getReferenceCount(loader));
+  }
+
+  /**
+   * The registry does not keep the application class loader of a session
+   * which is discarded without logging out.
+   */
+  @Test
+  public void loaderCollectedWithoutRelease()
+  {
+    EditionClassRegistry registry = EditionClassRegistry.getInstance();
+    ClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+    DynamicClassLoader dcl = registry.acquire(loader);
+    registry.addType(dcl, "model.PersonEdition", "[name]", Object.class);
+    Assert.assertEquals(1, registry.getReferenceCount(loader));
+
+    WeakReference<ClassLoader> collected = new WeakReference<ClassLoader>(loader);
+    loader = null;
+    dcl = null;
+    for (int i = 0; i < 10 && collected.get() != null; i++)
+    {
+      System.gc();
+    }
+    Assert.assertNull("Class loader held by the registry", collected.get());
+  }
+
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.TemporalEntity;
+import temporal.persistence.DescriptorHelper;
+import temporal.persistence.EditionCopyPlan;
+import tests.BaseTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verify the {@link EditionCopyPlan} of the Person edition descriptor and
+ * report the cost of copying an edition with the plan compared to copying
+ * each mapping with {@link EditionCopyPlan#copyValue}, as newEdition did
+ * before and still does without a plan.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class EditionCopyPlanTests extends BaseTestCase
+{
+
+  private ClassDescriptor getPersonEditionDescriptor()
+  {
+    return DescriptorHelper.getEditionDescriptor(JpaHelper.getServerSession(getEMF()), Person.class);
+  }
+
+  @Test
+  public void verifyPersonEditionPlan()
+  {
+    EditionCopyPlan plan = DescriptorHelper.getCopyPlan(getPersonEditionDescriptor());
+    Assert.assertNotNull(plan);
+
+    List<String> attributes = new ArrayList<String>();
+    for (DatabaseMapping mapping : plan.getMappings())
+    {
+      attributes.add(mapping.getAttributeName());
+    }
+
+    Assert.assertTrue(attributes.contains("name"));
+    Assert.assertTrue(attributes.contains("continuity"));
+    Assert.assertFalse(attributes.contains("effectivity"));
+    Assert.assertFalse(attributes.contains("oid"));
+    Assert.assertFalse(attributes.contains("version"));
+    Assert.assertFalse(attributes.contains("dateOfBirth"));
+  }
+
+  @Test
+  public void copyPersonEdition()
+  {
+    ClassDescriptor descriptor = getPersonEditionDescriptor();
+    AbstractSession session = (AbstractSession) JpaHelper.getServerSession(getEMF());
+
+    PersonEntity source = new PersonEntity();
+    source.setName("Jimmy");
+    source.setEmail("jimmy@email.com");
+    Person edition = (Person) descriptor.getInstantiationPolicy().buildNewInstance();
+
+    DescriptorHelper.getCopyPlan(descriptor).copy(session, source, edition);
+
+    Assert.assertEquals("Jimmy", edition.getName());
+    Assert.assertEquals("jimmy@email.com", edition.getEmail());
+    Assert.assertSame(source, edition.getContinuity());
+    Assert.assertNotSame(source.getPhones(), edition.getPhones());
+  }
+
+  @Test
+  public void copyCostWithPlan()
+  {
+    ClassDescriptor descriptor = getPersonEditionDescriptor();
+    AbstractSession session = (AbstractSession) JpaHelper.getServerSession(getEMF());
+    EditionCopyPlan plan = DescriptorHelper.getCopyPlan(descriptor);
+
+    PersonEntity source = new PersonEntity();
+    source.setName("Jimmy");
+    TemporalEntity<?> edition = (TemporalEntity<?>) descriptor.getInstantiationPolicy().buildNewInstance();
+
+    int copies = 100000;
+    for (int i = 0; i < copies; i++)
+    {
+      plan.copy(session, source, edition);
+      copyValues(descriptor, session, source, edition);
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < copies; i++)
+    {
+      plan.copy(session, source, edition);
+    }
+    long planTime = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (int i = 0; i < copies; i++)
+    {
+      copyValues(descriptor, session, source, edition);
+    }
+    long copyValueTime = System.nanoTime() - start;
+
+    Assert.assertEquals("Jimmy", ((Person) edition).getName());
+    System.out.println("COPY COST: copies=" + copies + " plan=" + (planTime / copies) + "ns copyValue=" + (copyValueTime / copies) + "ns");
+  }
+
+  /**
+   * The copy of newEdition without a plan, which TemporalEntityManager's
+   * copyValue delegates to for each mapping.
+   */
+  private void copyValues(ClassDescriptor descriptor, AbstractSession session, TemporalEntity<?> source, TemporalEntity<?> edition)
+  {
+    for (DatabaseMapping mapping : descriptor.getMappings())
+    {
+      EditionCopyPlan.copyValue(session, mapping, source, edition);
+    }
+  }
+
+}
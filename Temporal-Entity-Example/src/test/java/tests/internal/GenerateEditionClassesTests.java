@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.internal.weaving.PersistenceWeaved;
+import org.eclipse.persistence.internal.weaving.PersistenceWeavedLazy;
+
+import model.Person;
+import model.entities.AddressEntity;
+import model.entities.PersonEntity;
+import model.entities.PhoneEntity;
+import temporal.EditionSet;
+import temporal.persistence.EditionClassWriter;
+import temporal.persistence.GenerateEditionClasses;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Verify the edition classes written by {@link GenerateEditionClasses} can be
+ * loaded as the types ConfigureTemporalDescriptors would otherwise generate,
+ * inherit the weaving of their entity and are rejected once their entity no
+ * longer matches.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class GenerateEditionClassesTests
+{
+
+  @Test
+  public void generatePersonEditionClasses() throws Exception
+  {
+    File outputDirectory = File.createTempFile("editions", "");
+    Assert.assertTrue(outputDirectory.delete());
+    Assert.assertTrue(outputDirectory.mkdirs());
+
+    Properties keys = GenerateEditionClasses.generate(new DynamicClassLoader(getClass().getClassLoader()), PersonEntity.class, outputDirectory);
+    Assert.assertEquals(2 * GenerateEditionClasses.SUFFIXES.length, keys.size());
+
+    for (String suffix : GenerateEditionClasses.SUFFIXES)
+    {
+      Assert.assertTrue(new File(outputDirectory, "model/entities/PersonEntity" + suffix + ".class").isFile());
+      Assert.assertTrue(new File(outputDirectory, "model/entities/PersonEntity" + suffix + "I.class").isFile());
+      Assert.assertTrue(keys.containsKey("model.entities.PersonEntity" + suffix));
+    }
+
+    ClassLoader loader = new URLClassLoader(new URL[] { outputDirectory.toURI().toURL() }, getClass().getClassLoader());
+    Class<?> editionClass = loader.loadClass("model.entities.PersonEntityEdition");
+    Class<?> editionInterface = loader.loadClass("model.entities.PersonEntityEditionI");
+
+    Assert.assertSame(PersonEntity.class, editionClass.getSuperclass());
+    Assert.assertTrue(editionInterface.isInterface());
+    Assert.assertTrue(editionInterface.isAssignableFrom(editionClass));
+    Assert.assertTrue(Person.class.isAssignableFrom(editionInterface));
+    Assert.assertTrue(editionClass.newInstance() instanceof PersonEntity);
+
+    // The weaving of the entity is inherited
+    Assert.assertTrue(PersistenceWeaved.class.isAssignableFrom(editionClass));
+    Assert.assertTrue(PersistenceWeavedLazy.class.isAssignableFrom(editionClass));
+    Assert.assertTrue(ChangeTracker.class.isAssignableFrom(editionClass));
+  }
+
+  @Test
+  public void staleClassRejected() throws Exception
+  {
+    ClassLoader loader = getClass().getClassLoader();
+    Class<?> editionInterface = loader.loadClass("model.entities.PersonEntityEditionI");
+
+    Class<?> editionClass = GenerateEditionClasses.loadGeneratedClass(loader, "model.entities.PersonEntityEdition", PersonEntity.class, new EditionClassWriter(PersonEntity.class, editionInterface));
+    Assert.assertNotNull(editionClass);
+    Assert.assertNull(GenerateEditionClasses.loadGeneratedClass(loader, "model.entities.UnknownEdition", PersonEntity.class, new EditionClassWriter(PersonEntity.class, editionInterface)));
+
+    // Hashing another source simulates a change to the entity
+    try
+    {
+      GenerateEditionClasses.loadGeneratedClass(loader, "model.entities.PersonEntityEdition", AddressEntity.class, new EditionClassWriter(PersonEntity.class, editionInterface));
+      Assert.fail("IllegalStateException expected");
+    }
+    catch (IllegalStateException e)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void entitiesOfPersistenceUnit() throws Exception
+  {
+    List<Class<?>> entityClasses = GenerateEditionClasses.getTemporalEntityClasses(getClass().getClassLoader(), "example");
+
+    Assert.assertTrue(entityClasses.contains(PersonEntity.class));
+    Assert.assertTrue(entityClasses.contains(AddressEntity.class));
+    Assert.assertTrue(entityClasses.contains(PhoneEntity.class));
+    Assert.assertFalse(entityClasses.contains(EditionSet.class));
+
+    try
+    {
+      GenerateEditionClasses.getTemporalEntityClasses(getClass().getClassLoader(), "unknown");
+      Assert.fail("IllegalArgumentException expected");
+    }
+    catch (IllegalArgumentException e)
+    {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.dynamic.DynamicClassLoader;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.server.Server;
+
+import model.Person;
+import model.entities.PersonEntity;
+import temporal.persistence.ConfigureTemporalDescriptors;
+import temporal.persistence.EditionClassWriter;
+import tests.BaseTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static temporal.persistence.DescriptorHelper.EDITION;
+import static temporal.persistence.DescriptorHelper.EDITION_VIEW;
+
+/**
+ * Verify and report the time to create the edition types of N synthetic
+ * temporal entities with 1, 4 and 16 threads. This is the phase of
+ * {@link ConfigureTemporalDescriptors} which is run in parallel.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class ParallelCustomizationTests extends BaseTestCase
+{
+
+  private static final int[] ENTITIES = { 50, 200 };
+
+  private static final int[] THREADS = { 1, 4, 16 };
+
+  /**
+   * Create copies of the Person descriptor for new subclasses of
+   * {@link PersonEntity} defined in the loader.
+   */
+  private List<ClassDescriptor> createSyntheticEntities(DynamicClassLoader dcl, int count)
+  {
+    ClassDescriptor personDesc = JpaHelper.getServerSession(getEMF()).getClassDescriptor(PersonEntity.class);
+    List<ClassDescriptor> descriptors = new ArrayList<ClassDescriptor>(count);
+
+    for (int index = 0; index < count; index++)
+    {
+      String className = "synthetic.PersonEntity" + index;
+      Class<?> entityClass = dcl.createDynamicClass(className, new EditionClassWriter(PersonEntity.class, Person.class));
+
+      ClassDescriptor desc = (ClassDescriptor) personDesc.clone();
+      desc.setJavaClassName(className);
+      desc.setJavaClass(entityClass);
+      desc.setAlias("Person" + index);
+      descriptors.add(desc);
+    }
+    return descriptors;
+  }
+
+  private long createEditionTypes(int count, int threads) throws Exception
+  {
+    Server session = JpaHelper.getServerSession(getEMF());
+    DynamicClassLoader dcl = new DynamicClassLoader(getClass().getClassLoader());
+    List<ClassDescriptor> currents = createSyntheticEntities(dcl, count);
+
+    long start = System.nanoTime();
+    List<ClassDescriptor[]> editionTypes = new ConfigureTemporalDescriptors().createEditionTypes(session, dcl, null, currents, threads);
+    long time = System.nanoTime() - start;
+
+    Assert.assertEquals(count, editionTypes.size());
+    for (int index = 0; index < count; index++)
+    {
+      Assert.assertEquals(currents.get(index).getJavaClassName() + EDITION, editionTypes.get(index)[0].getJavaClassName());
+      Assert.assertEquals(currents.get(index).getJavaClassName() + EDITION_VIEW, editionTypes.get(index)[1].getJavaClassName());
+      Assert.assertSame(currents.get(index).getJavaClass(), editionTypes.get(index)[0].getJavaClass().getSuperclass());
+    }
+    return time;
+  }
+
+  @Test
+  public void startupTimeByThreads() throws Exception
+  {
+    // Warm up
+    for (int threads : THREADS)
+    {
+      createEditionTypes(ENTITIES[0], threads);
+    }
+
+    for (int count : ENTITIES)
+    {
+      StringBuilder report = new StringBuilder("CUSTOMIZE: entities=").append(count);
+      for (int threads : THREADS)
+      {
+        report.append(" threads[").append(threads).append("]=").append(createEditionTypes(count, threads) / 1000000).append("ms");
+      }
+      System.out.println(report);
+    }
+  }
+
+}
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2011-2012 Oracle. All rights reserved. This program and the
+ * accompanying materials are made available under the terms of the Eclipse
+ * Public License v1.0 and Eclipse Distribution License v. 1.0 which accompanies
+ * this distribution. The Eclipse Public License is available at
+ * http://www.eclipse.org/legal/epl-v10.html and the Eclipse Distribution
+ * License is available at http://www.eclipse.org/org/documents/edl-v10.php.
+ *
+ * Contributors: dclarke - Bug 361016: Future Versions Examples
+ ******************************************************************************/
+package tests.internal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import temporal.Temporal;
+import temporal.persistence.TemporalCloneIndex;
+import tests.internal.TemporalEntityTests.TestEntityImpl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static temporal.Effectivity.BOT;
+import static temporal.Effectivity.EOT;
+
+/**
+ * Verify the {@link TemporalCloneIndex} used by the TemporalEntityManager to
+ * find the clones to evict when its effective time changes. The last test
+ * reports the switch cost against the persistence context size compared to
+ * scanning all clones.
+ *
+ * @author dclarke
+ * @since EclipseLink 2.3.1
+ */
+public class TemporalCloneIndexTests
+{
+
+  private static Temporal newTemporal(long start, long end)
+  {
+    TestEntityImpl entity = new TestEntityImpl();
+    entity.getEffectivity().setStart(start);
+    entity.getEffectivity().setEnd(end);
+    return entity;
+  }
+
+  @Test
+  public void verifyExcluded()
+  {
+    TemporalCloneIndex index = new TemporalCloneIndex();
+    Temporal current = newTemporal(BOT, 200);
+    Temporal t200 = newTemporal(200, 400);
+    Temporal t400 = newTemporal(400, EOT);
+    index.add(current);
+    index.add(t200);
+    index.add(t400);
+
+    List<Temporal> excluded = index.getExcluded(300l);
+    Assert.assertEquals(2, excluded.size());
+    Assert.assertTrue(excluded.contains(current));
+    Assert.assertTrue(excluded.contains(t400));
+
+    excluded = index.getExcluded(null);
+    Assert.assertEquals(2, excluded.size());
+    Assert.assertTrue(excluded.contains(t200));
+    Assert.assertTrue(excluded.contains(t400));
+  }
+
+  @Test
+  public void verifyChangedEffectivityReindexed()
+  {
+    TemporalCloneIndex index = new TemporalCloneIndex();
+    Temporal temporal = newTemporal(BOT, EOT);
+    index.add(temporal);
+    Assert.assertTrue(index.getExcluded(500l).isEmpty());
+
+    temporal.getEffectivity().setEnd(500);
+    index.add(temporal);
+
+    Assert.assertEquals(1, index.size());
+    Assert.assertEquals(1, index.getExcluded(500l).size());
+    Assert.assertTrue(index.getExcluded(499l).isEmpty());
+  }
+
+  /**
+   * An effectivity changed without re-adding its clone, as by newEditions
+   * ending the predecessor before a flush, is reflected immediately.
+   */
+  @Test
+  public void verifyUnflushedChangeReindexed()
+  {
+    TemporalCloneIndex index = new TemporalCloneIndex();
+    Temporal predecessor = newTemporal(BOT, EOT);
+    Temporal edition = newTemporal(BOT, EOT);
+    index.add(predecessor);
+    index.add(edition);
+    Assert.assertTrue(index.getExcluded(500l).isEmpty());
+
+    predecessor.getEffectivity().setEnd(500);
+    edition.getEffectivity().setStart(500);
+
+    Assert.assertEquals(2, index.size());
+    List<Temporal> excluded = index.getExcluded(500l);
+    Assert.assertEquals(1, excluded.size());
+    Assert.assertSame(predecessor, excluded.get(0));
+    excluded = index.getExcluded(499l);
+    Assert.assertEquals(1, excluded.size());
+    Assert.assertSame(edition, excluded.get(0));
+
+    // Removed and cleared clones are no longer re-added
+    index.remove(predecessor);
+    predecessor.getEffectivity().setEnd(600);
+    Assert.assertFalse(index.contains(predecessor));
+    index.clear();
+    edition.getEffectivity().setStart(600);
+    Assert.assertEquals(0, index.size());
+  }
+
+  @Test
+  public void verifyRemoveAndClear()
+  {
+    TemporalCloneIndex index = new TemporalCloneIndex();
+    List<Temporal> temporals = new ArrayList<Temporal>();
+    for (int i = 0; i < 1000; i++)
+    {
+      Temporal temporal = newTemporal(i, i + 10);
+      temporals.add(temporal);
+      index.add(temporal);
+    }
+    Assert.assertEquals(994, index.getExcluded(5l).size());
+
+    for (int i = 0; i < 500; i++)
+    {
+      index.remove(temporals.get(i));
+    }
+    Assert.assertFalse(index.contains(temporals.get(0)));
+    Assert.assertEquals(500, index.getExcluded(5l).size());
+
+    index.clear();
+    Assert.assertEquals(0, index.size());
+    Assert.assertTrue(index.getExcluded(5l).isEmpty());
+  }
+
+  @Test
+  public void verifyEditionByContinuity()
+  {
+    TemporalCloneIndex index = new TemporalCloneIndex();
+    TestEntityImpl current = (TestEntityImpl) newTemporal(BOT, 200);
+    current.setId(1);
+    current.setContinuity(current);
+    TestEntityImpl edition = (TestEntityImpl) newTemporal(200, EOT);
+    edition.setId(2);
+    edition.setContinuity(current);
+    index.add(current);
+    index.add(edition);
+
+    Assert.assertSame(current, index.getEdition(TestEntityImpl.class, 1, 100l));
+    Assert.assertSame(edition, index.getEdition(TestEntityImpl.class, 1, 300l));
+    Assert.assertNull(index.getEdition(TestEntityImpl.class, 2, 300l));
+    Assert.assertNull(index.getEdition(TemporalEntityTests.TestEntityEdition.class, 1, 300l));
+
+    // Effectivity changed after indexing is still honoured
+    edition.getEffectivity().setStart(400);
+    Assert.assertNull(index.getEdition(TestEntityImpl.class, 1, 300l));
+
+    index.remove(edition);
+    Assert.assertNull(index.getEdition(TestEntityImpl.class, 1, 500l));
+  }
+
+  /**
+   * Compare the cost of finding the clones to evict on an effective time
+   * switch using the index against the scan of all clones previously done by
+   * TemporalEntityManager.setEffectiveTime. Most clones in a long running
+   * persistence context remain valid so few are evicted on each switch.
+   */
+  @Test
+  public void switchCostByPersistenceContextSize()
+  {
+    for (int size = 1000; size <= 100000; size *= 10)
+    {
+      TemporalCloneIndex index = new TemporalCloneIndex();
+      Map<Object, Object> cloneMapping = new IdentityHashMap<Object, Object>();
+      for (int i = 0; i < size; i++)
+      {
+        Temporal temporal = i % 100 == 0 ? newTemporal(1000 + i, EOT) : newTemporal(BOT, EOT);
+        index.add(temporal);
+        cloneMapping.put(temporal, temporal);
+      }
+      // Sort the index before timing
+      index.getExcluded(BOT);
+
+      int switches = 100;
+      long indexed = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < switches; i++)
+      {
+        indexed += index.getExcluded((long) i).size();
+      }
+      long indexTime = System.nanoTime() - start;
+
+      long scanned = 0;
+      start = System.nanoTime();
+      for (int i = 0; i < switches; i++)
+      {
+        for (Object clone : cloneMapping.keySet())
+        {
+          if (!((Temporal) clone).getEffectivity().includes((long) i))
+          {
+            scanned++;
+          }
+        }
+      }
+      long scanTime = System.nanoTime() - start;
+
+      Assert.assertEquals(scanned, indexed);
+      System.out.println("SWITCH COST: clones=" + size + " index=" + (indexTime / switches / 1000) + "us scan=" + (scanTime / switches / 1000) + "us");
+    }
+  }
+
+}
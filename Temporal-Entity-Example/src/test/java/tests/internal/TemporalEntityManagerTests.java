@@ -27,6 +27,7 @@ import model.PersonHobby;
 import temporal.EditionSet;
 import temporal.TemporalEntityManager;
 import temporal.persistence.DescriptorHelper;
+import temporal.persistence.TemporalQueryCache;
 import tests.BaseTestCase;
 
 import javax.persistence.EntityManager;
@@ -299,6 +300,55 @@ public class TemporalEntityManagerTests extends BaseTestCase
     Assert.assertSame(desc, query.unwrap(ObjectLevelReadQuery.class).getDescriptor());
   }
 
+  /**
+   * Verify the same JPQL is cached separately for current and edition queries
+   * and that each cache hit returns its own copy of the query.
+   */
+  @Test
+  public void createQuery_CachedPerTemporalMode()
+  {
+    TemporalEntityManager em = getEntityManager();
+    Assert.assertNotNull(TemporalQueryCache.getInstance(em.unwrap(Server.class)));
+
+    em.setEffectiveTime(T1);
+    TypedQuery<Person> query1 = em.createQuery("SELECT p FROM Person p WHERE p.name = 'Cached'", Person.class);
+    TypedQuery<Person> query2 = em.createQuery("SELECT p FROM Person p WHERE p.name = 'Cached'", Person.class);
+    ClassDescriptor desc = DescriptorHelper.getEditionDescriptor(em.unwrap(Session.class), Person.class);
+    Assert.assertNotSame(query1.unwrap(ObjectLevelReadQuery.class), query2.unwrap(ObjectLevelReadQuery.class));
+    Assert.assertSame(desc, query1.unwrap(ObjectLevelReadQuery.class).getDescriptor());
+    Assert.assertSame(desc, query2.unwrap(ObjectLevelReadQuery.class).getDescriptor());
+    Assert.assertTrue(query2.getResultList().isEmpty());
+
+    em.clear();
+    TypedQuery<Person> query3 = em.createQuery("SELECT p FROM Person p WHERE p.name = 'Cached'", Person.class);
+    desc = DescriptorHelper.getCurrentDescriptor(em.unwrap(Session.class), Person.class);
+    Assert.assertSame(desc, query3.unwrap(ObjectLevelReadQuery.class).getDescriptor());
+    Assert.assertTrue(query3.getResultList().isEmpty());
+  }
+
+  /**
+   * Verify typed queries are cached apart from untyped queries of the same
+   * JPQL and a cache hit still returns a typed query.
+   */
+  @Test
+  public void createQuery_CachedPerResultClass()
+  {
+    TemporalEntityManager em = getEntityManager();
+    TemporalQueryCache queryCache = TemporalQueryCache.getInstance(em.unwrap(Server.class));
+    String jpql = "SELECT p FROM Person p WHERE p.name = 'Typed'";
+
+    Assert.assertNull(queryCache.get(jpql, Person.class, DescriptorHelper.CURRENT));
+    em.createQuery(jpql);
+    Assert.assertNotNull(queryCache.get(jpql, DescriptorHelper.CURRENT));
+    Assert.assertNull(queryCache.get(jpql, Person.class, DescriptorHelper.CURRENT));
+
+    TypedQuery<Person> typed = em.createQuery(jpql, Person.class);
+    Assert.assertNotNull(queryCache.get(jpql, Person.class, DescriptorHelper.CURRENT));
+    TypedQuery<Person> cached = em.createQuery(jpql, Person.class);
+    Assert.assertNotSame(typed.unwrap(ObjectLevelReadQuery.class), cached.unwrap(ObjectLevelReadQuery.class));
+    Assert.assertTrue(cached.getResultList().isEmpty());
+  }
+
   /**
    * Ensure the find of a non-existent edition returns null and not the
    * {@link NoResultException} thrown by the .find named query execution.
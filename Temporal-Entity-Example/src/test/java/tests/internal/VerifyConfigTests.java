@@ -20,6 +20,8 @@ import org.eclipse.persistence.internal.weaving.PersistenceWeavedChangeTracking;
 import org.eclipse.persistence.internal.weaving.PersistenceWeavedFetchGroups;
 import org.eclipse.persistence.internal.weaving.PersistenceWeavedLazy;
 import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.mappings.ForeignReferenceMapping;
 import org.eclipse.persistence.mappings.OneToManyMapping;
 import org.eclipse.persistence.mappings.OneToOneMapping;
 import org.eclipse.persistence.sessions.Session;
@@ -191,13 +193,23 @@ public class VerifyConfigTests extends BaseTestCase
       Assert.assertNotNull(descriptor);
       Assert.assertNotNull(descriptor.getQueryManager().getAdditionalJoinExpression());
       Assert.assertFalse(descriptor.shouldBeReadOnly());
-      Assert.assertTrue(descriptor.isIsolated());
+      Assert.assertFalse(descriptor.isIsolated());
       Assert.assertTrue(descriptor.getObjectChangePolicy().isAttributeChangeTrackingPolicy());
 
       Assert.assertEquals(1, descriptor.getPrimaryKeyFieldNames().size());
       Assert.assertEquals("OID", descriptor.getPrimaryKeyFields().get(0).getName());
 
-      Assert.assertEquals(CacheIsolationType.ISOLATED, descriptor.getCacheIsolation());
+      // Shared editions must not cache relationships resolved at an
+      // EntityManager's effective time
+      Assert.assertEquals(CacheIsolationType.PROTECTED, descriptor.getCacheIsolation());
+      for (DatabaseMapping mapping : descriptor.getMappings())
+      {
+        if (mapping.isForeignReferenceMapping() && TemporalHelper.isTemporal(((ForeignReferenceMapping) mapping).getReferenceClass(), true))
+        {
+          Assert.assertFalse(mapping.getAttributeName(), mapping.isCacheable());
+        }
+      }
+      Assert.assertNotNull(DescriptorHelper.getEditionCache(descriptor));
     }
   }
 